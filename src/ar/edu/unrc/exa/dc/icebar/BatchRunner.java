@@ -0,0 +1,347 @@
+package ar.edu.unrc.exa.dc.icebar;
+
+import ar.edu.unrc.exa.dc.icebar.properties.ICEBARFileBasedProperties;
+import ar.edu.unrc.exa.dc.icebar.properties.Property;
+import ar.edu.unrc.exa.dc.util.Deadline;
+import ar.edu.unrc.exa.dc.util.ModelHashes;
+import ar.edu.unrc.exa.dc.util.SharedArchive;
+import ar.edu.unrc.exa.dc.util.Utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Runs ICEBAR over every job (model, oracle, and optional properties and initial tests) listed in a manifest, see
+ * {@link #BatchRunner(Path, int, int, Logger)}.
+ * <p>
+ * Each job is run by its own ICEBAR process, in its own folder inside {@value #BATCH_FOLDER}, since a run writes its
+ * report, logs, and tools output to its working directory. Up to {@code parallelism} jobs are run at the same time,
+ * those expected to take longer (estimated by the size of their model, oracle, and initial tests) first. Jobs whose
+ * files are byte-identical to those of a previous job are not run, they get that job's result.
+ * <p>
+ * Results are appended to {@value #RESULTS_FILE} as each job finishes, one line per job with the job's number (its
+ * line in the manifest), key, model, oracle, the job it duplicates (if any), the ICEBAR exit code, the wall time, and
+ * the contents of its {@code icebar.info} report. A job finished if it wrote its report or ended with exit code 0, jobs
+ * killed before that (e.g.: when the batch is stopped) get no result. Running the same manifest again only runs the
+ * jobs without a result, and jobs that were stopped in the middle of their search resume it from their checkpoint.
+ */
+public final class BatchRunner {
+
+    public static final String BATCH_FOLDER = "icebar_batch";
+    public static final String RESULTS_FILE = "results.csv";
+    private static final String JOB_OUTPUT_FILE = "icebar.out";
+    private static final String JOB_REPORT_FILE = "icebar.info";
+    private static final String JOB_CHECKPOINT_FILE = "icebar.checkpoint";
+    private static final String MANIFEST_COMMENT = "#";
+    private static final String RESULTS_HEADER = String.join(Report.SEPARATOR,
+            "JOB", "KEY", "MODEL", "ORACLE", "DUPLICATE OF", "EXIT CODE", "WALL TIME (ms)", "REPORT");
+
+    private static final class Job {
+
+        private final int number;
+        private final Path model;
+        private final Path oracle;
+        private final Path properties;
+        private final Path initialTests;
+        private final String key;
+        private final long expectedCost;
+
+        private Job(int number, Path model, Path oracle, Path properties, Path initialTests) throws IOException {
+            this.number = number;
+            this.model = model;
+            this.oracle = oracle;
+            this.properties = properties;
+            this.initialTests = initialTests;
+            this.key = ModelHashes.hash(contents(model), contents(oracle), contents(properties), contents(initialTests));
+            this.expectedCost = model.toFile().length() + oracle.toFile().length() + (initialTests == null?0:initialTests.toFile().length());
+        }
+
+        private static String contents(Path file) throws IOException {
+            return file == null?"":new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        }
+
+    }
+
+    private final Path manifest;
+    private final int parallelism;
+    private final int jobsPerRun;
+    private final Logger logger;
+    private final Path batchFolder;
+    private final Path resultsFile;
+    private final Set<Process> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean shuttingDown = false;
+    private SharedArchive sharedArchive = null;
+
+    /**
+     * @param manifest    a file with one job per line, each with a model, an oracle, and optionally a properties file
+     *                    and an initial tests file, separated by {@value Report#SEPARATOR} (an empty properties value
+     *                    means using this run's properties). Relative paths are resolved against the manifest's folder,
+     *                    empty lines and lines starting with {@value #MANIFEST_COMMENT} are ignored.
+     * @param parallelism how many jobs are run at the same time.
+     * @param jobsPerRun  how many candidates each job evaluates at the same time (i.e.: its {@code --jobs} value).
+     */
+    public BatchRunner(Path manifest, int parallelism, int jobsPerRun, Logger logger) {
+        if (!Utils.isValidPath(manifest, Utils.PathCheck.FILE))
+            throw new IllegalArgumentException("invalid batch manifest (" + manifest + ")");
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1 (" + parallelism + ")");
+        if (jobsPerRun < 1)
+            throw new IllegalArgumentException("jobs per run must be at least 1 (" + jobsPerRun + ")");
+        this.manifest = manifest.toAbsolutePath();
+        this.parallelism = parallelism;
+        this.jobsPerRun = jobsPerRun;
+        this.logger = logger;
+        this.batchFolder = Paths.get(BATCH_FOLDER).toAbsolutePath();
+        this.resultsFile = batchFolder.resolve(RESULTS_FILE);
+    }
+
+    /**
+     * Starts the ICEBAR process of each job with an AppCDS archive of this run's classpath (see {@link SharedArchive})
+     * kept in {@code directory}.
+     *
+     * @return {@code false} if archives are not available for this run's java and classpath.
+     */
+    public boolean sharedArchive(Path directory) throws IOException {
+        List<Path> classpath = new LinkedList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classpath.add(Paths.get(entry));
+        }
+        SharedArchive sharedArchive = new SharedArchive(directory, "icebar", java(), classpath);
+        this.sharedArchive = sharedArchive.isAvailable()?sharedArchive:null;
+        return sharedArchive.isAvailable();
+    }
+
+    public void run() throws IOException {
+        List<Job> jobs = readManifest();
+        Files.createDirectories(batchFolder);
+        Set<String> done = completedJobs();
+        Map<String, List<Job>> jobsByKey = new LinkedHashMap<>();
+        for (Job job : jobs) {
+            if (!done.contains(job.key))
+                jobsByKey.computeIfAbsent(job.key, k -> new LinkedList<>()).add(job);
+        }
+        List<List<Job>> pending = new ArrayList<>(jobsByKey.values());
+        pending.sort(Comparator.comparingLong((List<Job> sameJobs) -> sameJobs.get(0).expectedCost).reversed());
+        logger.info("Batch " + manifest + ": " + jobs.size() + " jobs, " + (jobs.size() - pending.stream().mapToInt(List::size).sum()) +
+                " already done, " + pending.size() + " ICEBAR runs pending (" + parallelism + " at a time)");
+        Thread destroyRunning = new Thread(() -> {
+            shuttingDown = true;
+            running.forEach(Deadline::destroyProcessTree);
+        });
+        Runtime.getRuntime().addShutdownHook(destroyRunning);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<Void>> runs = new LinkedList<>();
+            for (List<Job> sameJobs : pending) {
+                runs.add(executor.submit(() -> {
+                    runJob(sameJobs);
+                    return null;
+                }));
+            }
+            for (Future<Void> run : runs) {
+                run.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for batch jobs", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IllegalStateException("A batch job ended with an exception", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            running.forEach(Deadline::destroyProcessTree);
+            try {
+                Runtime.getRuntime().removeShutdownHook(destroyRunning);
+            } catch (IllegalStateException ignored) {
+                //already shutting down
+            }
+        }
+        logger.info("Batch finished, results at " + resultsFile);
+    }
+
+    /**
+     * Runs the first of {@code sameJobs} (jobs with the same key), and records its result for all of them.
+     */
+    private void runJob(List<Job> sameJobs) throws IOException, InterruptedException {
+        Job job = sameJobs.get(0);
+        Path jobFolder = batchFolder.resolve(job.key);
+        Path checkpoint = jobFolder.resolve(JOB_CHECKPOINT_FILE);
+        boolean resume = checkpoint.toFile().isFile() && checkpoint.toFile().length() > 0;
+        if (!resume && jobFolder.toFile().exists())
+            Utils.deleteFolderAndItsContent(jobFolder);
+        Files.createDirectories(jobFolder);
+        Files.deleteIfExists(jobFolder.resolve(JOB_REPORT_FILE));
+        logger.info((resume?"Resuming":"Starting") + " job " + job.number + " (" + job.model.getFileName() + ")");
+        List<String> archiveOptions = sharedArchive == null?Collections.emptyList():sharedArchive.jvmOptions();
+        ProcessBuilder pb = new ProcessBuilder(command(job, checkpoint, resume, archiveOptions));
+        pb.directory(jobFolder.toFile());
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(ProcessBuilder.Redirect.appendTo(jobFolder.resolve(JOB_OUTPUT_FILE).toFile()));
+        long start = System.nanoTime();
+        Process process = null;
+        int exitCode;
+        try {
+            process = pb.start();
+            running.add(process);
+            exitCode = process.waitFor();
+        } finally {
+            if (process != null)
+                running.remove(process);
+            if (sharedArchive != null)
+                sharedArchive.ended(archiveOptions, process);
+        }
+        long wallTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Path report = jobFolder.resolve(JOB_REPORT_FILE);
+        String reportLine = report.toFile().isFile()?new String(Files.readAllBytes(report), StandardCharsets.UTF_8).trim():"";
+        if (shuttingDown || !finished(exitCode, reportLine)) {
+            logger.info("Job " + job.number + " was stopped (exit code " + exitCode + ") after " + wallTime + "ms, it will be resumed by the next run");
+            return;
+        }
+        logger.info("Job " + job.number + " ended with exit code " + exitCode + " after " + wallTime + "ms" + (reportLine.isEmpty()?"":(": " + reportLine)));
+        StringBuilder results = new StringBuilder();
+        for (Job sameJob : sameJobs) {
+            results.append(String.join(Report.SEPARATOR,
+                    Integer.toString(sameJob.number), sameJob.key, sameJob.model.toString(), sameJob.oracle.toString(),
+                    sameJob == job?"":Integer.toString(job.number), Integer.toString(exitCode), Long.toString(wallTime),
+                    reportLine)).append("\n");
+        }
+        appendResults(results.toString());
+    }
+
+    private static boolean finished(int exitCode, String reportLine) {
+        return exitCode == 0 || !reportLine.isEmpty();
+    }
+
+    private synchronized void appendResults(String results) throws IOException {
+        if (shuttingDown)
+            return;
+        if (!resultsFile.toFile().exists())
+            results = RESULTS_HEADER + "\n" + results;
+        Files.write(resultsFile, results.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * The command running ICEBAR for {@code job}, using the same java executable and classpath as this run, along with
+     * {@code jvmOptions}.
+     * <p>
+     * ICEBAR properties given to this run as VM arguments are passed to the job. Since jobs run in their own folder,
+     * path properties with a relative value (either from VM arguments or from the job's properties file) are passed
+     * resolved against this run's working directory.
+     */
+    private List<String> command(Job job, Path checkpoint, boolean resume, List<String> jvmOptions) throws IOException {
+        Path properties = job.properties;
+        if (properties == null && Paths.get(ICEBARFileBasedProperties.ICEBAR_PROPERTIES).toFile().isFile())
+            properties = Paths.get(ICEBARFileBasedProperties.ICEBAR_PROPERTIES).toAbsolutePath();
+        Properties fileProperties = new Properties();
+        if (properties != null) {
+            try (Reader reader = Files.newBufferedReader(properties, StandardCharsets.UTF_8)) {
+                fileProperties.load(reader);
+            }
+        }
+        List<String> command = new LinkedList<>();
+        command.add(java());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (Property property : Property.values()) {
+            if (property.equals(Property.ICEBAR_CHECKPOINT))
+                continue;
+            String value = System.getProperty(property.getKey());
+            boolean vmArgument = value != null;
+            if (!vmArgument)
+                value = fileProperties.getProperty(property.getKey());
+            if (value == null)
+                continue;
+            if (property.isPath() && !value.trim().isEmpty() && !Paths.get(value.trim()).isAbsolute()) {
+                command.add("-D" + property.getKey() + "=" + Paths.get(value.trim()).toAbsolutePath());
+            } else if (vmArgument) {
+                command.add("-D" + property.getKey() + "=" + value);
+            }
+        }
+        command.add("-D" + Property.ICEBAR_CHECKPOINT.getKey() + "=" + checkpoint);
+        command.add(ICEBAR.class.getName());
+        command.add("--model");
+        command.add(job.model.toString());
+        command.add("--oracle");
+        command.add(job.oracle.toString());
+        if (properties != null) {
+            command.add("--properties");
+            command.add(properties.toString());
+        }
+        if (job.initialTests != null) {
+            command.add("--initialtests");
+            command.add(job.initialTests.toString());
+        }
+        command.add("--jobs");
+        command.add(Integer.toString(jobsPerRun));
+        if (resume) {
+            command.add("--resume");
+            command.add(checkpoint.toString());
+        }
+        return command;
+    }
+
+    private static String java() {
+        return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private List<Job> readManifest() throws IOException {
+        List<Job> jobs = new LinkedList<>();
+        Path manifestFolder = manifest.getParent();
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        for (int l = 0; l < lines.size(); l++) {
+            String line = lines.get(l).trim();
+            if (line.isEmpty() || line.startsWith(MANIFEST_COMMENT))
+                continue;
+            String[] values = line.split(Report.SEPARATOR, -1);
+            if (values.length < 2 || values.length > 4)
+                throw new IllegalArgumentException("Expecting model" + Report.SEPARATOR + "oracle[" + Report.SEPARATOR + "properties[" + Report.SEPARATOR + "initial tests]] at line " + (l + 1) + " of " + manifest + " but got " + line);
+            Path model = manifestPath(manifestFolder, values[0], Utils.PathCheck.ALS, "model", l);
+            Path oracle = manifestPath(manifestFolder, values[1], Utils.PathCheck.ALS, "oracle", l);
+            Path properties = values.length > 2?manifestPath(manifestFolder, values[2], Utils.PathCheck.PROPERTIES, "properties", l):null;
+            Path initialTests = values.length > 3?manifestPath(manifestFolder, values[3], Utils.PathCheck.TESTS, "initial tests", l):null;
+            jobs.add(new Job(l + 1, model, oracle, properties, initialTests));
+        }
+        return jobs;
+    }
+
+    private Path manifestPath(Path manifestFolder, String value, Utils.PathCheck check, String name, int line) {
+        if (value.trim().isEmpty()) {
+            if (check.equals(Utils.PathCheck.ALS))
+                throw new IllegalArgumentException("Missing " + name + " at line " + (line + 1) + " of " + manifest);
+            return null;
+        }
+        Path path = manifestFolder.resolve(value.trim()).normalize();
+        if (!Utils.isValidPath(path, check))
+            throw new IllegalArgumentException("Invalid " + name + " (" + path + ") at line " + (line + 1) + " of " + manifest);
+        return path;
+    }
+
+    /**
+     * @return the keys of the finished jobs with a result in {@value #RESULTS_FILE}.
+     */
+    private Set<String> completedJobs() throws IOException {
+        Set<String> done = new HashSet<>();
+        if (!resultsFile.toFile().isFile())
+            return done;
+        for (String line : Files.readAllLines(resultsFile, StandardCharsets.UTF_8)) {
+            String[] values = line.split(Report.SEPARATOR, -1);
+            if (line.equals(RESULTS_HEADER) || values.length < 8)
+                continue;
+            try {
+                if (!finished(Integer.parseInt(values[5].trim()), values[7].trim()))
+                    continue;
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            done.add(values[1]);
+        }
+        return done;
+    }
+
+}
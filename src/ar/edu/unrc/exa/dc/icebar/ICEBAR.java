@@ -3,12 +3,18 @@ package ar.edu.unrc.exa.dc.icebar;
 import ar.edu.unrc.exa.dc.icebar.properties.ICEBARFileBasedProperties;
 import ar.edu.unrc.exa.dc.icebar.properties.ICEBARProperties;
 import ar.edu.unrc.exa.dc.logging.LocalLogging;
+import ar.edu.unrc.exa.dc.search.BestFirstCost;
 import ar.edu.unrc.exa.dc.search.FixCandidate;
 import ar.edu.unrc.exa.dc.search.IterativeCEBasedAlloyRepair;
 import ar.edu.unrc.exa.dc.tools.ARepair;
+import ar.edu.unrc.exa.dc.tools.ARepairCache;
 import ar.edu.unrc.exa.dc.tools.BeAFix;
 import ar.edu.unrc.exa.dc.tools.BeAFixResult;
+import ar.edu.unrc.exa.dc.tools.GeneratedTestsCache;
 import ar.edu.unrc.exa.dc.tools.InitialTests;
+import ar.edu.unrc.exa.dc.tools.OracleCheckCache;
+import ar.edu.unrc.exa.dc.util.AdaptiveHeap;
+import ar.edu.unrc.exa.dc.util.StallWatchdog;
 import ar.edu.unrc.exa.dc.util.Utils;
 
 import java.io.IOException;
@@ -78,9 +84,36 @@ public class ICEBAR {
         if (ICEBARExperiment.getInstance().hasProperties()) {
             logger.info("Using custom .properties file: " + ICEBARExperiment.getInstance().propertiesPath());
         }
+        if (ICEBARExperiment.getInstance().hasBatch()) {
+            if (ICEBARExperiment.getInstance().hasModel() || ICEBARExperiment.getInstance().hasOracle() || ICEBARExperiment.getInstance().hasInitialTests() || ICEBARExperiment.getInstance().hasResume())
+                throw new IllegalArgumentException("A batch can't be combined with a model, oracle, initial tests, or checkpoint to resume, these are defined by the batch manifest");
+            BatchRunner batchRunner = new BatchRunner(ICEBARExperiment.getInstance().batchPath(), ICEBARProperties.getInstance().icebarBatchParallelism(), ICEBARExperiment.getInstance().jobs(), logger);
+            Path sharedArchives = ICEBARProperties.getInstance().toolsSharedArchives();
+            if (sharedArchives != null && !batchRunner.sharedArchive(sharedArchives))
+                logger.warning("AppCDS archives are not available for ICEBAR processes (requires Java 13 or newer and a classpath made only of jars)");
+            batchRunner.run();
+            return;
+        }
         updateICEBARExperimentTestSuiteProperty();
         BeAFix beafix = beafix();
         ARepair arepair = arepair();
+        Path sharedArchives = ICEBARProperties.getInstance().toolsSharedArchives();
+        if (sharedArchives != null) {
+            if (!arepair.sharedArchive(sharedArchives))
+                logger.warning("AppCDS archives are not available for ARepair (requires the java command to be Java 13 or newer)");
+            if (!beafix.sharedArchive(sharedArchives))
+                logger.warning("AppCDS archives are not available for BeAFix (requires the java command to be Java 13 or newer)");
+        }
+        int minimumHeap = ICEBARProperties.getInstance().toolsHeapMinimum();
+        if (minimumHeap > 0) {
+            int maximumHeap = ICEBARProperties.getInstance().toolsHeapMaximum();
+            int heapHeadroom = ICEBARProperties.getInstance().toolsHeapHeadroom();
+            arepair.heapSizing(new AdaptiveHeap(minimumHeap, maximumHeap, heapHeadroom));
+            beafix.heapSizing(new AdaptiveHeap(minimumHeap, maximumHeap, heapHeadroom), new AdaptiveHeap(minimumHeap, maximumHeap, heapHeadroom));
+        }
+        StallWatchdog stallWatchdog = new StallWatchdog(ICEBARProperties.getInstance().icebarStallWindow());
+        beafix.stallWatchdog(stallWatchdog);
+        arepair.stallWatchdog(stallWatchdog);
         int laps = ICEBARProperties.getInstance().icebarLaps();
         IterativeCEBasedAlloyRepair iterativeCEBasedAlloyRepair = new IterativeCEBasedAlloyRepair(
                 ICEBARExperiment.getInstance().modelPath(),
@@ -101,11 +134,28 @@ public class ICEBAR {
         }
         iterativeCEBasedAlloyRepair.usePrioritization(ICEBARProperties.getInstance().enableCandidatePrioritization());
         iterativeCEBasedAlloyRepair.setSearch(ICEBARProperties.getInstance().icebarSearchAlgorithm());
+        iterativeCEBasedAlloyRepair.frontierMemory(ICEBARProperties.getInstance().icebarFrontierMemory());
+        iterativeCEBasedAlloyRepair.beamWidth(ICEBARProperties.getInstance().icebarBeamWidth());
+        iterativeCEBasedAlloyRepair.bestFirstCost(BestFirstCost.fromWeights(ICEBARProperties.getInstance().icebarBestFirstWeights()));
         iterativeCEBasedAlloyRepair.allowFactsRelaxation(ICEBARProperties.getInstance().enableRelaxedFactsTestGeneration());
         iterativeCEBasedAlloyRepair.globalTrustedTests(ICEBARProperties.getInstance().globalTrustedTests());
         iterativeCEBasedAlloyRepair.forceAssertionGeneration(ICEBARProperties.getInstance().forceAssertionTestGeneration());
         iterativeCEBasedAlloyRepair.timeout(ICEBARProperties.getInstance().icebarTimeout());
+        iterativeCEBasedAlloyRepair.adaptiveCallTimeouts(ICEBARProperties.getInstance().icebarCallTimeoutFactor(), ICEBARProperties.getInstance().icebarCallTimeoutMinimumCalls());
         iterativeCEBasedAlloyRepair.keepGoingAfterARepairNPE(ICEBARProperties.getInstance().keepGoingOnARepairNPE());
+        iterativeCEBasedAlloyRepair.jobs(ICEBARExperiment.getInstance().jobs());
+        iterativeCEBasedAlloyRepair.pipelining(ICEBARProperties.getInstance().pipelining());
+        iterativeCEBasedAlloyRepair.aRepairPortfolio(ICEBARProperties.getInstance().arepairPortfolio());
+        iterativeCEBasedAlloyRepair.oracleCheckCache(new OracleCheckCache(ICEBARProperties.getInstance().oracleCheckCache()));
+        iterativeCEBasedAlloyRepair.generatedTestsCache(new GeneratedTestsCache(ICEBARProperties.getInstance().generatedTestsCache()));
+        Path aRepairResultsCache = ICEBARProperties.getInstance().arepairResultsCache();
+        if (aRepairResultsCache != null)
+            iterativeCEBasedAlloyRepair.aRepairCache(new ARepairCache(aRepairResultsCache, ICEBARProperties.getInstance().arepairResultsCacheSize() * 1024L * 1024L));
+        if (ICEBARExperiment.getInstance().hasResume()) {
+            iterativeCEBasedAlloyRepair.resume(ICEBARExperiment.getInstance().resumePath());
+        } else if (ICEBARProperties.getInstance().icebarCheckpoint() != null) {
+            iterativeCEBasedAlloyRepair.checkpoint(ICEBARProperties.getInstance().icebarCheckpoint().toAbsolutePath());
+        }
         arepair.treatPartialRepairsAsFixes(ICEBARProperties.getInstance().arepairTreatPartialRepairsAsFixes());
         startCandidateInfoFile();
         Optional<FixCandidate> fix = iterativeCEBasedAlloyRepair.repair();
@@ -116,11 +166,8 @@ public class ICEBAR {
                 "\n\tTotal tests generated: " + iterativeCEBasedAlloyRepair.totalTestsGenerated();
         if (fix.isPresent()) {
             logger.info("Fix found\n" + fix.get() +
-                    "\n\tRepaired model located at " + Paths.get(
-                            ICEBARProperties.getInstance().arepairRootFolder().toAbsolutePath().toString(),
-                            ARepair.FIX_FILE
-                    ) +
-                    "\n\tTest suite used located at " + ICEBARExperiment.getInstance().modelPath().toAbsolutePath().toString().replace(".als", "_tests.als") +
+                    "\n\tRepaired model located at " + fix.get().modelToRepair().toAbsolutePath() +
+                    "\n\tTest suite used located at " + iterativeCEBasedAlloyRepair.fixTestsPath() +
                     timingsAndARepairCalls
             );
         } else {
@@ -183,6 +230,9 @@ public class ICEBAR {
     private static final String ORACLE_KEY = "oracle";
     private static final String PROPERTIES_KEY = "properties";
     private static final String INITIAL_TESTS_KEY = "initialtests";
+    private static final String JOBS_KEY = "jobs";
+    private static final String RESUME_KEY = "resume";
+    private static final String BATCH_KEY = "batch";
     private static void setConfig(String key, String value) {
         Path path = Paths.get(value);
         switch (key.toLowerCase()) {
@@ -214,6 +264,28 @@ public class ICEBAR {
                 ICEBARExperiment.getInstance().initialTestsPath(initialTestsPath);
                 break;
             }
+            case JOBS_KEY: {
+                int jobs;
+                try {
+                    jobs = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Expecting a positive integer for jobs but got " + value + " instead");
+                }
+                ICEBARExperiment.getInstance().jobs(jobs);
+                break;
+            }
+            case RESUME_KEY: {
+                if (ICEBARExperiment.getInstance().hasResume())
+                    throw new IllegalArgumentException("Already a checkpoint to resume from has been defined (current: " + ICEBARExperiment.getInstance().resumePath().toString() + " | new: " + value + ")");
+                ICEBARExperiment.getInstance().resumePath(path.toAbsolutePath());
+                break;
+            }
+            case BATCH_KEY: {
+                if (ICEBARExperiment.getInstance().hasBatch())
+                    throw new IllegalArgumentException("Already a batch manifest has been defined (current: " + ICEBARExperiment.getInstance().batchPath().toString() + " | new: " + value + ")");
+                ICEBARExperiment.getInstance().batchPath(path.toAbsolutePath());
+                break;
+            }
             default : throw new IllegalArgumentException("Invalid configuration key (" + key + ")");
         }
     }
@@ -235,15 +307,22 @@ public class ICEBAR {
                 "  --" + ORACLE_KEY + "<path to .als file>..........................................The path to the oracle (containing predicates, assertions, and anything related to those which can't be modified to repair) (*).\n" +
                 "  --" + PROPERTIES_KEY + "<path to .properties file>...............................ICEBAR properties, please look at 'icebar.properties' as an example (**).\n" +
                 "  --" + INITIAL_TESTS_KEY + "<path to .tests file>..................................Initial tests set which will be used in conjunction with counterexample based tests (***).\n" +
+                "  --" + JOBS_KEY + "<positive integer>.................................................How many candidates will be evaluated at the same time, each by its own ARepair and BeAFix processes (****).\n" +
+                "  --" + BATCH_KEY + "<path to manifest file>...........................................Optional, runs ICEBAR for each model, oracle, properties, and initial tests listed in the manifest (see below).\n" +
+                "  --" + RESUME_KEY + "<path to checkpoint file>........................................Optional, resumes a search stopped before ending from the checkpoint file set by icebar.checkpoint.\n" +
                 "The CONFIGURATION VALUES are defined by `-D<key>=<value>`, where each key is an ICEBAR option (see --options argument)\n" +
                 "Each configuration defined in this way, will override the configuration defined by the .properties file\n" +
                 "(*)   : This is a required argument.\n" +
                 "(**)  : Default properties will be used instead (from icebar.properties).\n" +
                 "(***) : Optional argument, default is no initial tests.\n" +
+                "(****): Optional argument, default is 1 (candidates are evaluated one at a time).\n" +
                 "About initial tests:\n" +
                 "A test is defined as a predicate and a run <predicate's name> expect (0|1) command\n" +
                 "Each test must be separated by a line containing " + BeAFixResult.TEST_SEPARATOR + "\n" +
-                "Each predicate must be between a line with " + BeAFixResult.BeAFixTest.PREDICATE_START_DELIMITER.replace("\n", "")  + " and a line with " + BeAFixResult.BeAFixTest.PREDICATE_END_DELIMITER;
+                "Each predicate must be between a line with " + BeAFixResult.BeAFixTest.PREDICATE_START_DELIMITER.replace("\n", "")  + " and a line with " + BeAFixResult.BeAFixTest.PREDICATE_END_DELIMITER +
+                "About batches:\n" +
+                "Each line of the manifest defines a run as <model>" + Report.SEPARATOR + "<oracle>[" + Report.SEPARATOR + "<properties>[" + Report.SEPARATOR + "<initial tests>]], relative paths are resolved against the manifest's folder\n" +
+                "Runs are executed inside " + BatchRunner.BATCH_FOLDER + ", where results are written to " + BatchRunner.RESULTS_FILE + ", running the same manifest again only executes the runs without a result\n";
         System.out.println(help);
     }
 
@@ -276,13 +355,15 @@ public class ICEBAR {
     private static BeAFix beafix() {
         BeAFix beAFix = new BeAFix();
         beAFix.setBeAFixJar(ICEBARProperties.getInstance().beafixJar());
-        beAFix.setOutputDir(Paths.get("BeAFixOutput").toAbsolutePath());
+        beAFix.setOutputDir(Paths.get(BeAFix.BEAFIX_OUTPUT_DIR).toAbsolutePath());
         beAFix.createOutDirIfNonExistent(true);
         beAFix.testsToGenerate(ICEBARProperties.getInstance().testsToGenerateUpperBound());
         beAFix.instanceTests(ICEBARProperties.getInstance().enableBeAFixInstanceTestsGeneration());
         beAFix.noInstanceTestForNegativeTestWhenNoFacts(ICEBARProperties.getInstance().noInstanceTestForNegativeBranchWhenNoFacts());
         beAFix.modelOverrides(ICEBARProperties.getInstance().beafixModelOverridesFolder() != null);
         beAFix.modelOverridesFolder(ICEBARProperties.getInstance().beafixModelOverridesFolder());
+        beAFix.inProcess(ICEBARProperties.getInstance().beafixInProcess());
+        beAFix.workers(ICEBARProperties.getInstance().toolsWorkersJobs(), ICEBARProperties.getInstance().toolsWorkersMemory());
         return beAFix;
     }
 
@@ -300,6 +381,8 @@ public class ICEBAR {
         aRepair.setWorkingDirectory(aRepairRoot);
         aRepair.setClasspath(classpath);
         aRepair.setSatSolversPath(aRepairSatSolvers);
+        aRepair.inProcess(ICEBARProperties.getInstance().arepairInProcess());
+        aRepair.workers(ICEBARProperties.getInstance().toolsWorkersJobs(), ICEBARProperties.getInstance().toolsWorkersMemory());
         return aRepair;
     }
 
@@ -10,6 +10,9 @@ public final class ICEBARExperiment {
     private Path propertiesPath;
     private Path initialTestsPath;
     private Path failedTestSuitesFolderPath;
+    private Path resumePath;
+    private Path batchPath;
+    private int jobs = 1;
 
     private static ICEBARExperiment instance;
 
@@ -52,6 +55,24 @@ public final class ICEBARExperiment {
         this.failedTestSuitesFolderPath = failedTestSuitesFolderPath;
     }
 
+    public void resumePath(Path resumePath) {
+        if (!Utils.isValidPath(resumePath, Utils.PathCheck.FILE))
+            throw new IllegalArgumentException("invalid checkpoint path (" + resumePath + ")");
+        this.resumePath = resumePath;
+    }
+
+    public void batchPath(Path batchPath) {
+        if (!Utils.isValidPath(batchPath, Utils.PathCheck.FILE))
+            throw new IllegalArgumentException("invalid batch manifest path (" + batchPath + ")");
+        this.batchPath = batchPath;
+    }
+
+    public void jobs(int jobs) {
+        if (jobs < 1)
+            throw new IllegalArgumentException("invalid jobs value, must be at least 1 (" + jobs + ")");
+        this.jobs = jobs;
+    }
+
     public Path modelPath() {
         return modelPath;
     }
@@ -72,6 +93,18 @@ public final class ICEBARExperiment {
         return failedTestSuitesFolderPath;
     }
 
+    public Path resumePath() {
+        return resumePath;
+    }
+
+    public Path batchPath() {
+        return batchPath;
+    }
+
+    public int jobs() {
+        return jobs;
+    }
+
     public boolean hasModel() {
         return modelPath != null;
     }
@@ -88,4 +121,12 @@ public final class ICEBARExperiment {
         return initialTestsPath != null;
     }
 
+    public boolean hasResume() {
+        return resumePath != null;
+    }
+
+    public boolean hasBatch() {
+        return batchPath != null;
+    }
+
 }
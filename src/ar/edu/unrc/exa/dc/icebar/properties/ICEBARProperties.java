@@ -141,6 +141,10 @@ public class ICEBARProperties {
         return toBoolean(getProperty(BEAFIX_NO_INSTANCE_TEST_FOR_NEGATIVE_TEST_WHEN_NO_FACTS));
     }
 
+    public boolean beafixInProcess() {
+        return toBoolean(getProperty(BEAFIX_IN_PROCESS));
+    }
+
     public boolean arepairTreatPartialRepairsAsFixes() {
         return toBoolean(getProperty(AREPAIR_TREAT_PARTIAL_REPAIRS_AS_FIXES));
     }
@@ -169,6 +173,26 @@ public class ICEBARProperties {
         return toBoolean(getProperty(ICEBAR_KEEP_GOING_ON_AREPAIR_NPE));
     }
 
+    public boolean pipelining() {
+        return toBoolean(getProperty(ICEBAR_PIPELINING));
+    }
+
+    public Path generatedTestsCache() {
+        String pathValue = getProperty(ICEBAR_GENERATED_TESTS_CACHE);
+        if (pathValue.trim().isEmpty()) {
+            return null;
+        }
+        return toPath(pathValue);
+    }
+
+    public Path oracleCheckCache() {
+        String pathValue = getProperty(ICEBAR_ORACLE_CHECK_CACHE);
+        if (pathValue.trim().isEmpty()) {
+            return null;
+        }
+        return toPath(pathValue);
+    }
+
     public boolean saveAllTestSuites() {
         return toBoolean(getProperty(ICEBAR_SAVE_ALL_TEST_SUITES));
     }
@@ -193,6 +217,58 @@ public class ICEBARProperties {
         return toPath(getProperty(AREPAIR_ROOT));
     }
 
+    public List<String> arepairPortfolio() {
+        String portfolioValue = getProperty(AREPAIR_PORTFOLIO);
+        if (portfolioValue.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(portfolioValue.split(",")).map(String::trim).collect(Collectors.toList());
+    }
+
+    public Path arepairResultsCache() {
+        String pathValue = getProperty(AREPAIR_RESULTS_CACHE);
+        if (pathValue.trim().isEmpty()) {
+            return null;
+        }
+        return toPath(pathValue);
+    }
+
+    public int arepairResultsCacheSize() {
+        return toNumber(getProperty(AREPAIR_RESULTS_CACHE_SIZE));
+    }
+
+    public int arepairInProcess() {
+        return toNumber(getProperty(AREPAIR_IN_PROCESS));
+    }
+
+    public int toolsWorkersJobs() {
+        return toNumber(getProperty(TOOLS_WORKERS_JOBS));
+    }
+
+    public int toolsWorkersMemory() {
+        return toNumber(getProperty(TOOLS_WORKERS_MEMORY));
+    }
+
+    public int toolsHeapMinimum() {
+        return toNumber(getProperty(TOOLS_HEAP_MINIMUM));
+    }
+
+    public int toolsHeapMaximum() {
+        return toNumber(getProperty(TOOLS_HEAP_MAXIMUM));
+    }
+
+    public int toolsHeapHeadroom() {
+        return toNumber(getProperty(TOOLS_HEAP_HEADROOM));
+    }
+
+    public Path toolsSharedArchives() {
+        String pathValue = getProperty(TOOLS_SHARED_ARCHIVES);
+        if (pathValue.trim().isEmpty()) {
+            return null;
+        }
+        return toPath(pathValue);
+    }
+
     public int icebarLaps() {
         return toNumber(getProperty(ICEBAR_LAPS));
     }
@@ -201,11 +277,47 @@ public class ICEBARProperties {
         return toNumber(getProperty(ICEBAR_TIMEOUT));
     }
 
-    public enum IcebarSearchAlgorithm {BFS, DFS}
+    public int icebarCallTimeoutFactor() {
+        return toNumber(getProperty(ICEBAR_CALL_TIMEOUT_FACTOR));
+    }
+
+    public int icebarCallTimeoutMinimumCalls() {
+        return toNumber(getProperty(ICEBAR_CALL_TIMEOUT_MINIMUM_CALLS));
+    }
+
+    public int icebarStallWindow() {
+        return toNumber(getProperty(ICEBAR_STALL_WINDOW));
+    }
+
+    public int icebarBatchParallelism() {
+        return toNumber(getProperty(ICEBAR_BATCH_PARALLELISM));
+    }
+
+    public Path icebarCheckpoint() {
+        String pathValue = getProperty(ICEBAR_CHECKPOINT);
+        if (pathValue.trim().isEmpty()) {
+            return null;
+        }
+        return toPath(pathValue);
+    }
+
+    public enum IcebarSearchAlgorithm {BFS, DFS, BEST_FIRST, IDDFS, BEAM}
     public IcebarSearchAlgorithm icebarSearchAlgorithm() {
         return IcebarSearchAlgorithm.valueOf(getProperty(ICEBAR_SEARCH).toUpperCase());
     }
 
+    public int icebarFrontierMemory() {
+        return toNumber(getProperty(ICEBAR_SEARCH_FRONTIER_MEMORY));
+    }
+
+    public int icebarBeamWidth() {
+        return toNumber(getProperty(ICEBAR_SEARCH_BEAM_WIDTH));
+    }
+
+    public String icebarBestFirstWeights() {
+        return getProperty(ICEBAR_SEARCH_BEST_FIRST_WEIGHTS);
+    }
+
     public enum IcebarLoggingLevel {
         OFF {
             @Override
@@ -1,5 +1,8 @@
 package ar.edu.unrc.exa.dc.icebar.properties;
 
+import ar.edu.unrc.exa.dc.search.BestFirstCost;
+import ar.edu.unrc.exa.dc.tools.ARepair;
+
 import java.io.File;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
@@ -24,13 +27,37 @@ class ICEBARPropertiesUtils {
                 return Optional.empty();
             case BEAFIX_TESTS : return Optional.of(Integer.toString(1));
             case BEAFIX_MODEL_OVERRIDES_FOLDER : return Optional.of("modelOverrides");
+            case AREPAIR_PORTFOLIO :
+            case AREPAIR_RESULTS_CACHE :
+            case ICEBAR_ORACLE_CHECK_CACHE :
+            case ICEBAR_GENERATED_TESTS_CACHE :
+            case ICEBAR_CHECKPOINT :
+            case TOOLS_SHARED_ARCHIVES :
+                return Optional.of("");
+            case AREPAIR_RESULTS_CACHE_SIZE : return Optional.of(Integer.toString(1024));
+            case AREPAIR_IN_PROCESS :
+            case TOOLS_WORKERS_JOBS :
+            case TOOLS_WORKERS_MEMORY :
+            case TOOLS_HEAP_MINIMUM :
+                return Optional.of(Integer.toString(0));
+            case TOOLS_HEAP_MAXIMUM : return Optional.of(Integer.toString(16 * 1024));
+            case TOOLS_HEAP_HEADROOM : return Optional.of(Integer.toString(50));
             case ICEBAR_LAPS : return Optional.of(Integer.toString(20));
             case ICEBAR_PRIORIZATION :
             case ICEBAR_GLOBAL_TRUSTED_TESTS :
             case ICEBAR_SAVE_ALL_TEST_SUITES:
+            case ICEBAR_PIPELINING :
+            case BEAFIX_IN_PROCESS :
                 return Optional.of(Boolean.toString(false));
             case ICEBAR_SEARCH : return Optional.of(ICEBARProperties.IcebarSearchAlgorithm.BFS.toString());
+            case ICEBAR_SEARCH_BEAM_WIDTH : return Optional.of(Integer.toString(10));
+            case ICEBAR_SEARCH_FRONTIER_MEMORY : return Optional.of(Integer.toString(0));
+            case ICEBAR_SEARCH_BEST_FIRST_WEIGHTS : return Optional.of(BestFirstCost.DEFAULT_WEIGHTS);
             case ICEBAR_TIMEOUT : return Optional.of(Integer.toString(60));
+            case ICEBAR_CALL_TIMEOUT_FACTOR : return Optional.of(Integer.toString(0));
+            case ICEBAR_CALL_TIMEOUT_MINIMUM_CALLS : return Optional.of(Integer.toString(5));
+            case ICEBAR_BATCH_PARALLELISM : return Optional.of(Integer.toString(1));
+            case ICEBAR_STALL_WINDOW : return Optional.of(Integer.toString(0));
             case ICEBAR_LOGGING_FILE_VERBOSITY: return Optional.of(ICEBARProperties.IcebarLoggingLevel.FINE.toString());
             case ICEBAR_LOGGING_CONSOLE_VERBOSITY: return Optional.of(ICEBARProperties.IcebarLoggingLevel.INFO.toString());
         }
@@ -50,15 +77,39 @@ class ICEBARPropertiesUtils {
             case ICEBAR_UPDATE_AREPAIR_SCOPE_FROM_ORACLE :
             case ICEBAR_KEEP_GOING_ON_AREPAIR_NPE :
             case ICEBAR_SAVE_ALL_TEST_SUITES:
+            case ICEBAR_PIPELINING :
+            case BEAFIX_IN_PROCESS :
                 return isBoolean(value);
             case BEAFIX_JAR : return isPath(value, PathType.JAR, false);
-            case BEAFIX_TESTS : return isNumber(value, false);
+            case BEAFIX_TESTS :
+            case ICEBAR_SEARCH_BEAM_WIDTH :
+            case AREPAIR_RESULTS_CACHE_SIZE :
+            case ICEBAR_CALL_TIMEOUT_MINIMUM_CALLS :
+            case ICEBAR_BATCH_PARALLELISM :
+            case TOOLS_HEAP_MAXIMUM :
+                return isNumber(value, false);
             case BEAFIX_MODEL_OVERRIDES_FOLDER : return value == null || value.isEmpty() || isPath(value, PathType.FOLDER, false);
             case AREPAIR_ROOT : return isPath(value, PathType.FOLDER,true);
+            case AREPAIR_PORTFOLIO : return isValidARepairPortfolio(value);
+            case AREPAIR_RESULTS_CACHE :
+            case ICEBAR_ORACLE_CHECK_CACHE :
+            case ICEBAR_GENERATED_TESTS_CACHE :
+            case TOOLS_SHARED_ARCHIVES :
+                return value == null || value.trim().isEmpty() || isPath(value, PathType.NEW_OR_EXISTING_FOLDER, false);
+            case ICEBAR_CHECKPOINT : return value == null || value.trim().isEmpty() || isPath(value, PathType.NEW_OR_EXISTING_FILE, false);
             case ICEBAR_LAPS :
             case ICEBAR_TIMEOUT :
+            case ICEBAR_CALL_TIMEOUT_FACTOR :
+            case ICEBAR_STALL_WINDOW :
+            case AREPAIR_IN_PROCESS :
+            case TOOLS_WORKERS_JOBS :
+            case TOOLS_WORKERS_MEMORY :
+            case TOOLS_HEAP_MINIMUM :
+            case TOOLS_HEAP_HEADROOM :
+            case ICEBAR_SEARCH_FRONTIER_MEMORY :
                 return isNumber(value,true);
             case ICEBAR_SEARCH : return isValidSearchAlgorithm(value);
+            case ICEBAR_SEARCH_BEST_FIRST_WEIGHTS : return BestFirstCost.isValidWeights(value);
             case ICEBAR_LOGGING_FILE_VERBOSITY:
             case ICEBAR_LOGGING_CONSOLE_VERBOSITY: {
                 return value != null && (ICEBARProperties.IcebarLoggingLevel.OFF.toString().compareToIgnoreCase(value) == 0
@@ -92,10 +143,28 @@ class ICEBARPropertiesUtils {
         if (stringRep == null) {
             return false;
         }
-        return ICEBARProperties.IcebarSearchAlgorithm.DFS.toString().compareToIgnoreCase(stringRep) == 0 || ICEBARProperties.IcebarSearchAlgorithm.BFS.toString().compareToIgnoreCase(stringRep) == 0;
+        for (ICEBARProperties.IcebarSearchAlgorithm searchAlgorithm : ICEBARProperties.IcebarSearchAlgorithm.values()) {
+            if (searchAlgorithm.toString().compareToIgnoreCase(stringRep) == 0)
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isValidARepairPortfolio(String stringRep) {
+        if (stringRep == null) {
+            return false;
+        }
+        if (stringRep.trim().isEmpty()) {
+            return true;
+        }
+        for (String configuration : stringRep.split(",")) {
+            if (!ARepair.isValidConfiguration(configuration))
+                return false;
+        }
+        return true;
     }
 
-    private enum PathType {JAR, FOLDER}
+    private enum PathType {JAR, FOLDER, NEW_OR_EXISTING_FOLDER, NEW_OR_EXISTING_FILE}
     private static boolean isPath(String stringRep, PathType pathType, boolean absolute) {
         if (stringRep == null) {
             return false;
@@ -115,6 +184,12 @@ class ICEBARPropertiesUtils {
         if (pathType.equals(PathType.FOLDER)) {
             return file.isDirectory();
         }
+        if (pathType.equals(PathType.NEW_OR_EXISTING_FOLDER)) {
+            return file.isDirectory() || !file.exists();
+        }
+        if (pathType.equals(PathType.NEW_OR_EXISTING_FILE)) {
+            return file.isFile() || !file.exists();
+        }
         return false;
     }
 
@@ -67,6 +67,18 @@ public enum Property {
                 return "[BOOLEAN] When set to true, this will prevent generation of tests like '<INSTANCE> expect 1' for '<INSTANCE> && <PRED> expect 0' tests when the model has no facts.";
             }
         },
+        BEAFIX_IN_PROCESS {
+            @Override
+            public String getKey() { return BEAFIX_PREFIX + ".inprocess"; }
+
+            @Override
+            public String getDescription() {
+                return "[BOOLEAN] Whether to run BeAFix calls (checks and test generations) inside ICEBAR's JVM (`true`), or as a separate process for each call (`false`)." +
+                        "\n\tSaves JVM startup and reading Alloy's classes on each call (each call still gets a new class loader, since Alloy keeps static state), calls made while another in-process BeAFix call is running are still run as separate processes." +
+                        "\n\tIn-process calls use ICEBAR's heap, from Java 18 onwards ICEBAR must be started with -Djava.security.manager=allow." +
+                        "\n\tWhile an in-process call runs, ICEBAR's security manager, System.out, and System.err are replaced (and restored afterwards).";
+            }
+        },
         AREPAIR_ROOT {
             @Override
             public String getKey() {
@@ -90,6 +102,105 @@ public enum Property {
                 return "[BOOLEAN] When true, partial fixes found by ARepair will be treated as fixes. We suggest to enable this option.";
             }
         },
+        AREPAIR_PORTFOLIO {
+            @Override
+            public String getKey() { return AREPAIR_PREFIX + ".portfolio";}
+
+            @Override
+            public String getDescription() {
+                return "[STRING] Comma separated list of ARepair configurations to run at the same time for each candidate, the first one finding a fix is used and the rest are stopped." +
+                        "\n\tEach configuration has the form strategy[:minimumCost[:maxTryPerHole[:partitionNum[:maxTryPerDepth]]]] (e.g.: base-choice,all-combinations:2), where strategy is either base-choice or all-combinations. When empty, a single ARepair process is used.";
+            }
+        },
+        AREPAIR_RESULTS_CACHE {
+            @Override
+            public String getKey() { return AREPAIR_PREFIX + ".resultscache";}
+
+            @Override
+            public String getDescription() {
+                return "[PATH] Folder where ARepair results are stored and reused between ICEBAR runs, results are identified by the model, the tests, and the ARepair settings used." +
+                        "\n\tThe folder is created if it doesn't exist. When empty, ARepair results are only reused within the same run.";
+            }
+        },
+        AREPAIR_RESULTS_CACHE_SIZE {
+            @Override
+            public String getKey() { return AREPAIR_PREFIX + ".resultscache.size";}
+
+            @Override
+            public String getDescription() {
+                return "[POSITIVE INTEGER] Maximum size, in MB, of the ARepair results cache, the least recently used results are deleted when exceeded.";
+            }
+        },
+        AREPAIR_IN_PROCESS {
+            @Override
+            public String getKey() { return AREPAIR_PREFIX + ".inprocess";}
+
+            @Override
+            public String getDescription() {
+                return "[NON NEGATIVE INTEGER] How many ARepair calls share a class loader when running ARepair inside ICEBAR's JVM, a `0` value runs ARepair as a separate process for each call." +
+                        "\n\tSaves JVM startup and class loading on each call, calls made while another in-process call is running are still run as separate processes." +
+                        "\n\tIn-process calls use ICEBAR's heap and native libraries path (start ICEBAR with -Djava.library.path pointing to ARepair's sat-solvers folder to use them), from Java 18 onwards ICEBAR must be started with -Djava.security.manager=allow." +
+                        "\n\tWhile an in-process call runs, ICEBAR's security manager, System.out, and System.err are replaced (and restored afterwards).";
+            }
+        },
+        TOOLS_WORKERS_JOBS {
+            @Override
+            public String getKey() { return TOOLS_PREFIX + ".workers.jobs"; }
+
+            @Override
+            public String getDescription() {
+                return "[NON NEGATIVE INTEGER] How many calls a long-lived ARepair or BeAFix worker JVM runs before being replaced by a new one, a `0` value starts a new JVM for each call." +
+                        "\n\tWorkers keep calls isolated from ICEBAR (a crash only takes down its worker) while saving JVM startup, class loading, and JIT warm-up. Calls that run inside ICEBAR's JVM (see the inprocess properties) don't use workers.";
+            }
+        },
+        TOOLS_WORKERS_MEMORY {
+            @Override
+            public String getKey() { return TOOLS_PREFIX + ".workers.memory"; }
+
+            @Override
+            public String getDescription() {
+                return "[NON NEGATIVE INTEGER] Resident memory, in MB, after which an ARepair or BeAFix worker JVM is replaced by a new one, a `0` value means no limit." +
+                        "\n\tWorkers only commit their heap as they use it (up to icebar.tools.heap.maximum when icebar.tools.heap.minimum is set, or ARepair's memory otherwise), so a worker that grew a large heap keeps it until it's replaced.";
+            }
+        },
+        TOOLS_HEAP_MINIMUM {
+            @Override
+            public String getKey() { return TOOLS_PREFIX + ".heap.minimum"; }
+
+            @Override
+            public String getDescription() {
+                return "[NON NEGATIVE INTEGER] Minimum heap, in MB, for ARepair and BeAFix processes when their heap is sized from the peak memory of previous calls, a `0` value disables it (ARepair always gets 16GB, BeAFix the JVM's default)." +
+                        "\n\tEach call gets its expected peak memory (a base, the smallest recent peak, plus a slope for the size of its model and tests, learned from recent calls) plus a headroom, and a call running out of memory is retried with twice its heap, up to icebar.tools.heap.maximum.";
+            }
+        },
+        TOOLS_HEAP_MAXIMUM {
+            @Override
+            public String getKey() { return TOOLS_PREFIX + ".heap.maximum"; }
+
+            @Override
+            public String getDescription() {
+                return "[POSITIVE INTEGER] Maximum heap, in MB, for ARepair and BeAFix processes when their heap is sized from the peak memory of previous calls. Calls start with the minimum heap until a first call succeeds, and peaks of calls run with the maximum heap are not used.";
+            }
+        },
+        TOOLS_HEAP_HEADROOM {
+            @Override
+            public String getKey() { return TOOLS_PREFIX + ".heap.headroom"; }
+
+            @Override
+            public String getDescription() {
+                return "[NON NEGATIVE INTEGER] How much larger, as a percentage, the heap of ARepair and BeAFix processes is than the peak memory expected for them, when their heap is sized from the peak memory of previous calls.";
+            }
+        },
+        TOOLS_SHARED_ARCHIVES {
+            @Override
+            public String getKey() { return TOOLS_PREFIX + ".sharedarchives"; }
+
+            @Override
+            public String getDescription() {
+                return "[PATH] Folder where AppCDS (Class Data Sharing) archives for ARepair, BeAFix, and batch ICEBAR processes are kept, sparing each process the loading of Alloy's and the tools' classes. When empty, no archives are used." +
+                        "\n\tAn archive is created by the first process run without one, and a new one is created when a jar or the java version change. Requires Java 13 or newer (the `java` command for ARepair and BeAFix) and classpaths made only of jars.";
+            }
+        },
         ICEBAR_LAPS {
             @Override
             public String getKey() { return ICEBAR_PREFIX + ".laps"; }
@@ -115,7 +226,37 @@ public enum Property {
 
             @Override
             public String getDescription() {
-                return "[DFS|BFS] Base search algorithm, either Depth First Search (DFS) or Breadth First Search (BFS).";
+                return "[DFS|BFS|BEST_FIRST|IDDFS|BEAM] Base search algorithm, either Depth First Search (DFS), Breadth First Search (BFS), Best First Search (BEST_FIRST), Iterative Deepening Depth First Search (IDDFS), or Beam Search (BEAM)." +
+                        "\n\tWhen using BEST_FIRST, candidates are ranked by the cost defined by icebar.search.bestfirst.weights, and icebar.priorization is ignored. When using IDDFS, each iteration reuses the ARepair and BeAFix results of candidates evaluated in previous iterations, and icebar.priorization is ignored. When using BEAM, at most icebar.search.beamwidth candidates are kept for each depth, and icebar.priorization is ignored.";
+            }
+        },
+        ICEBAR_SEARCH_FRONTIER_MEMORY {
+            @Override
+            public String getKey() { return ICEBAR_SEARCH_PREFIX + ".frontiermemory"; }
+
+            @Override
+            public String getDescription() {
+                return "[NON NEGATIVE INTEGER] Estimated memory, in megabytes, available for candidates waiting to be evaluated, candidates exceeding it are stored in a memory-mapped file (icebar_frontier.spill) until needed. A value of `0` keeps all candidates in memory." +
+                        "\n\tThis option is ignored when using IDDFS, BEAM, or more than one job.";
+            }
+        },
+        ICEBAR_SEARCH_BEAM_WIDTH {
+            @Override
+            public String getKey() { return ICEBAR_SEARCH_PREFIX + ".beamwidth"; }
+
+            @Override
+            public String getDescription() {
+                return "[POSITIVE INTEGER] How many candidates are kept for each depth when using BEAM search, candidates are scored by repaired properties and then by local tests (fewer is better), the rest are discarded.";
+            }
+        },
+        ICEBAR_SEARCH_BEST_FIRST_WEIGHTS {
+            @Override
+            public String getKey() { return ICEBAR_SEARCH_PREFIX + ".bestfirst.weights"; }
+
+            @Override
+            public String getDescription() {
+                return "[WEIGHTS] Comma separated non negative weights (depth,failingRatio,localTests,untrustedTests) used to calculate a candidate's cost when using BEST_FIRST search, candidates with lower cost are evaluated first." +
+                        "\n\tThe cost adds the candidate's depth, the ratio of oracle properties not satisfied by the parent's spurious fix, the candidate's local tests, and its local untrusted tests, each multiplied by its weight.";
             }
         },
         ICEBAR_ENABLE_RELAXEDFACTS_GENERATION {
@@ -153,7 +294,60 @@ public enum Property {
 
             @Override
             public String getDescription() {
-                return "[NON NEGATIVE INTEGER] Timeout (in minutes) for ICEBAR, a `0` value means no timeout.";
+                return "[NON NEGATIVE INTEGER] Timeout (in minutes) for ICEBAR, a `0` value means no timeout." +
+                        "\n\tARepair and BeAFix processes still running when the timeout is reached are destroyed.";
+            }
+        },
+        ICEBAR_CALL_TIMEOUT_FACTOR {
+            @Override
+            public String getKey() { return ICEBAR_PREFIX + ".calltimeout.factor"; }
+
+            @Override
+            public String getDescription() {
+                return "[NON NEGATIVE INTEGER] Factor k for per-call timeouts, a `0` value disables them." +
+                        "\n\tEach ARepair call, BeAFix check, and BeAFix test generation is given the largest of k times the median and the 95th percentile of the durations of previous calls of the same kind." +
+                        "\n\tA call exceeding its budget is destroyed and the candidate being evaluated is discarded, the search continues with the remaining candidates.";
+            }
+        },
+        ICEBAR_CALL_TIMEOUT_MINIMUM_CALLS {
+            @Override
+            public String getKey() { return ICEBAR_PREFIX + ".calltimeout.minimumcalls"; }
+
+            @Override
+            public String getDescription() {
+                return "[POSITIVE INTEGER] How many calls of each kind must end before per-call timeouts are enforced for that kind of call.";
+            }
+        },
+        ICEBAR_STALL_WINDOW {
+            @Override
+            public String getKey() { return ICEBAR_PREFIX + ".stallwindow"; }
+
+            @Override
+            public String getDescription() {
+                return "[NON NEGATIVE INTEGER] Seconds an ARepair or BeAFix process can go without writing output and without using CPU time before it is considered stalled, a `0` value disables stall detection." +
+                        "\n\tA stalled process is destroyed and the candidate being evaluated is discarded, the search continues with the remaining candidates." +
+                        "\n\tCPU time is read from /proc, where it's not available processes are never considered stalled.";
+            }
+        },
+        ICEBAR_CHECKPOINT {
+            @Override
+            public String getKey() { return ICEBAR_PREFIX + ".checkpoint"; }
+
+            @Override
+            public String getDescription() {
+                return "[PATH] File where the search state is journaled as candidates are evaluated, an empty value disables checkpoints." +
+                        "\n\tA stopped search can be resumed from this file by running ICEBAR again with the same model, oracle, and search algorithm, and `--resume <file>`." +
+                        "\n\tCheckpoints are not supported by IDDFS.";
+            }
+        },
+        ICEBAR_BATCH_PARALLELISM {
+            @Override
+            public String getKey() { return ICEBAR_PREFIX + ".batch.parallelism"; }
+
+            @Override
+            public String getDescription() {
+                return "[POSITIVE INTEGER] How many ICEBAR runs are executed at the same time when running a batch (`--batch <manifest>`)." +
+                        "\n\tEach run uses its own ARepair and BeAFix processes, `--jobs` still defines how many candidates each run evaluates at the same time.";
             }
         },
         ICEBAR_UPDATE_AREPAIR_SCOPE_FROM_ORACLE {
@@ -203,6 +397,36 @@ public enum Property {
                         "\n\tFINE: everything is logged";
             }
         },
+        ICEBAR_PIPELINING {
+            @Override
+            public String getKey() { return ICEBAR_PREFIX + ".pipelining"; }
+
+            @Override
+            public String getDescription() {
+                return "[BOOLEAN] When true, ARepair will start repairing the next candidate while BeAFix checks and generates tests for the current one." +
+                        "\n\tThis option is ignored when more than one job is used, and when using DFS the order in which candidates are evaluated is only approximately preserved.";
+            }
+        },
+        ICEBAR_ORACLE_CHECK_CACHE {
+            @Override
+            public String getKey() { return ICEBAR_PREFIX + ".oraclecheckcache"; }
+
+            @Override
+            public String getDescription() {
+                return "[PATH] Folder where the results of checking fixes against the property-based oracle are stored and reused between ICEBAR runs." +
+                        "\n\tThe folder is created if it doesn't exist. When empty, these results are only reused within the same run.";
+            }
+        },
+        ICEBAR_GENERATED_TESTS_CACHE {
+            @Override
+            public String getKey() { return ICEBAR_PREFIX + ".generatedtestscache"; }
+
+            @Override
+            public String getDescription() {
+                return "[PATH] Folder where the tests generated from spurious fixes are stored and reused between ICEBAR runs." +
+                        "\n\tThe folder is created if it doesn't exist. When empty, generated tests are only reused within the same run.";
+            }
+        },
         ICEBAR_SAVE_ALL_TEST_SUITES {
             @Override
             public String getKey() {
@@ -217,8 +441,16 @@ public enum Property {
         ;
         private static final String ICEBAR_PREFIX = "icebar";
         private static final String ICEBAR_SEARCH_PREFIX = ICEBAR_PREFIX + ".search";
-        private static final String BEAFIX_PREFIX = ICEBAR_PREFIX + ".tools.beafix";
-        private static final String AREPAIR_PREFIX = ICEBAR_PREFIX + ".tools.arepair";
+        private static final String TOOLS_PREFIX = ICEBAR_PREFIX + ".tools";
+        private static final String BEAFIX_PREFIX = TOOLS_PREFIX + ".beafix";
+        private static final String AREPAIR_PREFIX = TOOLS_PREFIX + ".arepair";
         public abstract String getKey();
         public abstract String getDescription();
+
+        /**
+         * @return {@code true} if this property's value is a path that may be relative to the working directory.
+         */
+        public boolean isPath() {
+            return getDescription().startsWith("[PATH]");
+        }
 }
@@ -0,0 +1,90 @@
+package ar.edu.unrc.exa.dc.search;
+
+import java.util.*;
+
+/**
+ * A search frontier for beam search. Candidates are popped by depth, shallower first, and at most {@code width}
+ * candidates are admitted for each depth. Candidates are scored by repaired properties (more is better) and then by
+ * local tests (fewer is better); when a depth is full, a new candidate replaces the worst candidate still waiting at
+ * that depth if it has a better score, and is discarded otherwise.
+ */
+public class BeamCandidateSpace implements SearchFrontier {
+
+    private final int width;
+    private final TreeMap<Integer, TreeSet<Entry>> beams = new TreeMap<>();
+    private final Map<Integer, Integer> admitted = new HashMap<>();
+    private long pushed = 0;
+    private int size = 0;
+    private int discarded = 0;
+
+    private static final Comparator<Entry> BEST_FIRST = Comparator
+            .comparingInt((Entry e) -> e.candidate.repairedProperties()).reversed()
+            .thenComparingInt(e -> e.candidate.untrustedTests().size() + e.candidate.trustedTests().size())
+            .thenComparingLong(e -> e.order);
+
+    private static final class Entry {
+
+        private final long order;
+        private final FixCandidate candidate;
+
+        private Entry(long order, FixCandidate candidate) {
+            this.order = order;
+            this.candidate = candidate;
+        }
+
+    }
+
+    public BeamCandidateSpace(int width) {
+        if (width <= 0)
+            throw new IllegalArgumentException("non positive beam width (" + width + ")");
+        this.width = width;
+    }
+
+    @Override
+    public void push(int worker, FixCandidate candidate) {
+        int depth = candidate.depth();
+        TreeSet<Entry> beam = beams.computeIfAbsent(depth, d -> new TreeSet<>(BEST_FIRST));
+        Entry entry = new Entry(pushed++, candidate);
+        int admittedForDepth = admitted.getOrDefault(depth, 0);
+        if (admittedForDepth < width) {
+            beam.add(entry);
+            admitted.put(depth, admittedForDepth + 1);
+            size++;
+        } else if (!beam.isEmpty() && BEST_FIRST.compare(entry, beam.last()) < 0) {
+            beam.pollLast();
+            beam.add(entry);
+            discarded++;
+        } else {
+            discarded++;
+        }
+    }
+
+    @Override
+    public FixCandidate poll(int worker) {
+        while (!beams.isEmpty()) {
+            Map.Entry<Integer, TreeSet<Entry>> shallowest = beams.firstEntry();
+            Entry entry = shallowest.getValue().pollFirst();
+            if (entry != null) {
+                size--;
+                return entry.candidate;
+            }
+            beams.remove(shallowest.getKey());
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public int discarded() {
+        return discarded;
+    }
+
+}
@@ -0,0 +1,70 @@
+package ar.edu.unrc.exa.dc.search;
+
+/**
+ * The cost used to rank candidates when using best first search, lower costs are evaluated first.
+ * <p>
+ * The cost is a weighted sum of the candidate's depth, the ratio of oracle properties not satisfied by the parent's
+ * spurious fix, the candidate's local tests, and the candidate's local untrusted tests.
+ */
+public final class BestFirstCost {
+
+    public static final String DEFAULT_WEIGHTS = "1,10,0.5,0.5";
+
+    private final double depthWeight;
+    private final double failingRatioWeight;
+    private final double localTestsWeight;
+    private final double untrustedTestsWeight;
+
+    /**
+     * Parses weights of the form {@code depth,failingRatio,localTests,untrustedTests} (e.g.: {@value #DEFAULT_WEIGHTS}).
+     */
+    public static BestFirstCost fromWeights(String weights) {
+        if (weights == null)
+            throw new IllegalArgumentException("null weights");
+        String[] values = weights.split(",");
+        if (values.length != 4)
+            throw new IllegalArgumentException("Expecting four weights, got (" + weights + ")");
+        double[] parsed = new double[4];
+        for (int i = 0; i < values.length; i++) {
+            try {
+                parsed[i] = Double.parseDouble(values[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid weight (" + values[i] + ")", e);
+            }
+            if (parsed[i] < 0 || Double.isNaN(parsed[i]) || Double.isInfinite(parsed[i]))
+                throw new IllegalArgumentException("Weights must be non negative finite numbers (" + values[i] + ")");
+        }
+        return new BestFirstCost(parsed[0], parsed[1], parsed[2], parsed[3]);
+    }
+
+    public static boolean isValidWeights(String weights) {
+        try {
+            fromWeights(weights);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private BestFirstCost(double depthWeight, double failingRatioWeight, double localTestsWeight, double untrustedTestsWeight) {
+        this.depthWeight = depthWeight;
+        this.failingRatioWeight = failingRatioWeight;
+        this.localTestsWeight = localTestsWeight;
+        this.untrustedTestsWeight = untrustedTestsWeight;
+    }
+
+    public double of(FixCandidate candidate) {
+        int untrustedTests = candidate.untrustedTests().size();
+        int localTests = untrustedTests + candidate.trustedTests().size();
+        return depthWeight * candidate.depth() +
+                failingRatioWeight * (1 - candidate.repairedPropertiesRatio()) +
+                localTestsWeight * localTests +
+                untrustedTestsWeight * untrustedTests;
+    }
+
+    @Override
+    public String toString() {
+        return depthWeight + "," + failingRatioWeight + "," + localTestsWeight + "," + untrustedTestsWeight;
+    }
+
+}
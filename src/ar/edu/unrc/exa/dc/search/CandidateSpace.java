@@ -1,137 +1,150 @@
 package ar.edu.unrc.exa.dc.search;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
-
-public class CandidateSpace {
-
-    private final boolean usePriority;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The search frontier, a single ordered set sorted by priority (the candidate's repaired properties when using
+ * prioritization, the opposite of the candidate's cost when using best first search, the same for all candidates
+ * otherwise). Candidates with the same priority are popped in insertion order when working as a queue, and in reverse
+ * insertion order when working as a stack.
+ * <p>
+ * When a memory budget is set (see {@link #spillTo(Path, long)}), and the estimated size of the candidates in memory
+ * exceeds it, the candidates that would be popped last are moved to a spill file, and read back when they become the
+ * next candidate to pop. The order in which candidates are popped is the same with or without a spill file.
+ */
+public class CandidateSpace implements SearchFrontier {
+
+    private static final long CANDIDATE_BYTES_ESTIMATE = 512;
+    private static final long TEST_BYTES_ESTIMATE = 128;
+
+    private final ToDoubleFunction<FixCandidate> priority;
     private final boolean useQueue;
-    private final Map<Integer, Stack<FixCandidate>> priorityStack;
-    private final Map<Integer, Queue<FixCandidate>> priorityQueue;
+    private final Comparator<Entry> order;
+    private final TreeSet<Entry> inMemory;
+    private final TreeSet<Entry> spilled;
+    private long pushed = 0;
+    private long inMemoryBytes = 0;
+    private long memoryBudget = 0;
+    private CandidateSpillFile spillFile = null;
     private static final int NON_PRIORITY_INDEX = 0;
 
+    private static final class Entry {
+
+        private final double priority;
+        private final long order;
+        private final FixCandidate candidate;
+        private final CandidateSpillFile.Record record;
+
+        private Entry(double priority, long order, FixCandidate candidate, CandidateSpillFile.Record record) {
+            this.priority = priority;
+            this.order = order;
+            this.candidate = candidate;
+            this.record = record;
+        }
+
+    }
+
     public static CandidateSpace normalStack() {
-        return new CandidateSpace(false, false);
+        return new CandidateSpace(c -> NON_PRIORITY_INDEX, false);
     }
 
-    public static CandidateSpace priorityStack() { return new CandidateSpace(true, false); }
+    public static CandidateSpace priorityStack() { return new CandidateSpace(FixCandidate::repairedProperties, false); }
 
     public static CandidateSpace normalQueue() {
-        return new CandidateSpace(false, true);
+        return new CandidateSpace(c -> NON_PRIORITY_INDEX, true);
     }
 
     public static CandidateSpace priorityQueue() {
-        return new CandidateSpace(true, true);
+        return new CandidateSpace(FixCandidate::repairedProperties, true);
     }
 
-    private CandidateSpace(boolean usePriority, boolean useQueue) {
-        this.usePriority = usePriority;
+    public static CandidateSpace bestFirst(BestFirstCost cost) {
+        return new CandidateSpace(c -> -cost.of(c), true);
+    }
+
+    private CandidateSpace(ToDoubleFunction<FixCandidate> priority, boolean useQueue) {
+        this.priority = priority;
         this.useQueue = useQueue;
-        if (useQueue) {
-            priorityStack = null;
-            priorityQueue = new HashMap<>();
-        } else {
-            priorityStack = new HashMap<>();
-            priorityQueue = null;
-        }
+        Comparator<Entry> byPriority = Comparator.comparingDouble((Entry e) -> e.priority).reversed();
+        Comparator<Entry> byOrder = Comparator.comparingLong(e -> e.order);
+        this.order = byPriority.thenComparing(useQueue?byOrder:byOrder.reversed());
+        this.inMemory = new TreeSet<>(order);
+        this.spilled = new TreeSet<>(order);
+    }
+
+    /**
+     * Keeps at most (an estimate of) {@code memoryBudget} bytes of candidates in memory, using {@code file} to store
+     * the rest.
+     */
+    public void spillTo(Path file, long memoryBudget) throws IOException {
+        if (memoryBudget <= 0)
+            throw new IllegalArgumentException("non positive memory budget (" + memoryBudget + ")");
+        if (spillFile != null)
+            throw new IllegalStateException("A spill file is already being used");
+        this.spillFile = new CandidateSpillFile(file);
+        this.memoryBudget = memoryBudget;
+    }
+
+    public void deleteSpillFile() throws IOException {
+        if (spillFile != null)
+            spillFile.delete();
+        spillFile = null;
+        spilled.clear();
     }
 
+    public int spilledCandidates() {
+        return spilled.size();
+    }
+
+    @Override
     public boolean isEmpty() {
-        if (useQueue) {
-            assert priorityQueue != null;
-            for (Queue<FixCandidate> queue : priorityQueue.values()) {
-                if (!queue.isEmpty())
-                    return false;
-            }
-        } else {
-            assert priorityStack != null;
-            for (Stack<FixCandidate> stack : priorityStack.values()) {
-                if (!stack.isEmpty())
-                    return false;
-            }
-        }
-        return true;
+        return inMemory.isEmpty() && spilled.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return inMemory.size() + spilled.size();
     }
 
     public void push(FixCandidate candidate) {
-        if (useQueue) {
-            pushToQueue(candidate);
-        } else {
-            pushToStack(candidate);
+        inMemory.add(new Entry(priority.applyAsDouble(candidate), pushed++, candidate, null));
+        inMemoryBytes += estimatedBytes(candidate);
+        while (spillFile != null && inMemoryBytes > memoryBudget && inMemory.size() > 1) {
+            Entry coldest = inMemory.pollLast();
+            inMemoryBytes -= estimatedBytes(coldest.candidate);
+            try {
+                spilled.add(new Entry(coldest.priority, coldest.order, null, spillFile.write(coldest.candidate)));
+            } catch (IOException e) {
+                throw new IllegalStateException("Couldn't write candidate " + coldest.candidate.id() + " to spill file", e);
+            }
         }
     }
 
-    private void pushToStack(FixCandidate candidate) {
-        if (useQueue)
-            throw new IllegalStateException("Calling pushToStack when working with queues");
-        int priority;
-        if (usePriority) {
-            priority = candidate.repairedProperties();
-        } else {
-            priority = NON_PRIORITY_INDEX;
-        }
-        assert priorityStack != null;
-        Stack<FixCandidate> stack = priorityStack.getOrDefault(priority, new Stack<>());
-        stack.push(candidate);
-        priorityStack.put(priority, stack);
-    }
-
-    private void pushToQueue(FixCandidate candidate) {
-        if (!useQueue)
-            throw new IllegalStateException("Calling pushToQueue when working with stacks");
-        int priority;
-        if (usePriority) {
-            priority = candidate.repairedProperties();
-        } else {
-            priority = NON_PRIORITY_INDEX;
-        }
-        assert priorityQueue != null;
-        Queue<FixCandidate> queue = priorityQueue.getOrDefault(priority, new LinkedList<>());
-        queue.add(candidate);
-        priorityQueue.put(priority, queue);
+    @Override
+    public void push(int worker, FixCandidate candidate) {
+        push(candidate);
+    }
+
+    @Override
+    public FixCandidate poll(int worker) {
+        return isEmpty()?null:pop();
     }
 
     public FixCandidate pop() {
-        if (useQueue)
-            return popFromQueue();
-        else
-            return popFromStack();
-    }
-
-    private FixCandidate popFromStack() {
-        if (useQueue)
-            throw new IllegalStateException("Calling popFromStack when working with queues");
-        int priority;
-        assert priorityStack != null;
-        if (usePriority) {
-            priority = priorityStack.entrySet().stream().filter(integerStackEntry -> !integerStackEntry.getValue().isEmpty()).map(Map.Entry::getKey).max(Comparator.comparingInt(o -> o)).orElse(NON_PRIORITY_INDEX);
-        } else {
-            priority = NON_PRIORITY_INDEX;
-        }
-        if (!priorityStack.containsKey(priority))
-            throw new IllegalStateException("Empty stack");
-        Stack<FixCandidate> stack = priorityStack.get(priority);
-        if (stack.isEmpty())
-            throw new IllegalStateException("Empty stack");
-        return stack.pop();
-    }
-
-    private FixCandidate popFromQueue() {
-        if (!useQueue)
-            throw new IllegalStateException("Calling popFromQueue when working with stacks");
-        int priority;
-        assert priorityQueue != null;
-        if (usePriority) {
-            priority = priorityQueue.entrySet().stream().filter(integerStackEntry -> !integerStackEntry.getValue().isEmpty()).map(Map.Entry::getKey).max(Comparator.comparingInt(o -> o)).orElse(NON_PRIORITY_INDEX);
-        } else {
-            priority = NON_PRIORITY_INDEX;
-        }
-        if (!priorityQueue.containsKey(priority))
-            throw new IllegalStateException("Empty queue");
-        Queue<FixCandidate> queue = priorityQueue.get(priority);
-        if (queue.isEmpty())
-            throw new IllegalStateException("Empty queue");
-        return queue.poll();
+        if (isEmpty())
+            throw new IllegalStateException(useQueue?"Empty queue":"Empty stack");
+        if (inMemory.isEmpty() || (!spilled.isEmpty() && order.compare(spilled.first(), inMemory.first()) < 0))
+            return spillFile.read(spilled.pollFirst().record);
+        FixCandidate candidate = inMemory.pollFirst().candidate;
+        inMemoryBytes -= estimatedBytes(candidate);
+        return candidate;
+    }
+
+    private static long estimatedBytes(FixCandidate candidate) {
+        return CANDIDATE_BYTES_ESTIMATE + TEST_BYTES_ESTIMATE * (candidate.untrustedTests().size() + candidate.trustedTests().size());
     }
 
 }
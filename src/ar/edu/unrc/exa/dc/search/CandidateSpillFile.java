@@ -0,0 +1,220 @@
+package ar.edu.unrc.exa.dc.search;
+
+import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Stores frontier candidates in a memory-mapped file, so they don't use heap space while waiting to be evaluated.
+ * <p>
+ * A candidate is stored along with the hashes of the tests seen by its ancestors, instead of the ancestors themselves,
+ * and the locations of its tests. Each distinct test is written once while stored candidates use it, only a digest of
+ * its contents and its location are kept in memory. The file is written in fixed size segments that are mapped as
+ * needed, a segment is reused once no stored candidate uses it (it holds neither their records nor their tests).
+ */
+final class CandidateSpillFile {
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    static final class Record {
+
+        private final int segment;
+        private final int position;
+
+        private Record(int segment, int position) {
+            this.segment = segment;
+            this.position = position;
+        }
+
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    //records and tests of stored candidates in each segment
+    private final List<Integer> segmentUsers = new ArrayList<>();
+    private final List<List<ByteBuffer>> segmentTests = new ArrayList<>();
+    private final Deque<Integer> freeSegments = new LinkedList<>();
+    private final Map<ByteBuffer, Record> testLocations = new HashMap<>();
+    private int currentSegment = 0;
+
+    CandidateSpillFile(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        file.toFile().deleteOnExit();
+    }
+
+    Record write(FixCandidate candidate) throws IOException {
+        List<Record> untrustedTests = putTests(candidate.untrustedTests());
+        List<Record> trustedTests = putTests(candidate.trustedTests());
+        Set<Integer> seenTestHashes = candidate.seenTestHashes();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeUTF(candidate.id());
+        record.writeUTF(candidate.modelToRepair().toString());
+        record.writeInt(candidate.depth());
+        record.writeInt(candidate.repairedProperties());
+        record.writeInt(candidate.totalProperties());
+        record.writeUTF(candidate.parentId() == null?"":candidate.parentId());
+        record.writeInt(seenTestHashes.size());
+        for (int hash : seenTestHashes) {
+            record.writeInt(hash);
+        }
+        writeLocations(record, untrustedTests);
+        writeLocations(record, trustedTests);
+        return put(bytes.toByteArray(), candidate.id());
+    }
+
+    FixCandidate read(Record record) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(get(record)));
+            String id = in.readUTF();
+            Path model = Paths.get(in.readUTF());
+            int depth = in.readInt();
+            int repairedProperties = in.readInt();
+            int totalProperties = in.readInt();
+            String parentId = in.readUTF();
+            int seenTestHashesCount = in.readInt();
+            List<Integer> seenTestHashes = new ArrayList<>(seenTestHashesCount);
+            for (int h = 0; h < seenTestHashesCount; h++) {
+                seenTestHashes.add(in.readInt());
+            }
+            List<Record> untrustedTestsLocations = readLocations(in);
+            List<Record> trustedTestsLocations = readLocations(in);
+            List<BeAFixTest> untrustedTests = getTests(untrustedTestsLocations);
+            List<BeAFixTest> trustedTests = getTests(trustedTestsLocations);
+            FixCandidate candidate = FixCandidate.restored(id, model, depth, untrustedTests, trustedTests, parentId.isEmpty()?null:parentId, seenTestHashes);
+            candidate.repairedProperties(repairedProperties);
+            candidate.totalProperties(totalProperties);
+            release(record.segment);
+            untrustedTestsLocations.forEach(location -> release(location.segment));
+            trustedTestsLocations.forEach(location -> release(location.segment));
+            return candidate;
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupted spill file (" + file + ")", e);
+        }
+    }
+
+    void delete() throws IOException {
+        segments.clear();
+        testLocations.clear();
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Writes {@code test} unless it's already stored, and counts its location as used by one more candidate.
+     */
+    private List<Record> putTests(Collection<BeAFixTest> tests) throws IOException {
+        List<Record> locations = new ArrayList<>(tests.size());
+        for (BeAFixTest test : tests) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            test.writeTo(new DataOutputStream(bytes));
+            byte[] contents = bytes.toByteArray();
+            ByteBuffer digest = digest(contents);
+            Record location = testLocations.get(digest);
+            if (location == null) {
+                location = put(contents, "test");
+                testLocations.put(digest, location);
+                segmentTests.get(location.segment).add(digest);
+            } else {
+                segmentUsers.set(location.segment, segmentUsers.get(location.segment) + 1);
+            }
+            locations.add(location);
+        }
+        return locations;
+    }
+
+    private List<BeAFixTest> getTests(List<Record> locations) throws IOException {
+        List<BeAFixTest> tests = new LinkedList<>();
+        for (Record location : locations) {
+            tests.add(BeAFixTest.readFrom(new DataInputStream(new ByteArrayInputStream(get(location)))));
+        }
+        return tests;
+    }
+
+    private void writeLocations(DataOutput out, List<Record> locations) throws IOException {
+        out.writeInt(locations.size());
+        for (Record location : locations) {
+            out.writeInt(location.segment);
+            out.writeInt(location.position);
+        }
+    }
+
+    private List<Record> readLocations(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<Record> locations = new ArrayList<>(count);
+        for (int l = 0; l < count; l++) {
+            locations.add(new Record(in.readInt(), in.readInt()));
+        }
+        return locations;
+    }
+
+    private Record put(byte[] bytes, String what) throws IOException {
+        int size = Integer.BYTES + bytes.length;
+        if (size > SEGMENT_SIZE)
+            throw new IllegalStateException("Can't store " + what + ", it's too big (" + size + " bytes)");
+        MappedByteBuffer buffer = segment(currentSegment);
+        if (buffer.remaining() < size) {
+            currentSegment = freeSegments.isEmpty()?segments.size():freeSegments.pop();
+            buffer = segment(currentSegment);
+        }
+        Record location = new Record(currentSegment, buffer.position());
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        segmentUsers.set(currentSegment, segmentUsers.get(currentSegment) + 1);
+        return location;
+    }
+
+    private byte[] get(Record location) {
+        ByteBuffer buffer = segments.get(location.segment).duplicate();
+        buffer.position(location.position);
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Counts one less use of {@code segment}, which is reused once it's no longer used.
+     */
+    private void release(int segment) {
+        int users = segmentUsers.get(segment) - 1;
+        segmentUsers.set(segment, users);
+        if (users > 0)
+            return;
+        segmentTests.get(segment).forEach(testLocations::remove);
+        segmentTests.get(segment).clear();
+        segments.get(segment).position(0);
+        if (segment != currentSegment)
+            freeSegments.push(segment);
+    }
+
+    private MappedByteBuffer segment(int index) throws IOException {
+        while (segments.size() <= index) {
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * SEGMENT_SIZE, SEGMENT_SIZE));
+            segmentUsers.add(0);
+            segmentTests.add(new LinkedList<>());
+        }
+        return segments.get(index);
+    }
+
+    private static ByteBuffer digest(byte[] contents) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("MD5").digest(contents));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("This should not be happening!", e);
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+package ar.edu.unrc.exa.dc.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A search frontier shared by several workers, built only from lock-free structures.
+ * <p>
+ * Without prioritization each worker has its own deque, where the candidates it generates are pushed. A worker polls
+ * from the newest end of its deque when working as a stack, and from the oldest end when working as a queue. When its
+ * deque is empty, the worker steals the oldest candidate from the other workers' deques. With prioritization all
+ * candidates go to a single priority lane, ordered by repaired properties and then by insertion order (FIFO for queues,
+ * LIFO for stacks). Best first search also uses the priority lane, ordered by cost and then by insertion order. BFS
+ * and DFS orders are only approximately preserved, since workers push and poll concurrently.
+ */
+public class ConcurrentCandidateSpace implements SearchFrontier {
+
+    private final ToDoubleFunction<FixCandidate> priority;
+    private final boolean useQueue;
+    private final List<ConcurrentLinkedDeque<FixCandidate>> deques;
+    private final ConcurrentSkipListSet<Entry> priorityLane;
+    private final AtomicLong pushed = new AtomicLong(0);
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    private static final class Entry {
+
+        private final double priority;
+        private final long order;
+        private final FixCandidate candidate;
+
+        private Entry(double priority, long order, FixCandidate candidate) {
+            this.priority = priority;
+            this.order = order;
+            this.candidate = candidate;
+        }
+
+    }
+
+    public static ConcurrentCandidateSpace normalStack(int workers) {
+        return new ConcurrentCandidateSpace(null, false, workers);
+    }
+
+    public static ConcurrentCandidateSpace priorityStack(int workers) { return new ConcurrentCandidateSpace(FixCandidate::repairedProperties, false, workers); }
+
+    public static ConcurrentCandidateSpace normalQueue(int workers) {
+        return new ConcurrentCandidateSpace(null, true, workers);
+    }
+
+    public static ConcurrentCandidateSpace priorityQueue(int workers) {
+        return new ConcurrentCandidateSpace(FixCandidate::repairedProperties, true, workers);
+    }
+
+    public static ConcurrentCandidateSpace bestFirst(int workers, BestFirstCost cost) {
+        return new ConcurrentCandidateSpace(c -> -cost.of(c), true, workers);
+    }
+
+    /**
+     * @param priority  the priority for candidates in the priority lane, when {@code null} the per worker deques are
+     *                  used instead
+     */
+    private ConcurrentCandidateSpace(ToDoubleFunction<FixCandidate> priority, boolean useQueue, int workers) {
+        if (workers <= 0)
+            throw new IllegalArgumentException("non positive workers (" + workers + ")");
+        this.priority = priority;
+        this.useQueue = useQueue;
+        if (usePriority()) {
+            Comparator<Entry> byPriority = Comparator.comparingDouble((Entry e) -> e.priority).reversed();
+            Comparator<Entry> byOrder = Comparator.comparingLong(e -> e.order);
+            this.priorityLane = new ConcurrentSkipListSet<>(byPriority.thenComparing(useQueue?byOrder:byOrder.reversed()));
+            this.deques = null;
+        } else {
+            this.priorityLane = null;
+            this.deques = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                deques.add(new ConcurrentLinkedDeque<>());
+            }
+        }
+    }
+
+    @Override
+    public void push(int worker, FixCandidate candidate) {
+        if (usePriority()) {
+            assert priorityLane != null;
+            priorityLane.add(new Entry(priority.applyAsDouble(candidate), pushed.getAndIncrement(), candidate));
+        } else {
+            workerDeque(worker).addLast(candidate);
+        }
+        size.incrementAndGet();
+    }
+
+    @Override
+    public FixCandidate poll(int worker) {
+        FixCandidate candidate;
+        if (usePriority()) {
+            assert priorityLane != null;
+            Entry entry = priorityLane.pollFirst();
+            candidate = entry == null?null:entry.candidate;
+        } else {
+            ConcurrentLinkedDeque<FixCandidate> own = workerDeque(worker);
+            candidate = useQueue?own.pollFirst():own.pollLast();
+            for (int w = 1; candidate == null && w < deques.size(); w++) {
+                candidate = deques.get((worker + w) % deques.size()).pollFirst();
+            }
+        }
+        if (candidate != null)
+            size.decrementAndGet();
+        return candidate;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size.get() <= 0;
+    }
+
+    @Override
+    public int size() {
+        //a candidate can be polled before its push is counted
+        return Math.max(0, size.get());
+    }
+
+    private boolean usePriority() {
+        return priority != null;
+    }
+
+    private ConcurrentLinkedDeque<FixCandidate> workerDeque(int worker) {
+        assert deques != null;
+        if (worker < 0 || worker >= deques.size())
+            throw new IllegalArgumentException("Invalid worker (" + worker + "), expecting a value between 0 and " + (deques.size() - 1));
+        return deques.get(worker);
+    }
+
+}
@@ -8,7 +8,9 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.Set;
 import java.util.logging.FileHandler;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
@@ -27,10 +29,13 @@ public final class FixCandidate {
     private final Collection<BeAFixTest> untrustedTests; //only untrusted tests
     private final Collection<BeAFixTest> trustedTests; //only trusted tests
     private int repairedProperties = 0;
+    private int totalProperties = 0;
     private final String id;
     private final TestHashes testHashes = new TestHashes();
     private final FixCandidate from;
+    private final String parentId;
     private final boolean hasLocalTests;
+    private volatile boolean evaluated = false;
 
     public static FixCandidate initialCandidate(Path modelToRepair) {
         return new FixCandidate(modelToRepair, 0, null, null, null);
@@ -50,9 +55,44 @@ public final class FixCandidate {
         return new FixCandidate(modelToRepair, parent.depth() + 1, untrustedTests, trustedTests, parent);
     }
 
+    /**
+     * Rebuilds a candidate read from a search journal (see {@link SearchJournal}), its tests were already filtered when
+     * it was first created.
+     */
+    static FixCandidate restored(String id, Path modelToRepair, int depth, Collection<BeAFixTest> untrustedTests, Collection<BeAFixTest> trustedTests, FixCandidate parent) {
+        FixCandidate candidate = new FixCandidate(id, modelToRepair, depth, untrustedTests, trustedTests, parent, parent == null?null:parent.id());
+        if (parent != null) {
+            untrustedTests.forEach(candidate.testHashes::addHash);
+            trustedTests.forEach(candidate.testHashes::addHash);
+        }
+        return candidate;
+    }
+
+    /**
+     * Rebuilds a candidate that was stored outside the heap (see {@link CandidateSpillFile}) without its ancestors,
+     * {@code seenTestHashes} (see {@link #seenTestHashes()}) stands for them when filtering its descendants' tests.
+     */
+    static FixCandidate restored(String id, Path modelToRepair, int depth, Collection<BeAFixTest> untrustedTests, Collection<BeAFixTest> trustedTests, String parentId, Collection<Integer> seenTestHashes) {
+        FixCandidate candidate = new FixCandidate(id, modelToRepair, depth, untrustedTests, trustedTests, null, parentId);
+        seenTestHashes.forEach(candidate.testHashes::addHash);
+        return candidate;
+    }
+
+    private FixCandidate(String id, Path modelToRepair, int depth, Collection<BeAFixTest> untrustedTests, Collection<BeAFixTest> trustedTests, FixCandidate from, String parentId) {
+        this.id = id;
+        this.from = from;
+        this.parentId = parentId;
+        this.modelToRepair = modelToRepair;
+        this.depth = depth;
+        this.untrustedTests = untrustedTests;
+        this.trustedTests = trustedTests;
+        hasLocalTests = (!this.untrustedTests.isEmpty() || !this.trustedTests.isEmpty());
+    }
+
     private FixCandidate(Path modelToRepair, int depth, Collection<BeAFixTest> untrustedTests, Collection<BeAFixTest> trustedTests, FixCandidate from) {
         id = generateRandomName();
         this.from = from;
+        this.parentId = from == null?null:from.id();
         if (!isValidPath(modelToRepair, PathCheck.ALS))
             throw new IllegalArgumentException("Invalid model to repair (" + (modelToRepair==null?"NULL":modelToRepair.toString()) + ")");
         if (depth < 0)
@@ -120,6 +160,23 @@ public final class FixCandidate {
         return repairedProperties;
     }
 
+    public void totalProperties(int totalProperties) {
+        this.totalProperties = totalProperties;
+    }
+
+    public int totalProperties() {
+        return totalProperties;
+    }
+
+    /**
+     * @return the ratio of oracle properties satisfied by the parent's spurious fix, or {@code 0} when unknown
+     */
+    public double repairedPropertiesRatio() {
+        if (totalProperties <= 0 || repairedProperties <= 0)
+            return 0;
+        return ((double) repairedProperties) / totalProperties;
+    }
+
     public String modelName() {
         return modelToRepair.getFileName().toString().replace(".als","");
     }
@@ -134,6 +191,27 @@ public final class FixCandidate {
 
     public FixCandidate parent() { return from; }
 
+    public String parentId() { return parentId; }
+
+    /**
+     * @return the hashes of the tests of this candidate and its ancestors, used to filter repeated tests.
+     */
+    Set<Integer> seenTestHashes() {
+        Set<Integer> seenTestHashes = new HashSet<>();
+        for (FixCandidate candidate = this; candidate != null; candidate = candidate.from) {
+            seenTestHashes.addAll(candidate.testHashes.hashes());
+        }
+        return seenTestHashes;
+    }
+
+    public void markAsEvaluated() {
+        this.evaluated = true;
+    }
+
+    public boolean evaluated() {
+        return evaluated;
+    }
+
     @Override
     public String toString() {
         return "Model: " + modelToRepair.toString() + "\n" + "Depth: " + depth + "\n" + "Repaired properties: " + repairedProperties;
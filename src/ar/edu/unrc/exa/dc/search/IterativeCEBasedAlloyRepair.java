@@ -9,9 +9,12 @@ import ar.edu.unrc.exa.dc.util.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.logging.Logger;
 
 import static ar.edu.unrc.exa.dc.util.Utils.*;
@@ -46,15 +49,22 @@ public class IterativeCEBasedAlloyRepair {
     private TestHashes untrustedTests;
 
     private IcebarSearchAlgorithm search = IcebarSearchAlgorithm.DFS;
-    private final TimeCounter arepairTimeCounter = new TimeCounter();
-    private final TimeCounter beafixTimeCounter = new TimeCounter();
     private final TimeCounter totalTime = new TimeCounter();
 
     public TimeCounter arepairTimeCounter() {
+        TimeCounter arepairTimeCounter = new TimeCounter();
+        arepairTimeCounter.add(resumedARepairNanoSeconds);
+        workers.forEach(worker -> arepairTimeCounter.add(worker.arepairTimeCounter()));
         return arepairTimeCounter;
     }
 
     public TimeCounter beafixTimeCounter() {
+        TimeCounter beafixTimeCounter = new TimeCounter();
+        beafixTimeCounter.add(resumedBeAFixNanoSeconds);
+        workers.forEach(worker -> {
+            beafixTimeCounter.add(worker.beafixTimeCounter());
+            beafixTimeCounter.add(worker.siblingBeafixTimeCounter());
+        });
         return beafixTimeCounter;
     }
 
@@ -77,6 +87,42 @@ public class IterativeCEBasedAlloyRepair {
 
     private long timeout = 0;
     public void timeout(long timeout) { this.timeout = timeout; }
+    private Deadline deadline = Deadline.NONE;
+
+    /**
+     * Gives each ARepair call, BeAFix check, and BeAFix test generation a time budget learned from the previous calls
+     * (see {@link AdaptiveTimeout}), a candidate with a call exceeding its budget is discarded. Must be called before
+     * {@link #repair()}.
+     */
+    public void adaptiveCallTimeouts(double factor, int minimumCalls) {
+        aRepair.callTimeout(new AdaptiveTimeout(factor, minimumCalls));
+        beAFix.callTimeouts(new AdaptiveTimeout(factor, minimumCalls), new AdaptiveTimeout(factor, minimumCalls));
+    }
+    private int abandonedCalls = 0;
+
+    private Path checkpoint = null;
+    private boolean resume = false;
+    private volatile SearchJournal journal = null;
+    private long resumedARepairNanoSeconds = 0;
+    private long resumedBeAFixNanoSeconds = 0;
+
+    /**
+     * Journals the search state to {@code checkpoint} (see {@link SearchJournal}), so the search can be resumed from it
+     * if this run is stopped.
+     */
+    public void checkpoint(Path checkpoint) {
+        this.checkpoint = checkpoint;
+        this.resume = false;
+    }
+
+    /**
+     * Resumes the search journaled in {@code checkpoint} by a previous run on the same model, oracle, and search
+     * algorithm, new changes are journaled to the same file.
+     */
+    public void resume(Path checkpoint) {
+        this.checkpoint = checkpoint;
+        this.resume = true;
+    }
 
     private boolean keepGoingAfterARepairNPE = false;
     public void keepGoingAfterARepairNPE(boolean keepGoingAfterARepairNPE) { this.keepGoingAfterARepairNPE =keepGoingAfterARepairNPE; }
@@ -116,11 +162,93 @@ public class IterativeCEBasedAlloyRepair {
         this.usePrioritization = usePrioritization;
     }
 
+    private int frontierMemory = 0;
+    public void frontierMemory(int frontierMemory) {
+        if (frontierMemory < 0)
+            throw new IllegalArgumentException("negative frontier memory (" + frontierMemory + ")");
+        this.frontierMemory = frontierMemory;
+    }
+
+    private int beamWidth = 10;
+    public void beamWidth(int beamWidth) {
+        if (beamWidth < 1)
+            throw new IllegalArgumentException("beam width must be at least 1 (" + beamWidth + ")");
+        this.beamWidth = beamWidth;
+    }
+
+    private BestFirstCost bestFirstCost = BestFirstCost.fromWeights(BestFirstCost.DEFAULT_WEIGHTS);
+    public void bestFirstCost(BestFirstCost bestFirstCost) {
+        if (bestFirstCost == null)
+            throw new IllegalArgumentException("null best first cost");
+        this.bestFirstCost = bestFirstCost;
+    }
+
+    private int jobs = 1;
+    public void jobs(int jobs) {
+        if (jobs < 1)
+            throw new IllegalArgumentException("jobs must be at least 1 (" + jobs + ")");
+        this.jobs = jobs;
+    }
+
+    private boolean pipelining = false;
+    public void pipelining(boolean pipelining) { this.pipelining = pipelining; }
+
+    private List<String> aRepairPortfolio = Collections.emptyList();
+    public void aRepairPortfolio(List<String> aRepairPortfolio) {
+        if (aRepairPortfolio == null)
+            throw new IllegalArgumentException("null ARepair portfolio");
+        this.aRepairPortfolio = aRepairPortfolio;
+    }
+
+    private ARepairCache aRepairCache = null;
+    public void aRepairCache(ARepairCache aRepairCache) { this.aRepairCache = aRepairCache; }
+
+    private OracleCheckCache oracleCheckCache = null;
+    public void oracleCheckCache(OracleCheckCache oracleCheckCache) { this.oracleCheckCache = oracleCheckCache; }
+
+    private GeneratedTestsCache generatedTestsCache = null;
+    public void generatedTestsCache(GeneratedTestsCache generatedTestsCache) { this.generatedTestsCache = generatedTestsCache; }
+
     public boolean justRunningARepairOnce() {
         return laps == 0;
     }
 
-    private CandidateSpace searchSpace = null;
+    private boolean useWorkersPool() {
+        return jobs > 1 && !justRunningARepairOnce();
+    }
+
+    private boolean usePipelining() {
+        return pipelining && !useWorkersPool() && !justRunningARepairOnce();
+    }
+
+    private SearchFrontier searchSpace = null;
+    private FixCandidate initialCandidate = null;
+    private int depthLimit = 0;
+    private volatile boolean depthLimitReached = false;
+    private List<SearchWorker> workers = new LinkedList<>();
+    private static final String WORKERS_FOLDER = "icebar_workers";
+    private static final String FRONTIER_SPILL_FILE = "icebar_frontier.spill";
+    private static final String AREPAIR_MEMO_FOLDER = "icebar_arepair_memo";
+    private final Map<String, ARepairResult> aRepairMemo = new ConcurrentHashMap<>();
+    private final Set<String> pushedSuites = ConcurrentHashMap.newKeySet();
+    private final Set<BeAFixTest> iterationTrustedTests = new HashSet<>();
+    private static final int TESTS_INDEX_RANGE_PER_WORKER = 1000;
+    private int testsIndexRange = TESTS_INDEX_RANGE_PER_WORKER;
+    private int reservedTestsIndexes = 0;
+    private static final long WORKERS_TERMINATION_TIMEOUT = 60; //seconds
+    private final Object searchLock = new Object();
+    private boolean searchEnded = false;
+    private FixCandidate fix = null;
+    private SearchWorker fixWorker = null;
+    private int maxReachedLap = 0;
+
+    /**
+     * @return the tests file used by ARepair to produce the fix returned by {@link #repair()}, or {@code null} if no
+     * fix was found.
+     */
+    public Path fixTestsPath() {
+        return fixWorker == null?null:fixWorker.testsPath();
+    }
 
     public Optional<FixCandidate> repair() throws IOException {
         //watches for different time process recording
@@ -128,244 +256,803 @@ public class IterativeCEBasedAlloyRepair {
                 "\tModel: " + modelToRepair.toString() + "\n" +
                 "\tProperty-based Oracle: " + oracle.toString() + "\n" +
                 "\tInitial tests: " + (initialTests==null?"NONE":initialTests.getInitialTestsPath().toString()) + "\n" +
-                "\tLaps: " + laps + "\n");
+                "\tLaps: " + laps + "\n" +
+                "\tJobs: " + jobs + "\n");
         logger.fine("Full ICEBAR configuration:\n\t" +
                 String.join("\n\t", ICEBARProperties.getInstance().getAllRawProperties()));
         initializeSearchSpaces();
-        int maxReachedLap = 0;
+        initializeWorkers();
+        Path aRepairMemoFolder = Paths.get(AREPAIR_MEMO_FOLDER).toAbsolutePath();
+        if (aRepairMemoFolder.toFile().exists())
+            deleteFolderAndItsContent(aRepairMemoFolder);
         trustedTests = new TestHashes();
         untrustedTests = new TestHashes();
         totalTime.clockStart();
-        FixCandidate current;
-        while ((current = nextCandidate()) != null) {
-            evaluatedCandidates++;
-            maxReachedLap = Math.max(maxReachedLap, current.depth());
-            ARepairResult aRepairResult = runARepair(arepairTimeCounter, current);
-            logger.info("Running ARepair ended with " +
-                    (aRepairResult.equals(ARepairResult.NO_TESTS)?
-                            "NO TESTS (will consider as spurious fix to bootstrap ICEBAR process)"
-                            :aRepairResult.hasRepair()?
-                                "FIX"
-                                :"NO FIX"
-                    )
-            );
-            if (aRepairResult.equals(ARepairResult.ERROR)) {
-                logger.severe("ARepair call ended in error:\n" + aRepairResult.message());
-                if (aRepairResult.nullPointerExceptionFound() && keepGoingAfterARepairNPE) {
-                    logger.warning("ARepair ended with a NullPointerException but we are going to ignore that and hope for the best");
-                    continue;
+        initializeJournal();
+        //a resumed search only gets what was left of its timeout
+        totalTime.updateTotalTime();
+        initializeDeadline(Deadline.afterMinutes(timeout, totalTime.totalNanoSeconds()));
+        if (useWorkersPool() && pipelining)
+            logger.warning("Pipelining is ignored when more than one job is used");
+        if (search.equals(IcebarSearchAlgorithm.IDDFS)) {
+            //each iteration evaluates its candidates again, reusing ARepair results (see aRepairMemo) and BeAFix results
+            if (oracleCheckCache == null)
+                oracleCheckCache = new OracleCheckCache(null);
+            if (generatedTestsCache == null)
+                generatedTestsCache = new GeneratedTestsCache(null);
+            for (depthLimit = 0; !searchEnded(); depthLimit++) {
+                logger.info("Iterative deepening search with depth limit " + depthLimit);
+                depthLimitReached = false;
+                synchronized (searchLock) {
+                    pushedSuites.clear();
+                    iterationTrustedTests.clear();
                 }
-                Report report = Report.arepairFailed(current, current.untrustedTests().size() + current.trustedTests().size() + trustedCounterexampleTests.size(), arepairTimeCounter, beafixTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
-                writeReport(report);
-                return Optional.empty();
-            }
-            boolean repairFound = aRepairResult.hasRepair();
-            boolean noTests = aRepairResult.equals(ARepairResult.NO_TESTS);
-            boolean checkAndGenerate = repairFound || noTests;
-            if (checkAndGenerate) {
-                boolean fromOriginal = aRepairResult.equals(ARepairResult.NO_TESTS);
-                FixCandidate repairCandidate = fromOriginal?current:FixCandidate.aRepairCheckCandidate(aRepairResult.repair(), current.depth());
-                BeAFixResult beAFixCheckResult = runBeAFixCheck(beafixTimeCounter, repairCandidate);
-                logger.info("Validating ARepair fix against property-based oracle: DOES" + (beAFixCheckResult.checkResult()?"":" NOT") + " SATISFIES ORACLE");
-                int repairedPropertiesForCurrent = beAFixCheckResult.passingProperties();
-                Pair<Boolean, FixCandidate> beAFixCheckAnalysis = analyzeBeAFixCheck(beAFixCheckResult, beafixTimeCounter, arepairTimeCounter, totalTime, current, repairCandidate);
-                if (beAFixCheckAnalysis.fst())
-                    return Optional.ofNullable(beAFixCheckAnalysis.snd());
-                saveFailingTestSuite(aRepairResult.usedTests(), modelToRepairName, false);
-                if (current.depth() < laps) {
-                    beafixTimeCounter.clockStart();
-                    BeAFixResult beAFixResult = runBeAFixWithCurrentConfig(repairCandidate, BeAFixMode.TESTS, false, false);
-                    beafixTimeCounter.clockEnd();
-                    if (checkIfInvalidAndReportBeAFixResults(beAFixResult, current, beafixTimeCounter, arepairTimeCounter))
-                        return Optional.empty();
-                    logger.info("Generated " + beAFixResult.generatedTests() + " tests from spurious fix");
-                    List<BeAFixTest> counterexampleTests = beAFixResult.getCounterexampleTests();
-                    List<BeAFixTest> counterexampleUntrustedTests = beAFixResult.getCounterExampleUntrustedTests();
-                    List<BeAFixTest> predicateTests = beAFixResult.getPredicateTests();
-                    List<BeAFixTest> relaxedPredicateTests = null;
-                    List<BeAFixTest> relaxedAssertionsTests = null;
-                    if (allowFactsRelaxation && ((counterexampleTests.isEmpty() && counterexampleUntrustedTests.isEmpty())) && predicateTests.isEmpty()) {
-                        logger.fine("No tests available, generating with relaxed facts...");
-                        beafixTimeCounter.clockStart();
-                        beAFixResult = runBeAFixWithCurrentConfig(repairCandidate, BeAFixMode.TESTS, true, false);
-                        beafixTimeCounter.clockEnd();
-                        if (checkIfInvalidAndReportBeAFixResults(beAFixResult, current, beafixTimeCounter, arepairTimeCounter))
-                            return Optional.empty();
-                        logger.info("Generated " + beAFixResult.generatedTests() + " tests from spurious fix by relaxing facts");
-                        relaxedPredicateTests = beAFixResult.getPredicateTests();
-                        if (forceAssertionGeneration) {
-                            logger.fine("Generating with assertion forced test generation...");
-                            beAFix.testsStartingIndex(Math.max(beAFix.testsStartingIndex(), beAFixResult.getMaxIndex()) + 1);
-                            beafixTimeCounter.clockStart();
-                            BeAFixResult beAFixResult_forcedAssertionTestGeneration = runBeAFixWithCurrentConfig(repairCandidate, BeAFixMode.TESTS, false, true);
-                            beafixTimeCounter.clockEnd();
-                            if (checkIfInvalidAndReportBeAFixResults(beAFixResult_forcedAssertionTestGeneration, current, beafixTimeCounter, arepairTimeCounter))
-                                return Optional.empty();
-                            logger.info("Generated " + beAFixResult_forcedAssertionTestGeneration.generatedTests() + " tests from spurious fix by forcing generation from assertions");
-                            relaxedAssertionsTests = beAFixResult_forcedAssertionTestGeneration.getCounterExampleUntrustedTests();
-                        }
-                    }
-                    boolean trustedTestsAdded;
-                    boolean addLocalTrustedTests;
-                    boolean globalTestsAdded = false;
-                    if (globalTrustedTests || (current.untrustedTests().isEmpty() && current.trustedTests().isEmpty())) {
-                        trustedTestsAdded = this.trustedCounterexampleTests.addAll(counterexampleTests);
-                        globalTestsAdded = trustedTestsAdded;
-                        addLocalTrustedTests = false;
-                    } else { //local trusted tests except from original
-                        trustedTestsAdded = !counterexampleTests.isEmpty();
-                        addLocalTrustedTests = true;
-                    }
-                    int newBranches = 0;
-                    if (!counterexampleTests.isEmpty()) {
-                        Set<BeAFixTest> localTrustedTests = new HashSet<>(current.trustedTests());
-                        Set<BeAFixTest> localUntrustedTests = new HashSet<>(current.untrustedTests());
-                        if (addLocalTrustedTests) {
-                            localTrustedTests.addAll(counterexampleTests);
-                        }
-                        if (trustedTestsAdded) {
-                            FixCandidate newCandidate = FixCandidate.descendant(modelToRepair, localUntrustedTests, localTrustedTests, current);
-                            newCandidate.repairedProperties(repairedPropertiesForCurrent);
-                            if (newCandidate.hasLocalTests() || globalTestsAdded) {
-                                searchSpace.push(newCandidate);
-                                newBranches = 1;
-                                counterexampleTests.forEach(trustedTests::addHash);
-                            } else {
-                                logger.warning("Candidate " + newCandidate.id() + " is invalid (no new tests could be added)");
-                            }
-                        }
-                    }
-                    boolean counterexamples = !counterexampleTests.isEmpty();
-                    boolean untrustedCounterexamples = !counterexampleUntrustedTests.isEmpty();
-                    boolean predicates = !predicateTests.isEmpty();
-                    boolean relaxedPredicates = relaxedPredicateTests != null && !relaxedPredicateTests.isEmpty();
-                    boolean relaxedAssertions = relaxedAssertionsTests != null && !relaxedAssertionsTests.isEmpty();
-                    if ((!counterexamples) && untrustedCounterexamples) {
-                        if ((newBranches = createBranches(current, counterexampleUntrustedTests, true, searchSpace, repairedPropertiesForCurrent)) == BRANCHING_ERROR) {
-                            logger.severe("Branching error!");
-                            return Optional.empty();
-                        }
-                    }
-                    if (((!counterexamples && !untrustedCounterexamples)) && predicates) {
-                        if ((newBranches = createBranches(current, predicateTests, false, searchSpace, repairedPropertiesForCurrent)) == BRANCHING_ERROR) {
-                            logger.severe("Branching error!");
-                            return Optional.empty();
-                        }
-                    }
-                    if (((!counterexamples && !untrustedCounterexamples && !predicates)) && relaxedPredicates) {
-                        if ((newBranches = createBranches(current, relaxedPredicateTests, false, searchSpace, repairedPropertiesForCurrent)) == BRANCHING_ERROR) {
-                            logger.severe("Branching error!");
-                            return Optional.empty();
-                        }
-                    }
-                    if (((!counterexamples && !untrustedCounterexamples && !predicates && !relaxedPredicates)) && relaxedAssertions) {
-                        if ((newBranches = createBranches(current, relaxedAssertionsTests, false, searchSpace, repairedPropertiesForCurrent)) == BRANCHING_ERROR) {
-                            logger.severe("Branching error!");
-                            return Optional.empty();
+                searchSpace.push(0, initialCandidate);
+                evaluateCandidates();
+                if (!depthLimitReached)
+                    break;
+            }
+        } else {
+            evaluateCandidates();
+        }
+        if (searchSpace instanceof BeamCandidateSpace)
+            logger.info("Beam search discarded " + ((BeamCandidateSpace) searchSpace).discarded() + " candidates");
+        if (searchSpace instanceof CandidateSpace)
+            ((CandidateSpace) searchSpace).deleteSpillFile();
+        if (abandonedCalls > 0)
+            logger.info(abandonedCalls + " calls timed out or stalled (ARepair budget: " + aRepair.callTimeout() + ")");
+        closeJournal();
+        workers.forEach(SearchWorker::shutdown);
+        if (searchEnded())
+            return Optional.ofNullable(fix);
+        logger.info("ICEBAR ended with no more candidates");
+        Report report = Report.exhaustedSearchSpace(maxReachedLap, totalTestsGenerated, beafixTimeCounter(), arepairTimeCounter(), arepairCalls, generateTestsAndCandidateCounters());
+        endSearch(report, null, null);
+        return Optional.empty();
+    }
+
+    private void evaluateCandidates() throws IOException {
+        if (useWorkersPool()) {
+            evaluateCandidatesWithWorkersPool();
+        } else if (usePipelining()) {
+            evaluateCandidatesWithPipelining();
+        } else {
+            FixCandidate current;
+            while (!searchEnded() && (current = nextCandidate(workers.get(0))) != null) {
+                evaluateCandidate(workers.get(0), current);
+            }
+        }
+    }
+
+    private void evaluateCandidatesWithWorkersPool() throws IOException {
+        logger.info("Evaluating candidates with " + workers.size() + " workers");
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        CompletionService<Boolean> evaluations = new ExecutorCompletionService<>(executor);
+        BlockingQueue<SearchWorker> idleWorkers = new LinkedBlockingQueue<>(workers);
+        List<Future<Boolean>> inFlight = new LinkedList<>();
+        try {
+            while (true) {
+                FixCandidate current;
+                SearchWorker worker;
+                while ((worker = idleWorkers.peek()) != null && (current = nextCandidate(worker)) != null) {
+                    idleWorkers.remove();
+                    SearchWorker evaluationWorker = worker;
+                    FixCandidate candidate = current;
+                    logger.fine(worker + " will evaluate candidate " + candidate.id());
+                    inFlight.add(evaluations.submit(() -> {
+                        try {
+                            return evaluateCandidate(evaluationWorker, candidate);
+                        } finally {
+                            idleWorkers.add(evaluationWorker);
                         }
+                    }));
+                }
+                if (inFlight.isEmpty())
+                    return;
+                Future<Boolean> evaluation = evaluations.take();
+                inFlight.remove(evaluation);
+                if (evaluation.get())
+                    return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for candidates evaluations", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IllegalStateException("A candidate evaluation ended with an exception", e.getCause());
+        } finally {
+            if (!inFlight.isEmpty())
+                logger.info("Cancelling " + inFlight.size() + " candidates evaluations still running");
+            inFlight.forEach(evaluation -> evaluation.cancel(true));
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(WORKERS_TERMINATION_TIMEOUT, TimeUnit.SECONDS))
+                    logger.warning("Some workers did not finish after being cancelled");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Overlaps the ARepair stage of the next candidate with the BeAFix stage (check and test generation) of the current
+     * one, using two workers that alternate roles on each lap.
+     * <p>
+     * The next candidate is popped before the current one's new candidates are pushed, so when using DFS the order in
+     * which candidates are evaluated is only approximately preserved. When the BeAFix stage adds global trusted tests,
+     * the speculative ARepair result was obtained with an outdated test suite, and ARepair is run again for that
+     * candidate.
+     */
+    private void evaluateCandidatesWithPipelining() throws IOException {
+        logger.info("Evaluating candidates pipelining ARepair and BeAFix stages");
+        ExecutorService aRepairStage = Executors.newSingleThreadExecutor();
+        SearchWorker currentWorker = workers.get(0);
+        SearchWorker nextWorker = workers.get(1);
+        Future<ARepairResult> speculativeARepair = null;
+        try {
+            FixCandidate current = nextCandidate(currentWorker);
+            if (current == null)
+                return;
+            ARepairResult aRepairResult = runARepairStage(currentWorker, current);
+            while (true) {
+                FixCandidate next = nextCandidate(nextWorker);
+                int trustedTestsBeforeBeAFixStage = trustedCounterexampleTestsCount();
+                if (next != null) {
+                    SearchWorker speculativeWorker = nextWorker;
+                    FixCandidate speculativeCandidate = next;
+                    speculativeARepair = aRepairStage.submit(() -> runARepairStage(speculativeWorker, speculativeCandidate));
+                }
+                if (runBeAFixStage(currentWorker, current, aRepairResult))
+                    return;
+                if (next == null) {
+                    next = nextCandidate(nextWorker);
+                    if (next == null)
+                        return;
+                    aRepairResult = runARepairStage(nextWorker, next);
+                } else {
+                    aRepairResult = speculativeARepair.get();
+                    speculativeARepair = null;
+                    if (trustedCounterexampleTestsCount() != trustedTestsBeforeBeAFixStage) {
+                        logger.fine("Global trusted tests changed while running ARepair for candidate " + next.id() + ", running ARepair again");
+                        aRepairResult = runARepair(nextWorker, next);
                     }
-                    totalTestsGenerated += beAFixResult.generatedTests() + (relaxedPredicateTests==null?0:relaxedPredicateTests.size()) + (relaxedAssertionsTests==null?0:relaxedAssertionsTests.size());
-                    logger.info("Total tests generated: " + totalTestsGenerated);
-                    logger.info("Generated branches: " + newBranches);
-                    beAFix.testsStartingIndex(Math.max(beAFix.testsStartingIndex(), beAFixResult.getMaxIndex()) + 1);
-                } else if (!justRunningARepairOnce()) {
-                    logger.info("max laps reached (" + laps + "), ending branch");
                 }
-            } else {
+                current = next;
+                SearchWorker previousWorker = currentWorker;
+                currentWorker = nextWorker;
+                nextWorker = previousWorker;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for ARepair stage", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IllegalStateException("ARepair stage ended with an exception", e.getCause());
+        } finally {
+            if (speculativeARepair != null) {
+                logger.info("Cancelling speculative ARepair stage");
+                speculativeARepair.cancel(true);
+            }
+            aRepairStage.shutdownNow();
+        }
+    }
+
+    /**
+     * Evaluates a candidate: runs ARepair using the candidate's tests, validates any fix found against the oracle, and,
+     * for spurious fixes, generates new tests and pushes new candidates into the search space.
+     *
+     * @return {@code true} if the search must end (a report was written, or the search was already ended)
+     */
+    private boolean evaluateCandidate(SearchWorker worker, FixCandidate current) throws IOException {
+        if (endSearchIfDeadlineReached(current))
+            return true;
+        return runBeAFixStage(worker, current, runARepairStage(worker, current));
+    }
+
+    private ARepairResult runARepairStage(SearchWorker worker, FixCandidate current) throws IOException {
+        current.markAsEvaluated();
+        synchronized (searchLock) {
+            evaluatedCandidates++;
+            maxReachedLap = Math.max(maxReachedLap, current.depth());
+        }
+        return runARepair(worker, current);
+    }
+
+    private boolean runBeAFixStage(SearchWorker worker, FixCandidate current, ARepairResult aRepairResult) throws IOException {
+        if (validateAndBranch(worker, current, aRepairResult))
+            return true;
+        journal(journal -> journal.evaluated(current, journaledCounters()));
+        return false;
+    }
+
+    private boolean validateAndBranch(SearchWorker worker, FixCandidate current, ARepairResult aRepairResult) throws IOException {
+        if (searchEnded() || endSearchIfDeadlineReached(current))
+            return true;
+        if (aRepairResult.abandoned())
+            return discardAbandonedBranch(current, aRepairResult.message());
+        logger.info("Running ARepair ended with " +
+                (aRepairResult.resultType().equals(ARepairResult.ResultType.NO_TESTS)?
+                        "NO TESTS (will consider as spurious fix to bootstrap ICEBAR process)"
+                        :aRepairResult.hasRepair()?
+                            "FIX"
+                            :"NO FIX"
+                )
+        );
+        if (aRepairResult.resultType().equals(ARepairResult.ResultType.ERROR)) {
+            logger.severe("ARepair call ended in error:\n" + aRepairResult.message());
+            if (aRepairResult.nullPointerExceptionFound() && keepGoingAfterARepairNPE) {
+                logger.warning("ARepair ended with a NullPointerException but we are going to ignore that and hope for the best");
+                return false;
+            }
+            Report report = Report.arepairFailed(current, current.untrustedTests().size() + current.trustedTests().size() + trustedCounterexampleTestsCount(), arepairTimeCounter(), beafixTimeCounter(), arepairCalls, generateTestsAndCandidateCounters());
+            return endSearch(report, null, null);
+        }
+        boolean repairFound = aRepairResult.hasRepair();
+        boolean noTests = aRepairResult.resultType().equals(ARepairResult.ResultType.NO_TESTS);
+        boolean checkAndGenerate = repairFound || noTests;
+        if (checkAndGenerate) {
+            FixCandidate repairCandidate = noTests?current:FixCandidate.aRepairCheckCandidate(aRepairResult.repair(), current.depth());
+            BeAFixResult beAFixCheckResult = runBeAFixCheck(worker, repairCandidate);
+            if (searchEnded() || endSearchIfDeadlineReached(current))
+                return true;
+            if (beAFixCheckResult.abandoned())
+                return discardAbandonedBranch(current, beAFixCheckResult.message());
+            logger.info("Validating ARepair fix against property-based oracle: DOES" + (beAFixCheckResult.checkResult()?"":" NOT") + " SATISFIES ORACLE");
+            int repairedPropertiesForCurrent = beAFixCheckResult.passingProperties();
+            int totalPropertiesForCurrent = beAFixCheckResult.totalProperties();
+            if (analyzeBeAFixCheck(beAFixCheckResult, worker, current, repairCandidate))
+                return true;
+            saveFailingTestSuite(aRepairResult.usedTests(), modelToRepairName, false);
+            if (current.depth() < laps) {
+                if (generateTestsAndBranch(worker, current, repairCandidate, repairedPropertiesForCurrent, totalPropertiesForCurrent))
+                    return true;
+            } else if (!justRunningARepairOnce()) {
+                logger.info("max laps reached (" + laps + "), ending branch");
+            }
+        } else {
+            synchronized (searchLock) {
                 evaluatedCandidatesLeadingToNoFix++;
-                saveFailingTestSuite(aRepairResult.usedTests(), modelToRepairName, true);
-                if (aRepairResult.hasMessage()) {
-                    logger.fine("ARepair ended with the following message:\n" + aRepairResult.message());
+            }
+            saveFailingTestSuite(aRepairResult.usedTests(), modelToRepairName, true);
+            if (aRepairResult.hasMessage()) {
+                logger.fine("ARepair ended with the following message:\n" + aRepairResult.message());
+            }
+        }
+        if (justRunningARepairOnce() && !noTests && !repairFound) {
+            logger.info("ICEBAR running ARepair once could not find a fix");
+            Report report = Report.arepairOnceNoFixFound(totalTestsGenerated, beafixTimeCounter(), arepairTimeCounter(), arepairCalls, generateTestsAndCandidateCounters());
+            return endSearch(report, null, null);
+        }
+        if (justRunningARepairOnce() && !noTests && repairFound) {
+            logger.info("ICEBAR running ARepair once found a spurious fix");
+            Report report = Report.arepairOnceSpurious(totalTestsGenerated, beafixTimeCounter(), arepairTimeCounter(), arepairCalls, generateTestsAndCandidateCounters());
+            return endSearch(report, null, null);
+        }
+        return false;
+    }
+
+    private boolean generateTestsAndBranch(SearchWorker worker, FixCandidate current, FixCandidate repairCandidate, int repairedPropertiesForCurrent, int totalPropertiesForCurrent) throws IOException {
+        BeAFix workerBeAFix = worker.beAFix();
+        worker.beafixTimeCounter().clockStart();
+        BeAFixResult beAFixResult = runTestGeneration(worker, repairCandidate, false, false, false);
+        worker.beafixTimeCounter().clockEnd();
+        if (beAFixResult.abandoned())
+            return discardAbandonedBranch(current, beAFixResult.message());
+        if (checkIfInvalidAndReportBeAFixResults(beAFixResult, current))
+            return true;
+        logger.info("Generated " + beAFixResult.generatedTests() + " tests from spurious fix");
+        List<BeAFixTest> counterexampleTests = beAFixResult.getCounterexampleTests();
+        List<BeAFixTest> counterexampleUntrustedTests = beAFixResult.getCounterExampleUntrustedTests();
+        List<BeAFixTest> predicateTests = beAFixResult.getPredicateTests();
+        List<BeAFixTest> relaxedPredicateTests = null;
+        List<BeAFixTest> relaxedAssertionsTests = null;
+        int maxIndex = beAFixResult.getMaxIndex();
+        if (allowFactsRelaxation && ((counterexampleTests.isEmpty() && counterexampleUntrustedTests.isEmpty())) && predicateTests.isEmpty()) {
+            BeAFixResult beAFixResult_forcedAssertionTestGeneration = null;
+            worker.beafixTimeCounter().clockStart();
+            if (forceAssertionGeneration) {
+                logger.fine("No tests available, generating with relaxed facts and with assertion forced test generation...");
+                BeAFixResult[] fallbackResults = runFallbackTestGenerations(worker, repairCandidate);
+                beAFixResult = fallbackResults[0];
+                beAFixResult_forcedAssertionTestGeneration = fallbackResults[1];
+            } else {
+                logger.fine("No tests available, generating with relaxed facts...");
+                beAFixResult = runTestGeneration(worker, repairCandidate, true, false, false);
+            }
+            worker.beafixTimeCounter().clockEnd();
+            if (beAFixResult.abandoned())
+                return discardAbandonedBranch(current, beAFixResult.message());
+            if (checkIfInvalidAndReportBeAFixResults(beAFixResult, current))
+                return true;
+            logger.info("Generated " + beAFixResult.generatedTests() + " tests from spurious fix by relaxing facts");
+            relaxedPredicateTests = beAFixResult.getPredicateTests();
+            maxIndex = Math.max(maxIndex, beAFixResult.getMaxIndex());
+            if (beAFixResult_forcedAssertionTestGeneration != null) {
+                if (beAFixResult_forcedAssertionTestGeneration.abandoned())
+                    return discardAbandonedBranch(current, beAFixResult_forcedAssertionTestGeneration.message());
+                if (checkIfInvalidAndReportBeAFixResults(beAFixResult_forcedAssertionTestGeneration, current))
+                    return true;
+                logger.info("Generated " + beAFixResult_forcedAssertionTestGeneration.generatedTests() + " tests from spurious fix by forcing generation from assertions");
+                relaxedAssertionsTests = beAFixResult_forcedAssertionTestGeneration.getCounterExampleUntrustedTests();
+                maxIndex = Math.max(maxIndex, beAFixResult_forcedAssertionTestGeneration.getMaxIndex());
+            }
+        }
+        List<FixCandidate> newCandidates = new LinkedList<>();
+        int trustedTestsCount;
+        synchronized (searchLock) {
+            if (searchEnded)
+                return true;
+            boolean trustedTestsAdded;
+            boolean addLocalTrustedTests;
+            boolean globalTestsAdded = false;
+            if (globalTrustedTests || (current.untrustedTests().isEmpty() && current.trustedTests().isEmpty())) {
+                boolean newGlobalTests = this.trustedCounterexampleTests.addAll(counterexampleTests);
+                //a candidate evaluated again by a later iteration must branch as it did the first time
+                trustedTestsAdded = search.equals(IcebarSearchAlgorithm.IDDFS)?iterationTrustedTests.addAll(counterexampleTests):newGlobalTests;
+                globalTestsAdded = trustedTestsAdded;
+                if (newGlobalTests)
+                    journal(journal -> journal.trustedTestsAdded(counterexampleTests));
+                addLocalTrustedTests = false;
+            } else { //local trusted tests except from original
+                trustedTestsAdded = !counterexampleTests.isEmpty();
+                addLocalTrustedTests = true;
+            }
+            if (!counterexampleTests.isEmpty()) {
+                Set<BeAFixTest> localTrustedTests = new HashSet<>(current.trustedTests());
+                Set<BeAFixTest> localUntrustedTests = new HashSet<>(current.untrustedTests());
+                if (addLocalTrustedTests) {
+                    localTrustedTests.addAll(counterexampleTests);
+                }
+                if (trustedTestsAdded) {
+                    FixCandidate newCandidate = FixCandidate.descendant(modelToRepair, localUntrustedTests, localTrustedTests, current);
+                    newCandidate.repairedProperties(repairedPropertiesForCurrent);
+                    newCandidate.totalProperties(totalPropertiesForCurrent);
+                    if (newCandidate.hasLocalTests() || globalTestsAdded) {
+                        newCandidates.add(newCandidate);
+                        counterexampleTests.forEach(trustedTests::addHash);
+                        journal(journal -> journal.testHashesAdded(SearchJournal.TRUSTED_HASHES, counterexampleTests));
+                    } else {
+                        logger.warning("Candidate " + newCandidate.id() + " is invalid (no new tests could be added)");
+                    }
                 }
             }
-            if (justRunningARepairOnce() && !noTests && !repairFound) {
-                logger.info("ICEBAR running ARepair once could not find a fix");
-                Report report = Report.arepairOnceNoFixFound(totalTestsGenerated, beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
-                writeReport(report);
-                return Optional.empty();
+            boolean counterexamples = !counterexampleTests.isEmpty();
+            boolean untrustedCounterexamples = !counterexampleUntrustedTests.isEmpty();
+            boolean predicates = !predicateTests.isEmpty();
+            boolean relaxedPredicates = relaxedPredicateTests != null && !relaxedPredicateTests.isEmpty();
+            boolean relaxedAssertions = relaxedAssertionsTests != null && !relaxedAssertionsTests.isEmpty();
+            if ((!counterexamples) && untrustedCounterexamples) {
+                if (createBranches(current, counterexampleUntrustedTests, true, repairedPropertiesForCurrent, totalPropertiesForCurrent, newCandidates) == BRANCHING_ERROR) {
+                    logger.severe("Branching error!");
+                    return endSearch(null, null, null);
+                }
+            }
+            if (((!counterexamples && !untrustedCounterexamples)) && predicates) {
+                if (createBranches(current, predicateTests, false, repairedPropertiesForCurrent, totalPropertiesForCurrent, newCandidates) == BRANCHING_ERROR) {
+                    logger.severe("Branching error!");
+                    return endSearch(null, null, null);
+                }
+            }
+            if (((!counterexamples && !untrustedCounterexamples && !predicates)) && relaxedPredicates) {
+                if (createBranches(current, relaxedPredicateTests, false, repairedPropertiesForCurrent, totalPropertiesForCurrent, newCandidates) == BRANCHING_ERROR) {
+                    logger.severe("Branching error!");
+                    return endSearch(null, null, null);
+                }
             }
-            if (justRunningARepairOnce() && !noTests && repairFound) {
-                logger.info("ICEBAR running ARepair once found a spurious fix");
-                Report report = Report.arepairOnceSpurious(totalTestsGenerated, beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
+            if (((!counterexamples && !untrustedCounterexamples && !predicates && !relaxedPredicates)) && relaxedAssertions) {
+                if (createBranches(current, relaxedAssertionsTests, false, repairedPropertiesForCurrent, totalPropertiesForCurrent, newCandidates) == BRANCHING_ERROR) {
+                    logger.severe("Branching error!");
+                    return endSearch(null, null, null);
+                }
+            }
+            totalTestsGenerated += beAFixResult.generatedTests() + (relaxedPredicateTests==null?0:relaxedPredicateTests.size()) + (relaxedAssertionsTests==null?0:relaxedAssertionsTests.size());
+            logger.info("Total tests generated: " + totalTestsGenerated);
+            beAFix.testsStartingIndex(Math.max(beAFix.testsStartingIndex(), Math.max(workerBeAFix.testsStartingIndex(), maxIndex)) + 1);
+            trustedTestsCount = trustedCounterexampleTests.size();
+        }
+        int newBranches = 0;
+        if (searchSpace instanceof ConcurrentCandidateSpace) {
+            newBranches = pushCandidates(worker.id(), newCandidates, trustedTestsCount);
+        } else {
+            synchronized (searchLock) {
+                newBranches = pushCandidates(worker.id(), newCandidates, trustedTestsCount);
+            }
+        }
+        logger.info("Generated branches: " + newBranches);
+        return false;
+    }
+
+    /**
+     * Runs the relaxed facts and the assertion forced test generations at the same time, the first one using
+     * {@code worker} and the second one using its sibling worker, which has its own BeAFix output folder and model with
+     * oracle file. Each generation reserves its own range of tests indexes.
+     *
+     * @return the relaxed facts generation result followed by the assertion forced generation result
+     */
+    private BeAFixResult[] runFallbackTestGenerations(SearchWorker worker, FixCandidate repairCandidate) throws IOException {
+        SearchWorker sibling = worker.sibling(Paths.get(WORKERS_FOLDER).toAbsolutePath().resolve("worker_" + worker.id() + "_forced_assertions"));
+        Future<BeAFixResult> forcedAssertionGeneration = worker.submitToSibling(() -> {
+            sibling.beafixTimeCounter().clockStart();
+            try {
+                return runTestGeneration(sibling, repairCandidate, false, true, true);
+            } finally {
+                sibling.beafixTimeCounter().clockEnd();
+            }
+        });
+        try {
+            BeAFixResult relaxedFactsResult = runTestGeneration(worker, repairCandidate, true, false, true);
+            return new BeAFixResult[] {relaxedFactsResult, forcedAssertionGeneration.get()};
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new BeAFixResult[] {BeAFixResult.error("Interrupted while waiting for assertion forced test generation"), null};
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IllegalStateException("Assertion forced test generation ended with an exception", e.getCause());
+        } finally {
+            forcedAssertionGeneration.cancel(true);
+        }
+    }
+
+    /**
+     * Ends the search, writing {@code report} (when not null) only if the search was not already ended by another
+     * candidate evaluation.
+     *
+     * @return always {@code true}
+     */
+    private boolean endSearch(Report report, FixCandidate fix, SearchWorker fixWorker) throws IOException {
+        synchronized (searchLock) {
+            if (searchEnded)
+                return true;
+            searchEnded = true;
+            this.fix = fix;
+            this.fixWorker = fixWorker;
+            if (report != null)
                 writeReport(report);
-                return Optional.empty();
+        }
+        return true;
+    }
+
+    /**
+     * Ends the search with a timeout report if the deadline given by {@code timeout} was reached, ARepair and BeAFix
+     * processes running at that moment are destroyed when it is reached, ending in error.
+     *
+     * @return {@code true} if the deadline was reached
+     */
+    private boolean endSearchIfDeadlineReached(FixCandidate current) throws IOException {
+        if (!deadline.reached())
+            return false;
+        logger.info("ICEBAR timeout (" + timeout + " minutes) reached");
+        Report report = Report.timeout(current, current.untrustedTests().size() + current.trustedTests().size() + trustedCounterexampleTestsCount(), beafixTimeCounter(), arepairTimeCounter(), arepairCalls, generateTestsAndCandidateCounters());
+        return endSearch(report, null, null);
+    }
+
+    /**
+     * Discards the branch rooted at {@code current} after one of its ARepair or BeAFix calls was destroyed for exceeding
+     * its call budget or for stalling, the search goes on with the remaining candidates.
+     *
+     * @return always {@code false}
+     */
+    private boolean discardAbandonedBranch(FixCandidate current, String message) {
+        int abandoned;
+        synchronized (searchLock) {
+            abandoned = ++abandonedCalls;
+        }
+        logger.warning("Discarding candidate " + current.id() + " (" + abandoned + " abandoned calls so far): " + message);
+        return false;
+    }
+
+    private boolean searchEnded() {
+        synchronized (searchLock) {
+            return searchEnded;
+        }
+    }
+
+    /**
+     * Runs a test generation on {@code worker}. When several generations can run at the same time (several workers are
+     * used, or {@code concurrent} is set) each one gets its own range of tests indexes, a generation using more indexes
+     * than reserved is run again with a larger range, since its tests could be named as the ones generated by another
+     * generation.
+     */
+    private BeAFixResult runTestGeneration(SearchWorker worker, FixCandidate repairCandidate, boolean relaxedFacts, boolean forceAssertionGeneration, boolean concurrent) throws IOException {
+        boolean reserveIndexes = concurrent || useWorkersPool();
+        while (true) {
+            int testsStartingIndex;
+            int reservedIndexes;
+            synchronized (searchLock) {
+                //the main worker's BeAFix is the one holding the next index, so it can't be used to keep track of reservations
+                testsStartingIndex = Math.max(beAFix.testsStartingIndex(), reservedTestsIndexes);
+                reservedIndexes = testsIndexRange;
+                reservedTestsIndexes = testsStartingIndex + (reserveIndexes?reservedIndexes:0);
+            }
+            worker.beAFix().testsStartingIndex(testsStartingIndex);
+            BeAFixResult beAFixResult = runBeAFixWithCurrentConfig(worker, repairCandidate, BeAFixMode.TESTS, relaxedFacts, forceAssertionGeneration);
+            if (!reserveIndexes || beAFixResult.error() || beAFixResult.abandoned())
+                return beAFixResult;
+            beAFixResult.parseAllTests();
+            int usedIndexes = beAFixResult.getMaxIndex() - testsStartingIndex + 1;
+            if (usedIndexes <= reservedIndexes)
+                return beAFixResult;
+            synchronized (searchLock) {
+                testsIndexRange = Math.max(testsIndexRange, 2 * usedIndexes);
+                logger.warning("Test generation used " + usedIndexes + " indexes but only " + reservedIndexes + " were reserved, generating again reserving " + testsIndexRange);
             }
         }
-        logger.info("ICEBAR ended with no more candidates");
-        Report report = Report.exhaustedSearchSpace(maxReachedLap, totalTestsGenerated, beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
-        writeReport(report);
-        return Optional.empty();
     }
 
-    private Pair<Boolean, FixCandidate> analyzeBeAFixCheck(BeAFixResult beAFixCheckResult, TimeCounter beafixTimeCounter, TimeCounter arepairTimeCounter, TimeCounter totalTime, FixCandidate current, FixCandidate repairCandidate) throws IOException {
+    private int trustedCounterexampleTestsCount() {
+        synchronized (searchLock) {
+            return trustedCounterexampleTests.size();
+        }
+    }
+
+    private boolean analyzeBeAFixCheck(BeAFixResult beAFixCheckResult, SearchWorker worker, FixCandidate current, FixCandidate repairCandidate) throws IOException {
         totalTime.updateTotalTime();
+        if (endSearchIfDeadlineReached(current))
+            return true;
         if (beAFixCheckResult.error()) {
             logger.severe("BeAFix check ended in error, ending search");
-            Report report = Report.beafixCheckFailed(current, current.untrustedTests().size() + current.trustedTests().size() + trustedCounterexampleTests.size(), beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
-            writeReport(report);
-            return new Pair<>(true, null);
+            Report report = Report.beafixCheckFailed(current, current.untrustedTests().size() + current.trustedTests().size() + trustedCounterexampleTestsCount(), beafixTimeCounter(), arepairTimeCounter(), arepairCalls, generateTestsAndCandidateCounters());
+            return endSearch(report, null, null);
         } else if (beAFixCheckResult.checkResult()) {
             logger.fine("BeAFix validated the repair, fix found");
-            Report report = Report.repairFound(current, current.untrustedTests().size() + current.trustedTests().size() + trustedCounterexampleTests.size(), beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
-            writeReport(report);
-            return new Pair<>(true, repairCandidate);
+            Report report = Report.repairFound(current, current.untrustedTests().size() + current.trustedTests().size() + trustedCounterexampleTestsCount(), beafixTimeCounter(), arepairTimeCounter(), arepairCalls, generateTestsAndCandidateCounters());
+            return endSearch(report, repairCandidate, worker);
         } else {
             logger.fine("BeAFix found the model to be invalid, generate tests and continue searching");
-            evaluatedCandidatesLeadingToSpurious++;
-            if (current.depth() < laps) {
-                if (timeout > 0) {
-                    if (totalTime.toMinutes() >= timeout) {
-                        logger.fine("ICEBAR timeout (" + timeout + " minutes) reached");
-                        Report report = Report.timeout(current, current.untrustedTests().size() + current.trustedTests().size() + trustedCounterexampleTests.size(), beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
-                        writeReport(report);
-                        return new Pair<>(true, null);
-                    }
-                }
+            synchronized (searchLock) {
+                evaluatedCandidatesLeadingToSpurious++;
             }
-            return new Pair<>(false, null);
+            return false;
         }
     }
 
-    private BeAFixResult runBeAFixCheck(TimeCounter beafixTimeCounter, FixCandidate repairCandidate) {
+    private BeAFixResult runBeAFixCheck(SearchWorker worker, FixCandidate repairCandidate) {
         logger.fine("Validating current candidate with BeAFix");
-        beafixTimeCounter.clockStart();
-        BeAFixResult beAFixCheckResult = runBeAFixWithCurrentConfig(repairCandidate, BeAFixMode.CHECK, false, false);
-        beafixTimeCounter.clockEnd();
+        worker.beafixTimeCounter().clockStart();
+        BeAFixResult beAFixCheckResult = null;
+        if (oracleCheckCache != null) {
+            try {
+                beAFixCheckResult = oracleCheckCache.check(repairCandidate.modelToRepair(), oracle, o -> runBeAFixWithCurrentConfig(worker, repairCandidate, o, BeAFixMode.CHECK, false, false));
+            } catch (IOException e) {
+                logger.warning("Couldn't use oracle check cache, will check the whole oracle\n" + Utils.exceptionToString(e));
+            }
+        }
+        if (beAFixCheckResult == null)
+            beAFixCheckResult = runBeAFixWithCurrentConfig(worker, repairCandidate, BeAFixMode.CHECK, false, false);
+        worker.beafixTimeCounter().clockEnd();
         logger.fine( "BeAFix check finished\n" + beAFixCheckResult.toString());
         return beAFixCheckResult;
     }
 
-    private ARepairResult runARepair(TimeCounter arepairTimeCounter, FixCandidate current) throws IOException {
+    private ARepairResult runARepair(SearchWorker worker, FixCandidate current) throws IOException {
         logger.fine("Repairing current candidate\n" + current);
-        arepairTimeCounter.clockStart();
-        ARepairResult aRepairResult = runARepairWithCurrentConfig(current);
-        arepairTimeCounter.clockEnd();
-        writeCandidateInfo(current, trustedCounterexampleTests, aRepairResult);
+        worker.arepairTimeCounter().clockStart();
+        ARepairResult aRepairResult = runARepairWithCurrentConfig(worker, current);
+        worker.arepairTimeCounter().clockEnd();
+        synchronized (searchLock) {
+            writeCandidateInfo(current, trustedCounterexampleTests, aRepairResult);
+        }
         logger.fine("ARepair finished\n" + aRepairResult.toString());
         return aRepairResult;
     }
 
-    private void initializeSearchSpaces() {
-        if (search.equals(IcebarSearchAlgorithm.DFS)) {
+    private void initializeSearchSpaces() throws IOException {
+        if (search.equals(IcebarSearchAlgorithm.BEAM)) {
+            searchSpace = new BeamCandidateSpace(beamWidth);
+        } else if (useWorkersPool() && search.equals(IcebarSearchAlgorithm.IDDFS)) {
+            searchSpace = ConcurrentCandidateSpace.normalStack(jobs);
+        } else if (useWorkersPool() && search.equals(IcebarSearchAlgorithm.BEST_FIRST)) {
+            searchSpace = ConcurrentCandidateSpace.bestFirst(jobs, bestFirstCost);
+        } else if (useWorkersPool() && search.equals(IcebarSearchAlgorithm.DFS)) {
+            searchSpace = usePrioritization ?ConcurrentCandidateSpace.priorityStack(jobs):ConcurrentCandidateSpace.normalStack(jobs);
+        } else if (useWorkersPool() && search.equals(IcebarSearchAlgorithm.BFS)) {
+            searchSpace = usePrioritization ?ConcurrentCandidateSpace.priorityQueue(jobs):ConcurrentCandidateSpace.normalQueue(jobs);
+        } else if (search.equals(IcebarSearchAlgorithm.IDDFS)) {
+            searchSpace = CandidateSpace.normalStack();
+        } else if (search.equals(IcebarSearchAlgorithm.BEST_FIRST)) {
+            searchSpace = CandidateSpace.bestFirst(bestFirstCost);
+        } else if (search.equals(IcebarSearchAlgorithm.DFS)) {
             searchSpace = usePrioritization ?CandidateSpace.priorityStack():CandidateSpace.normalStack();
         } else if (search.equals(IcebarSearchAlgorithm.BFS)) {
             searchSpace = usePrioritization ?CandidateSpace.priorityQueue():CandidateSpace.normalQueue();
         } else {
             throw new IllegalStateException("Search mode unavailable (" + search + ")");
         }
-        FixCandidate originalCandidate = FixCandidate.initialCandidate(modelToRepair);
-        searchSpace.push(originalCandidate);
+        if (frontierMemory > 0) {
+            if (searchSpace instanceof CandidateSpace && !search.equals(IcebarSearchAlgorithm.IDDFS)) {
+                logger.info("Candidates exceeding " + frontierMemory + "MB will be stored in " + FRONTIER_SPILL_FILE);
+                ((CandidateSpace) searchSpace).spillTo(Paths.get(FRONTIER_SPILL_FILE).toAbsolutePath(), frontierMemory * 1024L * 1024L);
+            } else {
+                logger.warning("Frontier memory budget is ignored when using " + search + (useWorkersPool()?" with more than one job":""));
+            }
+        }
+        initialCandidate = FixCandidate.initialCandidate(modelToRepair);
+        if (!search.equals(IcebarSearchAlgorithm.IDDFS) && !resume)
+            searchSpace.push(0, initialCandidate);
     }
 
-    private FixCandidate nextCandidate() {
-        if (!searchSpace.isEmpty())
-            return searchSpace.pop();
-        return null;
+    /**
+     * Starts journaling the search, or, when resuming, restores the search state from the journal: candidates not
+     * evaluated by the previous run are pushed again, along with the global trusted tests, test hashes, counters, and
+     * time totals recorded when the last candidate evaluation ended.
+     */
+    private void initializeJournal() throws IOException {
+        if (checkpoint == null)
+            return;
+        if (search.equals(IcebarSearchAlgorithm.IDDFS)) {
+            logger.warning("Checkpoints are not supported when using " + search + (resume?", starting a new search":""));
+            if (resume)
+                searchSpace.push(0, initialCandidate);
+            return;
+        }
+        String searchId = ModelHashes.hash(ModelHashes.canonicalHash(modelToRepair), ModelHashes.canonicalHash(oracle), search.name());
+        SearchJournal.State state = resume?SearchJournal.read(checkpoint, searchId):null;
+        if (state != null && state.counters == null) {
+            logger.info("No candidate evaluation was journaled in " + checkpoint + ", starting a new search");
+            searchSpace.push(0, initialCandidate);
+            state = null;
+        }
+        if (state == null) {
+            logger.info("Journaling search state to " + checkpoint);
+            journal = SearchJournal.create(checkpoint, searchId);
+            journal(journal -> journal.pushed(0, initialCandidate, ""));
+            return;
+        }
+        logger.info("Resuming search from " + checkpoint + " with " + state.pending.size() + " candidates");
+        synchronized (searchLock) {
+            trustedCounterexampleTests.addAll(state.trustedTests);
+            state.trustedHashes.forEach(trustedTests::addHash);
+            state.untrustedHashes.forEach(untrustedTests::addHash);
+            pushedSuites.addAll(state.pushedSuites);
+            if (state.counters != null) {
+                SearchJournal.Counters counters = state.counters;
+                totalTestsGenerated = counters.totalTestsGenerated;
+                arepairCalls = counters.aRepairCalls;
+                evaluatedCandidates = counters.evaluatedCandidates;
+                evaluatedCandidatesLeadingToNoFix = counters.evaluatedCandidatesLeadingToNoFix;
+                evaluatedCandidatesLeadingToSpurious = counters.evaluatedCandidatesLeadingToSpurious;
+                maxReachedLap = counters.maxReachedLap;
+                beAFix.testsStartingIndex(Math.max(beAFix.testsStartingIndex(), counters.testsStartingIndex));
+                resumedARepairNanoSeconds = counters.aRepairNanoSeconds;
+                resumedBeAFixNanoSeconds = counters.beAFixNanoSeconds;
+                totalTime.add(counters.totalNanoSeconds);
+            }
+            state.pending.forEach((candidate, worker) -> searchSpace.push(worker < workers.size()?worker:0, candidate));
+        }
+        journal = SearchJournal.resume(checkpoint, state);
+    }
+
+    @FunctionalInterface
+    private interface JournalEntry {
+        void write(SearchJournal journal) throws IOException;
+    }
+
+    /**
+     * Writes an entry to the search journal, if any. A failed write doesn't stop the search, but disables the journal.
+     */
+    private void journal(JournalEntry entry) {
+        if (journal == null)
+            return;
+        synchronized (searchLock) {
+            if (journal == null)
+                return;
+            try {
+                entry.write(journal);
+            } catch (IOException e) {
+                logger.severe("Couldn't write to search journal (" + checkpoint + "), checkpoints disabled\n" + Utils.exceptionToString(e));
+                closeJournal();
+            }
+        }
+    }
+
+    private void closeJournal() {
+        synchronized (searchLock) {
+            if (journal == null)
+                return;
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.warning("Couldn't close search journal (" + checkpoint + ")\n" + Utils.exceptionToString(e));
+            }
+            journal = null;
+        }
+    }
+
+    private SearchJournal.Counters journaledCounters() {
+        totalTime.updateTotalTime();
+        long aRepairNanoSeconds = arepairTimeCounter().totalNanoSeconds();
+        long beAFixNanoSeconds = beafixTimeCounter().totalNanoSeconds();
+        synchronized (searchLock) {
+            return new SearchJournal.Counters(totalTestsGenerated, arepairCalls, evaluatedCandidates,
+                    evaluatedCandidatesLeadingToNoFix, evaluatedCandidatesLeadingToSpurious, maxReachedLap,
+                    beAFix.testsStartingIndex(), aRepairNanoSeconds, beAFixNanoSeconds, totalTime.totalNanoSeconds());
+        }
+    }
+
+    private void initializeDeadline(Deadline deadline) {
+        this.deadline = deadline;
+        aRepair.deadline(deadline);
+        beAFix.deadline(deadline);
+        for (SearchWorker worker : workers) {
+            worker.aRepair().deadline(deadline);
+            worker.beAFix().deadline(deadline);
+        }
+    }
+
+    private void initializeWorkers() throws IOException {
+        workers = new LinkedList<>();
+        if (useWorkersPool() || usePipelining()) {
+            Path workersFolder = Paths.get(WORKERS_FOLDER).toAbsolutePath();
+            if (workersFolder.toFile().exists())
+                deleteFolderAndItsContent(workersFolder);
+            int workersCount = useWorkersPool()?jobs:2;
+            for (int w = 0; w < workersCount; w++) {
+                workers.add(SearchWorker.isolatedWorker(w, aRepair, beAFix, modelToRepair, workersFolder.resolve("worker_" + w)));
+            }
+        } else {
+            workers.add(SearchWorker.mainWorker(aRepair, beAFix, modelToRepair));
+        }
+    }
+
+    private FixCandidate nextCandidate(SearchWorker worker) {
+        if (searchSpace instanceof ConcurrentCandidateSpace)
+            return searchSpace.poll(worker.id());
+        synchronized (searchLock) {
+            return searchSpace.poll(worker.id());
+        }
+    }
+
+    /**
+     * Pushes new candidates, when using a {@link ConcurrentCandidateSpace} this is done without holding the search lock.
+     *
+     * @return how many candidates were pushed
+     */
+    private int pushCandidates(int worker, List<FixCandidate> candidates, int trustedTestsCount) {
+        int pushed = 0;
+        for (FixCandidate candidate : candidates) {
+            if (pushCandidate(worker, candidate, trustedTestsCount))
+                pushed++;
+        }
+        return pushed;
+    }
+
+    /**
+     * Pushes a new candidate, unless a candidate with the same effective test suite (the same local tests, and the
+     * same {@code trustedTestsCount} global trusted tests) was already pushed.
+     *
+     * @return {@code true} if the candidate was pushed
+     */
+    private boolean pushCandidate(int worker, FixCandidate candidate, int trustedTestsCount) {
+        List<BeAFixTest> localTests = new LinkedList<>(candidate.untrustedTests());
+        localTests.addAll(candidate.trustedTests());
+        String suiteKey = TestHashes.fingerprint(localTests) + "/" + trustedTestsCount;
+        if (!pushedSuites.add(suiteKey)) {
+            logger.fine("Candidate " + candidate.id() + " dropped, a candidate with the same test suite was already generated");
+            return false;
+        }
+        if (search.equals(IcebarSearchAlgorithm.IDDFS)) {
+            pushWithinDepthLimit(worker, candidate);
+        } else {
+            searchSpace.push(worker, candidate);
+            journal(journal -> journal.pushed(worker, candidate, suiteKey));
+        }
+        return true;
+    }
+
+    private void pushWithinDepthLimit(int worker, FixCandidate candidate) {
+        if (candidate.depth() > depthLimit) {
+            depthLimitReached = true;
+        } else {
+            searchSpace.push(worker, candidate);
+        }
     }
 
 
     private static final int BRANCHING_ERROR = -1; //TODO: currently not in use
-    private int createBranches(FixCandidate current, List<BeAFixTest> fromTests, boolean multipleBranches, CandidateSpace searchSpace, int repairedPropertiesForCurrent) {
+    private int createBranches(FixCandidate current, List<BeAFixTest> fromTests, boolean multipleBranches, int repairedPropertiesForCurrent, int totalPropertiesForCurrent, List<FixCandidate> newCandidates) {
         int branches = 0;
         for (List<BeAFixTest> combination : createBranchesCombinations(fromTests, multipleBranches)) {
             if (combination.isEmpty())
@@ -375,10 +1062,12 @@ public class IterativeCEBasedAlloyRepair {
             localUntrustedTests.addAll(combination);
             FixCandidate newCandidate = FixCandidate.descendant(modelToRepair, localUntrustedTests, localTrustedTests, current);
             newCandidate.repairedProperties(repairedPropertiesForCurrent);
+            newCandidate.totalProperties(totalPropertiesForCurrent);
             if (newCandidate.hasLocalTests()) {
-                searchSpace.push(newCandidate);
+                newCandidates.add(newCandidate);
                 branches++;
                 combination.forEach(untrustedTests::addHash);
+                journal(journal -> journal.testHashesAdded(SearchJournal.UNTRUSTED_HASHES, combination));
             } else {
                 logger.warning("Candidate " + newCandidate.id() + " is invalid (no new tests could be added)");
             }
@@ -441,39 +1130,43 @@ public class IterativeCEBasedAlloyRepair {
         }
     }
 
-    private boolean checkIfInvalidAndReportBeAFixResults(BeAFixResult beAFixResult, FixCandidate current, TimeCounter beafixTimeCounter, TimeCounter arepairTimeCounter) throws IOException {
+    private boolean checkIfInvalidAndReportBeAFixResults(BeAFixResult beAFixResult, FixCandidate current) throws IOException {
         if (!beAFixResult.error()) {
             String beafixMsg = "BeAFix finished\n";
-            if (!beAFixResult.isCheck()) {
+            if (!beAFixResult.isCheck() && !beAFixResult.testsParsed()) {
                 beAFixResult.parseAllTests();
             }
             beafixMsg += beAFixResult + "\n";
             logger.fine(beafixMsg);
             return false;
         } else {
+            if (endSearchIfDeadlineReached(current))
+                return true;
             logger.severe("BeAFix test generation ended in error, ending search");
-            Report report = Report.beafixGenFailed(current, totalTestsGenerated, beafixTimeCounter, arepairTimeCounter, arepairCalls, generateTestsAndCandidateCounters());
-            writeReport(report);
-            return true;
+            Report report = Report.beafixGenFailed(current, totalTestsGenerated, beafixTimeCounter(), arepairTimeCounter(), arepairCalls, generateTestsAndCandidateCounters());
+            return endSearch(report, null, null);
         }
     }
 
-    private ARepairResult runARepairWithCurrentConfig(FixCandidate candidate) {
-        if (!aRepair.cleanFixDirectory())
+    private ARepairResult runARepairWithCurrentConfig(SearchWorker worker, FixCandidate candidate) throws IOException {
+        ARepair aRepair = worker.aRepair();
+        ARepairPortfolio portfolio = aRepairPortfolio.isEmpty()?null:worker.aRepairPortfolio(aRepairPortfolio, Paths.get(WORKERS_FOLDER).toAbsolutePath().resolve("worker_" + worker.id() + "_portfolio"));
+        if (!(portfolio == null?aRepair.cleanFixDirectory():portfolio.cleanFixDirectories()))
             logger.warning("There was a problem cleaning ARepair .hidden folder, will keep going (cross your fingers)");
-        List<BeAFixTest> tests = new LinkedList<>(trustedCounterexampleTests);
+        List<BeAFixTest> tests;
+        synchronized (searchLock) {
+            tests = new LinkedList<>(trustedCounterexampleTests);
+        }
         tests.addAll(candidate.untrustedTests());
         tests.addAll(candidate.trustedTests());
         if (tests.isEmpty() && (initialTests == null || initialTests.getInitialTests().isEmpty()))
-            return ARepairResult.NO_TESTS;
-        Path testsPath = Paths.get(modelToRepair.toAbsolutePath().toString().replace(".als", "_tests.als"));
+            return ARepairResult.noTests();
+        Path testsPath = worker.testsPath();
         File testsFile = testsPath.toFile();
         if (testsFile.exists()) {
             if (!testsFile.delete()) {
                 logger.severe("Couldn't delete tests file (" + testsFile + ")");
-                ARepairResult error = ARepairResult.ERROR;
-                error.message("Couldn't delete tests file (" + testsFile + ")");
-                return error;
+                return ARepairResult.error("Couldn't delete tests file (" + testsFile + ")");
             }
         }
         int testCount;
@@ -484,23 +1177,87 @@ public class IterativeCEBasedAlloyRepair {
             testCount = generateTestsFile(tests, testsPath);
         } catch (IOException e) {
             logger.severe("An exception occurred while trying to generate tests file\n" + Utils.exceptionToString(e) + "\n");
-            ARepairResult error = ARepairResult.ERROR;
-            error.message(Utils.exceptionToString(e));
-            return error;
+            return ARepairResult.error(Utils.exceptionToString(e));
         }
         logger.fine("Running ARepair with " + testCount + " tests");
         writeTestsToLog(tests, logger);
-        aRepair.testsPath(testsPath);
-        logger.fine("Executing ARepair:\n" + aRepair.aRepairCommandToString());
-        ARepairResult aRepairResult = aRepair.run();
+        String suiteFingerprint = TestHashes.fingerprint(tests);
+        ARepairResult memoizedResult = aRepairMemo.get(suiteFingerprint);
+        if (memoizedResult != null) {
+            logger.fine("Reusing ARepair result for an already evaluated test suite (" + suiteFingerprint + ")");
+            ARepairResult aRepairResult = memoizedResult.copy();
+            aRepairResult.usedTests(tests);
+            return aRepairResult;
+        }
+        String cacheKey = null;
+        if (aRepairCache != null) {
+            Optional<ARepairResult> cachedResult = Optional.empty();
+            try {
+                cacheKey = ARepairCache.key(modelToRepair, suiteFingerprint, portfolio == null?aRepair.parametersToString():portfolio.parametersToString());
+                cachedResult = aRepairCache.get(cacheKey, Paths.get(AREPAIR_MEMO_FOLDER).toAbsolutePath().resolve(suiteFingerprint + ".als"));
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warning("Couldn't read ARepair results cache, will run ARepair\n" + Utils.exceptionToString(e));
+            }
+            if (cachedResult.isPresent()) {
+                logger.fine("Reusing ARepair result from results cache (" + cacheKey + ")");
+                ARepairResult aRepairResult = cachedResult.get();
+                aRepairResult.usedTests(tests);
+                aRepairMemo.putIfAbsent(suiteFingerprint, aRepairResult.copy());
+                return aRepairResult;
+            }
+        }
+        ARepairResult aRepairResult;
+        if (portfolio == null) {
+            aRepair.testsPath(testsPath);
+            logger.fine("Executing ARepair:\n" + aRepair.aRepairCommandToString());
+            aRepairResult = aRepair.run();
+        } else {
+            portfolio.testsPath(testsPath);
+            logger.fine("Executing ARepair portfolio " + portfolio + ":\n" + portfolio.aRepairCommandsToString());
+            aRepairResult = portfolio.run();
+        }
         aRepairResult.usedTests(tests);
-        arepairCalls++;
+        synchronized (searchLock) {
+            arepairCalls++;
+        }
+        if (cacheKey != null) {
+            try {
+                aRepairCache.put(cacheKey, aRepairResult);
+            } catch (IOException e) {
+                logger.warning("Couldn't store ARepair result in results cache\n" + Utils.exceptionToString(e));
+            }
+        }
+        memoizeARepairResult(suiteFingerprint, aRepairResult);
         return aRepairResult;
     }
 
+    /**
+     * Records an ARepair result for a test suite, results ending in error, or destroyed before ending, are not recorded.
+     * Since the worker's fix file will be overwritten by later ARepair calls, the recorded result uses a copy of it.
+     */
+    private void memoizeARepairResult(String suiteFingerprint, ARepairResult aRepairResult) throws IOException {
+        if (aRepairResult.resultType().equals(ARepairResult.ResultType.ERROR) || aRepairResult.abandoned())
+            return;
+        ARepairResult memoizedResult = aRepairResult.copy();
+        memoizedResult.usedTests(Collections.emptyList());
+        if (aRepairResult.hasRepair()) {
+            Path memoFolder = Paths.get(AREPAIR_MEMO_FOLDER).toAbsolutePath();
+            Files.createDirectories(memoFolder);
+            Path memoizedRepair = memoFolder.resolve(suiteFingerprint + ".als");
+            Files.copy(aRepairResult.repair(), memoizedRepair, StandardCopyOption.REPLACE_EXISTING);
+            memoizedResult.repair(memoizedRepair);
+        }
+        aRepairMemo.putIfAbsent(suiteFingerprint, memoizedResult);
+    }
+
     private enum BeAFixMode {TESTS, CHECK}
 
-    private BeAFixResult runBeAFixWithCurrentConfig(FixCandidate candidate, BeAFixMode mode, boolean relaxedFacts, boolean forceAssertionGeneration) {
+    private BeAFixResult runBeAFixWithCurrentConfig(SearchWorker worker, FixCandidate candidate, BeAFixMode mode, boolean relaxedFacts, boolean forceAssertionGeneration) {
+        return runBeAFixWithCurrentConfig(worker, candidate, oracle, mode, relaxedFacts, forceAssertionGeneration);
+    }
+
+    private BeAFixResult runBeAFixWithCurrentConfig(SearchWorker worker, FixCandidate candidate, Path oracle, BeAFixMode mode, boolean relaxedFacts, boolean forceAssertionGeneration) {
+        BeAFix beAFix = worker.beAFix();
         try {
             if (!beAFix.cleanOutputDir()) {
                 return BeAFixResult.error("Couldn't delete BeAFix output directory");
@@ -509,7 +1266,7 @@ public class IterativeCEBasedAlloyRepair {
             logger.severe("An exception occurred when trying to clean BeAFix output directory\n" + exceptionToString(e));
             return BeAFixResult.error("An exception occurred when trying to clean BeAFix output directory\n" + exceptionToString(e));
         }
-        Path modelToCheckWithOraclePath = Paths.get(candidate.modelToRepair().toAbsolutePath().toString().replace(".als", "_withOracle.als"));
+        Path modelToCheckWithOraclePath = worker.withOraclePath(candidate);
         File modelToCheckWithOracleFile = modelToCheckWithOraclePath.toFile();
         if (modelToCheckWithOracleFile.exists()) {
             if (!modelToCheckWithOracleFile.delete()) {
@@ -529,7 +1286,28 @@ public class IterativeCEBasedAlloyRepair {
         beAFix.forceAssertionTestsGeneration(forceAssertionGeneration);
         switch (mode) {
             case TESTS: {
+                String cacheKey = null;
+                if (generatedTestsCache != null) {
+                    try {
+                        cacheKey = GeneratedTestsCache.key(modelToCheckWithOraclePath, beAFix);
+                        Optional<BeAFixResult> cachedResult = generatedTestsCache.get(cacheKey, beAFix);
+                        if (cachedResult.isPresent()) {
+                            logger.fine("Reusing tests generated for an already seen model (" + cacheKey + ")");
+                            beAFixResult = cachedResult.get();
+                            break;
+                        }
+                    } catch (IOException e) {
+                        logger.warning("Couldn't read generated tests cache, will run BeAFix\n" + Utils.exceptionToString(e));
+                    }
+                }
                 beAFixResult = beAFix.runTestGeneration();
+                if (cacheKey != null) {
+                    try {
+                        generatedTestsCache.put(cacheKey, beAFix.testsStartingIndex(), beAFixResult);
+                    } catch (IOException e) {
+                        logger.warning("Couldn't store tests in generated tests cache\n" + Utils.exceptionToString(e));
+                    }
+                }
                 break;
             }
             case CHECK: {
@@ -541,10 +1319,12 @@ public class IterativeCEBasedAlloyRepair {
     }
 
     private Report.TestsAndCandidatesCounters generateTestsAndCandidateCounters() {
-        int totalTests = trustedTests.count() + untrustedTests.count();
-        int trustedTestsUsed = trustedTests.count();
-        int untrustedTestsUsed = untrustedTests.count();
-        return new Report.TestsAndCandidatesCounters(totalTests, trustedTestsUsed, untrustedTestsUsed, evaluatedCandidates, evaluatedCandidatesLeadingToNoFix, evaluatedCandidatesLeadingToSpurious);
+        synchronized (searchLock) {
+            int totalTests = trustedTests.count() + untrustedTests.count();
+            int trustedTestsUsed = trustedTests.count();
+            int untrustedTestsUsed = untrustedTests.count();
+            return new Report.TestsAndCandidatesCounters(totalTests, trustedTestsUsed, untrustedTestsUsed, evaluatedCandidates, evaluatedCandidatesLeadingToNoFix, evaluatedCandidatesLeadingToSpurious);
+        }
     }
 
 }
@@ -0,0 +1,20 @@
+package ar.edu.unrc.exa.dc.search;
+
+/**
+ * The candidates yet to be evaluated. Candidates are pushed and polled on behalf of a worker (see {@link SearchWorker}),
+ * so implementations can keep candidates close to the worker that generated them.
+ */
+public interface SearchFrontier {
+
+    void push(int worker, FixCandidate candidate);
+
+    /**
+     * @return the next candidate to be evaluated by {@code worker}, or {@code null} if there are no candidates left
+     */
+    FixCandidate poll(int worker);
+
+    boolean isEmpty();
+
+    int size();
+
+}
@@ -0,0 +1,316 @@
+package ar.edu.unrc.exa.dc.search;
+
+import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * An append-only binary journal of a search, used to resume an ICEBAR run that was stopped before ending.
+ * <p>
+ * Instead of periodically writing the whole search state, each change is appended as a record: a candidate pushed to
+ * the frontier, a candidate evaluated (along with the counters and time totals at that moment), global trusted tests
+ * added, and test hashes recorded. Tests are written once, the first time a record refers to them, and then referred
+ * to by index. Records are buffered and only flushed after each evaluated candidate, so journaling doesn't slow down
+ * the search.
+ * <p>
+ * Each record is preceded by its length, reading stops at the first incomplete record (i.e.: the run died while
+ * writing it), and the journal is truncated there before new records are appended. The candidates to resume from are
+ * the ones pushed but not evaluated, candidates that were being evaluated when the run died are evaluated again.
+ */
+final class SearchJournal implements Closeable {
+
+    private static final int MAGIC = 0x1CEBA7;
+    private static final int VERSION = 1;
+    private static final byte TEST = 1;
+    private static final byte PUSHED = 2;
+    private static final byte EVALUATED = 3;
+    private static final byte TRUSTED_TESTS = 4;
+    private static final byte TEST_HASHES = 5;
+    static final byte TRUSTED_HASHES = 0;
+    static final byte UNTRUSTED_HASHES = 1;
+
+    /**
+     * Counters and time totals of a search, see {@link IterativeCEBasedAlloyRepair}.
+     */
+    static final class Counters {
+
+        final int totalTestsGenerated;
+        final int aRepairCalls;
+        final int evaluatedCandidates;
+        final int evaluatedCandidatesLeadingToNoFix;
+        final int evaluatedCandidatesLeadingToSpurious;
+        final int maxReachedLap;
+        final int testsStartingIndex;
+        final long aRepairNanoSeconds;
+        final long beAFixNanoSeconds;
+        final long totalNanoSeconds;
+
+        Counters(int totalTestsGenerated, int aRepairCalls, int evaluatedCandidates, int evaluatedCandidatesLeadingToNoFix,
+                 int evaluatedCandidatesLeadingToSpurious, int maxReachedLap, int testsStartingIndex,
+                 long aRepairNanoSeconds, long beAFixNanoSeconds, long totalNanoSeconds) {
+            this.totalTestsGenerated = totalTestsGenerated;
+            this.aRepairCalls = aRepairCalls;
+            this.evaluatedCandidates = evaluatedCandidates;
+            this.evaluatedCandidatesLeadingToNoFix = evaluatedCandidatesLeadingToNoFix;
+            this.evaluatedCandidatesLeadingToSpurious = evaluatedCandidatesLeadingToSpurious;
+            this.maxReachedLap = maxReachedLap;
+            this.testsStartingIndex = testsStartingIndex;
+            this.aRepairNanoSeconds = aRepairNanoSeconds;
+            this.beAFixNanoSeconds = beAFixNanoSeconds;
+            this.totalNanoSeconds = totalNanoSeconds;
+        }
+
+    }
+
+    /**
+     * The search state rebuilt from a journal.
+     */
+    static final class State {
+
+        /**
+         * Candidates pushed but not evaluated, in the order they were pushed, mapped to the worker that pushed them.
+         */
+        final Map<FixCandidate, Integer> pending = new LinkedHashMap<>();
+        final Set<BeAFixTest> trustedTests = new HashSet<>();
+        final List<Integer> trustedHashes = new LinkedList<>();
+        final List<Integer> untrustedHashes = new LinkedList<>();
+        final Set<String> pushedSuites = new HashSet<>();
+        Counters counters = null;
+        private final List<BeAFixTest> tests = new ArrayList<>();
+        private final Map<String, FixCandidate> candidates = new HashMap<>();
+        private long length = 0;
+
+    }
+
+    private final DataOutputStream out;
+    private final Map<BeAFixTest, Integer> testIndexes = new IdentityHashMap<>();
+    private int nextTestIndex = 0;
+
+    private SearchJournal(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+    }
+
+    /**
+     * Starts a new journal, replacing any existing one.
+     *
+     * @param search identifies the search (model, oracle and search algorithm), so a journal can't be used to resume a
+     *               different search.
+     */
+    static SearchJournal create(Path file, String search) throws IOException {
+        SearchJournal journal = new SearchJournal(new FileOutputStream(file.toFile()));
+        journal.out.writeInt(MAGIC);
+        journal.out.writeInt(VERSION);
+        journal.out.writeUTF(search);
+        journal.out.flush();
+        return journal;
+    }
+
+    /**
+     * Reads a journal written for {@code search}, ignoring any incomplete record at its end.
+     */
+    static State read(Path file, String search) throws IOException {
+        State state = new State();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file.toFile())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IllegalArgumentException("Not an ICEBAR search journal (" + file + ")");
+            String journalSearch = in.readUTF();
+            if (!journalSearch.equals(search))
+                throw new IllegalArgumentException("Search journal " + file + " belongs to a different search (" + journalSearch + ")");
+            state.length = Integer.BYTES * 2 + 2 + journalSearch.getBytes(StandardCharsets.UTF_8).length;
+            while (true) {
+                byte[] record;
+                try {
+                    record = new byte[in.readInt()];
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    break;
+                }
+                replay(state, new DataInputStream(new ByteArrayInputStream(record)));
+                state.length += Integer.BYTES + record.length;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Continues a journal from {@code state} (obtained by {@link #read(Path, String)}), discarding any incomplete record
+     * at its end.
+     */
+    static SearchJournal resume(Path file, State state) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(state.length);
+        }
+        SearchJournal journal = new SearchJournal(new FileOutputStream(file.toFile(), true));
+        for (BeAFixTest test : state.tests) {
+            journal.testIndexes.put(test, journal.nextTestIndex++);
+        }
+        return journal;
+    }
+
+    private static void replay(State state, DataInputStream record) throws IOException {
+        switch (record.readByte()) {
+            case TEST: {
+                state.tests.add(BeAFixTest.readFrom(record));
+                break;
+            }
+            case PUSHED: {
+                String id = record.readUTF();
+                FixCandidate parent = state.candidates.get(record.readUTF());
+                Path model = Paths.get(record.readUTF());
+                int depth = record.readInt();
+                int repairedProperties = record.readInt();
+                int totalProperties = record.readInt();
+                int worker = record.readInt();
+                String suite = record.readUTF();
+                if (!suite.isEmpty())
+                    state.pushedSuites.add(suite);
+                List<BeAFixTest> untrustedTests = readTests(state, record);
+                List<BeAFixTest> trustedTests = readTests(state, record);
+                FixCandidate candidate = FixCandidate.restored(id, model, depth, untrustedTests, trustedTests, parent);
+                candidate.repairedProperties(repairedProperties);
+                candidate.totalProperties(totalProperties);
+                state.candidates.put(id, candidate);
+                state.pending.put(candidate, worker);
+                break;
+            }
+            case EVALUATED: {
+                FixCandidate candidate = state.candidates.get(record.readUTF());
+                if (candidate != null) {
+                    candidate.markAsEvaluated();
+                    state.pending.remove(candidate);
+                }
+                state.counters = new Counters(record.readInt(), record.readInt(), record.readInt(), record.readInt(),
+                        record.readInt(), record.readInt(), record.readInt(), record.readLong(), record.readLong(), record.readLong());
+                break;
+            }
+            case TRUSTED_TESTS: {
+                state.trustedTests.addAll(readTests(state, record));
+                break;
+            }
+            case TEST_HASHES: {
+                List<Integer> hashes = record.readByte() == TRUSTED_HASHES?state.trustedHashes:state.untrustedHashes;
+                int count = record.readInt();
+                for (int h = 0; h < count; h++) {
+                    hashes.add(record.readInt());
+                }
+                break;
+            }
+            default: throw new IllegalStateException("Corrupted search journal, unknown record");
+        }
+    }
+
+    private static List<BeAFixTest> readTests(State state, DataInput record) throws IOException {
+        int count = record.readInt();
+        List<BeAFixTest> tests = new LinkedList<>();
+        for (int t = 0; t < count; t++) {
+            tests.add(state.tests.get(record.readInt()));
+        }
+        return tests;
+    }
+
+    /**
+     * Records {@code candidate} being pushed by {@code worker}, {@code suite} is the key used to avoid pushing
+     * candidates with the same test suite (empty for the initial candidate).
+     */
+    synchronized void pushed(int worker, FixCandidate candidate, String suite) throws IOException {
+        writeTests(candidate.untrustedTests());
+        writeTests(candidate.trustedTests());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeByte(PUSHED);
+        record.writeUTF(candidate.id());
+        record.writeUTF(candidate.parentId() == null?"":candidate.parentId());
+        record.writeUTF(candidate.modelToRepair().toAbsolutePath().toString());
+        record.writeInt(candidate.depth());
+        record.writeInt(candidate.repairedProperties());
+        record.writeInt(candidate.totalProperties());
+        record.writeInt(worker);
+        record.writeUTF(suite);
+        writeTestIndexes(record, candidate.untrustedTests());
+        writeTestIndexes(record, candidate.trustedTests());
+        writeRecord(bytes);
+    }
+
+    synchronized void trustedTestsAdded(Collection<BeAFixTest> tests) throws IOException {
+        writeTests(tests);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeByte(TRUSTED_TESTS);
+        writeTestIndexes(record, tests);
+        writeRecord(bytes);
+    }
+
+    /**
+     * @param kind either {@link #TRUSTED_HASHES} or {@link #UNTRUSTED_HASHES}
+     */
+    synchronized void testHashesAdded(byte kind, Collection<BeAFixTest> tests) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeByte(TEST_HASHES);
+        record.writeByte(kind);
+        record.writeInt(tests.size());
+        for (BeAFixTest test : tests) {
+            record.writeInt(test.currentTestHashCode());
+        }
+        writeRecord(bytes);
+    }
+
+    /**
+     * Records the end of {@code candidate}'s evaluation, and flushes the journal.
+     */
+    synchronized void evaluated(FixCandidate candidate, Counters counters) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeByte(EVALUATED);
+        record.writeUTF(candidate.id());
+        record.writeInt(counters.totalTestsGenerated);
+        record.writeInt(counters.aRepairCalls);
+        record.writeInt(counters.evaluatedCandidates);
+        record.writeInt(counters.evaluatedCandidatesLeadingToNoFix);
+        record.writeInt(counters.evaluatedCandidatesLeadingToSpurious);
+        record.writeInt(counters.maxReachedLap);
+        record.writeInt(counters.testsStartingIndex);
+        record.writeLong(counters.aRepairNanoSeconds);
+        record.writeLong(counters.beAFixNanoSeconds);
+        record.writeLong(counters.totalNanoSeconds);
+        writeRecord(bytes);
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private void writeTests(Collection<BeAFixTest> tests) throws IOException {
+        for (BeAFixTest test : tests) {
+            if (testIndexes.containsKey(test))
+                continue;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream record = new DataOutputStream(bytes);
+            record.writeByte(TEST);
+            test.writeTo(record);
+            writeRecord(bytes);
+            testIndexes.put(test, nextTestIndex++);
+        }
+    }
+
+    private void writeTestIndexes(DataOutput record, Collection<BeAFixTest> tests) throws IOException {
+        record.writeInt(tests.size());
+        for (BeAFixTest test : tests) {
+            record.writeInt(testIndexes.get(test));
+        }
+    }
+
+    private void writeRecord(ByteArrayOutputStream record) throws IOException {
+        out.writeInt(record.size());
+        record.writeTo(out);
+    }
+
+}
@@ -0,0 +1,142 @@
+package ar.edu.unrc.exa.dc.search;
+
+import ar.edu.unrc.exa.dc.tools.ARepair;
+import ar.edu.unrc.exa.dc.tools.ARepairPortfolio;
+import ar.edu.unrc.exa.dc.tools.BeAFix;
+import ar.edu.unrc.exa.dc.util.TimeCounter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Holds the tools and files used to evaluate one candidate at a time.
+ * <p>
+ * The main worker uses the ARepair and BeAFix instances given to ICEBAR and keeps the original file locations
+ * (tests and model with oracle files next to the model being repaired). Isolated workers own a directory where their
+ * ARepair {@code .hidden} folder, tests file, model with oracle files, BeAFix output folder, and external logs live,
+ * so several of them can evaluate candidates at the same time.
+ */
+public final class SearchWorker {
+
+    private final int id;
+    private final ARepair aRepair;
+    private final BeAFix beAFix;
+    private final Path directory;
+    private final Path testsPath;
+    private final Path modelToRepair;
+    private volatile SearchWorker sibling = null;
+    private ExecutorService siblingExecutor = null;
+    private ARepairPortfolio aRepairPortfolio = null;
+    private final TimeCounter arepairTimeCounter = new TimeCounter();
+    private final TimeCounter beafixTimeCounter = new TimeCounter();
+
+    public static SearchWorker mainWorker(ARepair aRepair, BeAFix beAFix, Path modelToRepair) {
+        Path testsPath = Paths.get(modelToRepair.toAbsolutePath().toString().replace(".als", "_tests.als"));
+        return new SearchWorker(0, aRepair, beAFix, null, testsPath, modelToRepair);
+    }
+
+    public static SearchWorker isolatedWorker(int id, ARepair aRepair, BeAFix beAFix, Path modelToRepair, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path testsPath = directory.resolve(modelToRepair.getFileName().toString().replace(".als", "_tests.als"));
+        return new SearchWorker(id, aRepair.isolatedCopy(directory), beAFix.isolatedCopy(directory), directory, testsPath, modelToRepair);
+    }
+
+    private SearchWorker(int id, ARepair aRepair, BeAFix beAFix, Path directory, Path testsPath, Path modelToRepair) {
+        this.id = id;
+        this.aRepair = aRepair;
+        this.beAFix = beAFix;
+        this.directory = directory;
+        this.testsPath = testsPath;
+        this.modelToRepair = modelToRepair;
+    }
+
+    /**
+     * An isolated worker with this worker's tools configuration, used to run a BeAFix test generation at the same time
+     * as one run by this worker. It is created, in {@code directory}, the first time it is requested.
+     */
+    public SearchWorker sibling(Path directory) throws IOException {
+        if (sibling == null)
+            sibling = isolatedWorker(id, aRepair, beAFix, modelToRepair, directory);
+        return sibling;
+    }
+
+    /**
+     * Runs {@code task} on a thread owned by this worker, used to run its sibling's work at the same time as its own.
+     */
+    public synchronized <T> Future<T> submitToSibling(Callable<T> task) {
+        if (siblingExecutor == null) {
+            siblingExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread siblingThread = new Thread(r, this + " sibling");
+                siblingThread.setDaemon(true);
+                return siblingThread;
+            });
+        }
+        return siblingExecutor.submit(task);
+    }
+
+    /**
+     * Stops the thread used by {@link #submitToSibling(Callable)}, if any.
+     */
+    public synchronized void shutdown() {
+        if (siblingExecutor != null)
+            siblingExecutor.shutdownNow();
+        siblingExecutor = null;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public ARepair aRepair() {
+        return aRepair;
+    }
+
+    public BeAFix beAFix() {
+        return beAFix;
+    }
+
+    public Path testsPath() {
+        return testsPath;
+    }
+
+    public Path withOraclePath(FixCandidate candidate) {
+        if (directory == null)
+            return Paths.get(candidate.modelToRepair().toAbsolutePath().toString().replace(".als", "_withOracle.als"));
+        return directory.resolve(candidate.modelToRepair().getFileName().toString().replace(".als", "_withOracle.als"));
+    }
+
+    /**
+     * The ARepair configurations portfolio used by this worker, created from this worker's ARepair, in
+     * {@code directory}, the first time it is requested.
+     */
+    public ARepairPortfolio aRepairPortfolio(List<String> configurations, Path directory) throws IOException {
+        if (aRepairPortfolio == null)
+            aRepairPortfolio = ARepairPortfolio.fromConfigurations(aRepair, configurations, directory);
+        return aRepairPortfolio;
+    }
+
+    public TimeCounter arepairTimeCounter() {
+        return arepairTimeCounter;
+    }
+
+    public TimeCounter beafixTimeCounter() {
+        return beafixTimeCounter;
+    }
+
+    public TimeCounter siblingBeafixTimeCounter() {
+        return sibling == null?new TimeCounter():sibling.beafixTimeCounter();
+    }
+
+    @Override
+    public String toString() {
+        return "Worker " + id + (directory == null?"":" (" + directory + ")");
+    }
+
+}
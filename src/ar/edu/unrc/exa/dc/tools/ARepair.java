@@ -1,20 +1,33 @@
 package ar.edu.unrc.exa.dc.tools;
 
+import ar.edu.unrc.exa.dc.util.AdaptiveHeap;
+import ar.edu.unrc.exa.dc.util.AdaptiveTimeout;
+import ar.edu.unrc.exa.dc.util.Deadline;
+import ar.edu.unrc.exa.dc.util.InProcessTool;
+import ar.edu.unrc.exa.dc.util.SharedArchive;
+import ar.edu.unrc.exa.dc.util.StallWatchdog;
 import ar.edu.unrc.exa.dc.util.Utils;
+import ar.edu.unrc.exa.dc.util.WorkerPool;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static ar.edu.unrc.exa.dc.util.Utils.*;
 
 public final class ARepair {
 
-    private enum SearchStrategy {
+    public enum SearchStrategy {
         BASE_CHOICE {
             @Override
             public String getName() {
@@ -29,6 +42,14 @@ public final class ARepair {
         };
 
         public abstract String getName();
+
+        public static SearchStrategy fromName(String name) {
+            for (SearchStrategy searchStrategy : values()) {
+                if (searchStrategy.getName().equalsIgnoreCase(name) || searchStrategy.toString().equalsIgnoreCase(name))
+                    return searchStrategy;
+            }
+            throw new IllegalArgumentException("Invalid search strategy (" + name + ")");
+        }
     }
 
     public static final int SCOPE_DEFAULT = 3;
@@ -59,6 +80,14 @@ public final class ARepair {
     private int partitionNum = PARTITION_NUM_DEFAULT;
     private int maxTryPerDepth = MAX_TRY_PER_DEPTH_DEFAULT;
     private boolean treatPartialRepairsAsFixes = false;
+    private Path logsDirectory = null;
+    private Deadline deadline = Deadline.NONE;
+    private AdaptiveTimeout callTimeout = AdaptiveTimeout.disabled();
+    private StallWatchdog stallWatchdog = StallWatchdog.DISABLED;
+    private InProcessTool inProcess = null;
+    private WorkerPool workers = null;
+    private SharedArchive sharedArchive = null;
+    private AdaptiveHeap heapSizing = null;
 
 
     public ARepairResult run() {
@@ -149,6 +178,186 @@ public final class ARepair {
         return this.treatPartialRepairsAsFixes;
     }
 
+    /**
+     * Applies a configuration of the form {@code strategy[:minimumCost[:maxTryPerHole[:partitionNum[:maxTryPerDepth]]]]}
+     * (e.g.: {@code all-combinations:2}), settings not present in the configuration are left unchanged.
+     */
+    public void applyConfiguration(String configuration) {
+        if (configuration == null || configuration.trim().isEmpty())
+            throw new IllegalArgumentException("null or empty ARepair configuration");
+        String[] settings = configuration.trim().split(":");
+        if (settings.length > 5)
+            throw new IllegalArgumentException("Too many settings in ARepair configuration (" + configuration + ")");
+        try {
+            searchStrategyToUse(SearchStrategy.fromName(settings[0].trim()));
+            if (settings.length > 1)
+                setMinimumCost(Integer.parseInt(settings[1].trim()));
+            if (settings.length > 2)
+                setMaxTryPerHole(Integer.parseInt(settings[2].trim()));
+            if (settings.length > 3)
+                setPartitionNum(Integer.parseInt(settings[3].trim()));
+            if (settings.length > 4)
+                setMaxTryPerDepth(Integer.parseInt(settings[4].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in ARepair configuration (" + configuration + ")", e);
+        }
+    }
+
+    public static boolean isValidConfiguration(String configuration) {
+        try {
+            new ARepair().applyConfiguration(configuration);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    public String configurationToString() {
+        return searchStrategy.getName() + ":" + minimumCost + ":" + maxTryPerHole + ":" + partitionNum + ":" + maxTryPerDepth;
+    }
+
+    /**
+     * All the settings that can change the result of a run for the same model and tests.
+     */
+    public String parametersToString() {
+        return "scope=" + scope + ";configuration=" + configurationToString() + ";cache=" + enableCache + ";partialRepairsAsFixes=" + treatPartialRepairsAsFixes;
+    }
+
+    public void setLogsDirectory(Path logsDirectory) {
+        this.logsDirectory = logsDirectory;
+    }
+
+    /**
+     * Sets a deadline for the external processes run by this instance, a process still running when it is reached is
+     * destroyed and the run ends in error.
+     */
+    public void deadline(Deadline deadline) {
+        if (deadline == null)
+            throw new IllegalArgumentException("null deadline");
+        this.deadline = deadline;
+    }
+
+    /**
+     * Sets the per-call time budget, shared by all copies of this instance, a call exceeding it is destroyed and ends
+     * with a {@link ARepairResult.ResultType#TIMEOUT} result.
+     */
+    public void callTimeout(AdaptiveTimeout callTimeout) {
+        if (callTimeout == null)
+            throw new IllegalArgumentException("null call timeout");
+        this.callTimeout = callTimeout;
+    }
+
+    /**
+     * Sizes the heap of each ARepair process from previous calls (see {@link AdaptiveHeap}) instead of using
+     * {@link #setMemory(int)}, shared by all copies of this instance. A {@code null} value goes back to a fixed heap.
+     */
+    public void heapSizing(AdaptiveHeap heapSizing) {
+        this.heapSizing = heapSizing;
+    }
+
+    public AdaptiveTimeout callTimeout() {
+        return callTimeout;
+    }
+
+    /**
+     * ARepair processes that stall (see {@link StallWatchdog}) are destroyed, ending with a
+     * {@link ARepairResult.ResultType#STALLED} result.
+     */
+    public void stallWatchdog(StallWatchdog stallWatchdog) {
+        if (stallWatchdog == null)
+            throw new IllegalArgumentException("null stall watchdog");
+        this.stallWatchdog = stallWatchdog;
+    }
+
+    /**
+     * Runs ARepair inside ICEBAR's JVM (see {@link InProcessTool}), loading the classpath of this instance in its own
+     * class loader, which is replaced after {@code callsPerLoader} calls. Shared by all copies of this instance, calls
+     * made while another in-process call is running are run as a separate process. In-process calls use ICEBAR's heap
+     * and native libraries path instead of {@link #setMemory(int)} and the sat-solvers folder, and are not watched for
+     * stalls. Must be called after setting the classpath.
+     *
+     * @param callsPerLoader how many calls share a class loader, {@code 0} always runs ARepair as a separate process.
+     */
+    public void inProcess(int callsPerLoader) {
+        if (callsPerLoader < 0)
+            throw new IllegalArgumentException("negative calls per class loader (" + callsPerLoader + ")");
+        if (callsPerLoader > 0 && (classpath == null || classpath.isEmpty()))
+            throw new IllegalArgumentException("in-process ARepair requires a classpath");
+        this.inProcess = callsPerLoader == 0?null:new InProcessTool(classpath, PATCHER_CLASS, callsPerLoader);
+    }
+
+    /**
+     * Runs ARepair on long-lived JVMs (see {@link WorkerPool}), started with this instance's memory and sat-solvers
+     * folder, and kept per working directory. Shared by all copies of this instance, used for calls that can't run
+     * in-process (see {@link #inProcess(int)}). Calls run by workers are not watched for stalls. Must be called after
+     * setting the classpath.
+     *
+     * @param jobsPerWorker     how many calls a worker runs before being replaced, {@code 0} runs ARepair as a new
+     *                          process for each call.
+     * @param memoryThresholdMB resident memory, in MB, after which a worker is replaced, {@code 0} means no limit.
+     */
+    public void workers(int jobsPerWorker, int memoryThresholdMB) {
+        if (jobsPerWorker < 0)
+            throw new IllegalArgumentException("negative jobs per worker (" + jobsPerWorker + ")");
+        if (jobsPerWorker > 0 && (classpath == null || classpath.isEmpty()))
+            throw new IllegalArgumentException("ARepair workers require a classpath");
+        this.workers = jobsPerWorker == 0?null:new WorkerPool(classpath, PATCHER_CLASS, jobsPerWorker, memoryThresholdMB);
+    }
+
+    /**
+     * Starts ARepair processes with an AppCDS archive of ARepair's classpath (see {@link SharedArchive}) kept in
+     * {@code directory}, shared by all copies of this instance. Must be called after setting the classpath.
+     *
+     * @return {@code false} if archives are not available for the java command and classpath used.
+     */
+    public boolean sharedArchive(Path directory) throws IOException {
+        if (classpath == null || classpath.isEmpty())
+            throw new IllegalArgumentException("ARepair shared archives require a classpath");
+        SharedArchive sharedArchive = new SharedArchive(directory, "arepair", "java", classpath);
+        this.sharedArchive = sharedArchive.isAvailable()?sharedArchive:null;
+        return sharedArchive.isAvailable();
+    }
+
+    public ARepair copy() {
+        ARepair copy = new ARepair();
+        copy.memory = memory;
+        copy.satSolvers = satSolvers;
+        copy.classpath = classpath == null?null:new LinkedList<>(classpath);
+        copy.workingDirectory = workingDirectory;
+        copy.modelToRepair = modelToRepair;
+        copy.testsPath = testsPath;
+        copy.searchStrategy = searchStrategy;
+        copy.scope = scope;
+        copy.minimumCost = minimumCost;
+        copy.enableCache = enableCache;
+        copy.maxTryPerHole = maxTryPerHole;
+        copy.partitionNum = partitionNum;
+        copy.maxTryPerDepth = maxTryPerDepth;
+        copy.treatPartialRepairsAsFixes = treatPartialRepairsAsFixes;
+        copy.logsDirectory = logsDirectory;
+        copy.deadline = deadline;
+        copy.callTimeout = callTimeout;
+        copy.stallWatchdog = stallWatchdog;
+        copy.inProcess = inProcess;
+        copy.workers = workers;
+        copy.sharedArchive = sharedArchive;
+        copy.heapSizing = heapSizing;
+        return copy;
+    }
+
+    /**
+     * Creates a copy of this ARepair configuration that works on its own directory, ARepair's {@code .hidden} folder
+     * and external logs will be located inside {@code workingDirectory}, while the sat-solvers folder is kept pointing
+     * to the one used by this instance.
+     */
+    public ARepair isolatedCopy(Path workingDirectory) {
+        ARepair copy = copy();
+        copy.satSolvers = this.workingDirectory.toAbsolutePath().resolve(satSolvers);
+        copy.workingDirectory = workingDirectory;
+        copy.logsDirectory = workingDirectory;
+        return copy;
+    }
+
     public boolean cleanFixDirectory() {
         Path hiddenDir = Paths.get(workingDirectory.toAbsolutePath().toString(), AREPAIR_HIDDEN_DIR);
         try {
@@ -162,49 +371,139 @@ public final class ARepair {
 
     //AUXILIARY METHODS
 
-    private static final File aRepairStdOut = new File("aRepairExternalOutput.log");
-    private static final File aRepairStdErr = new File("aRepairExternalError.log");
+    private static final String AREPAIR_STD_OUT = "aRepairExternalOutput.log";
+    private static final String AREPAIR_STD_ERR = "aRepairExternalError.log";
     private static final String NO_FIX_FOUND = "[INFO] Cannot fix the model";
     private static final String FIX_FOUND = "[INFO] Fixed by";
     private static final String ALL_TESTS_PASS = "[INFO] All tests pass";
 
+    private File aRepairStdOut() {
+        return logsDirectory == null?new File(AREPAIR_STD_OUT):logsDirectory.resolve(AREPAIR_STD_OUT).toFile();
+    }
+
+    private File aRepairStdErr() {
+        return logsDirectory == null?new File(AREPAIR_STD_ERR):logsDirectory.resolve(AREPAIR_STD_ERR).toFile();
+    }
+
     private ARepairResult executeARepair() {
         ARepairResult aRepairResult;
+        Process p = null;
         try {
-            String[] args = getARepairCommand();
-            ProcessBuilder pb = new ProcessBuilder(args);
-            pb.directory(workingDirectory.toFile());
-            File errorLog = aRepairStdErr;
-            if (errorLog.exists() && !errorLog.delete())
-                throw new IllegalStateException("An error occurred while trying to delete " + errorLog);
-            pb.redirectError(ProcessBuilder.Redirect.appendTo(errorLog));
-            File outputLog = aRepairStdOut;
-            if (outputLog.exists() && !outputLog.delete())
-                throw new IllegalStateException("An error occurred while trying to delete " + outputLog);
-            pb.redirectOutput(ProcessBuilder.Redirect.appendTo(outputLog));
-            Process p = pb.start();
-            int exitCode = p.waitFor();
+            File errorLog = aRepairStdErr();
+            File outputLog = aRepairStdOut();
+            deleteLogs(outputLog, errorLog);
+            long callBudget = callTimeout.budgetNanos();
+            long start = System.nanoTime();
+            InProcessTool.Result hostedCall = inProcess == null?null:runInProcess(outputLog, errorLog, deadline.within(callBudget));
+            if (workers != null && (hostedCall == null || hostedCall.status().equals(InProcessTool.Status.UNAVAILABLE)))
+                hostedCall = workers.run(workingDirectory, workerJvmOptions(), patcherArguments(), outputLog, errorLog, deadline.within(callBudget));
+            int exitCode;
+            if (hostedCall != null && !hostedCall.status().equals(InProcessTool.Status.UNAVAILABLE)) {
+                if (hostedCall.status().equals(InProcessTool.Status.DEADLINE_REACHED))
+                    return deadlineReached(callBudget);
+                exitCode = hostedCall.exitCode();
+            } else {
+                Deadline callDeadline = deadline.within(callBudget);
+                long inputBytes = modelToRepair.toFile().length() + testsPath.toFile().length();
+                int heap = heapSizing == null?0:heapSizing.heapMB(inputBytes);
+                while (true) {
+                    List<String> jvmOptions = new LinkedList<>(heapSizing == null?jvmOptions():jvmOptions(heapSizing.jvmOptions(heap)));
+                    List<String> archiveOptions = sharedArchive == null?Collections.emptyList():sharedArchive.jvmOptions();
+                    jvmOptions.addAll(archiveOptions);
+                    AdaptiveHeap.Peak peak = null;
+                    try {
+                        ProcessBuilder pb = new ProcessBuilder(getARepairCommand(jvmOptions));
+                        pb.directory(workingDirectory.toFile());
+                        pb.redirectError(ProcessBuilder.Redirect.appendTo(errorLog));
+                        pb.redirectOutput(ProcessBuilder.Redirect.appendTo(outputLog));
+                        p = pb.start();
+                        if (heapSizing != null)
+                            peak = AdaptiveHeap.sample(p);
+                        StallWatchdog.Outcome outcome = stallWatchdog.waitFor(p, callDeadline, outputLog.toPath(), errorLog.toPath());
+                        if (outcome.equals(StallWatchdog.Outcome.STALLED)) {
+                            aRepairResult = ARepairResult.stalled("ARepair made no progress (no output and no CPU time used) for " + stallWatchdog.windowSeconds() + "s, the process was destroyed");
+                            if (findNullPointerExceptionInLog(errorLog.toPath()))
+                                aRepairResult.npeFound();
+                            return aRepairResult;
+                        }
+                        if (outcome.equals(StallWatchdog.Outcome.DEADLINE_REACHED))
+                            return deadlineReached(callBudget);
+                        exitCode = p.exitValue();
+                    } finally {
+                        if (peak != null)
+                            peak.stop();
+                        if (sharedArchive != null)
+                            sharedArchive.ended(archiveOptions, p);
+                    }
+                    if (heapSizing == null)
+                        break;
+                    if (exitCode == 0) {
+                        heapSizing.record(inputBytes, heap, peak.stop());
+                        break;
+                    }
+                    if (heap >= heapSizing.maximumMB() || !(findOutOfMemoryErrorInLog(errorLog.toPath()) || findOutOfMemoryErrorInLog(outputLog.toPath())))
+                        break;
+                    heap = heapSizing.retryHeapMB(heap);
+                    deleteLogs(outputLog, errorLog);
+                }
+            }
+            callTimeout.record(System.nanoTime() - start);
             if (exitCode != 0) {
-                aRepairResult = ARepairResult.ERROR;
-                aRepairResult.message("ARepair ended with exit code " + exitCode + " but no exception was caught");
-                aRepairResult.repair(null);
+                aRepairResult = ARepairResult.error("ARepair ended with exit code " + exitCode + " but no exception was caught");
                 if (findNullPointerExceptionInLog(errorLog.toPath()))
                     aRepairResult.npeFound();
             } else {
                 aRepairResult = checkFix();
             }
-        } catch (IOException | InterruptedException  e) {
-            aRepairResult = ARepairResult.ERROR;
-            aRepairResult.message("An exception was caught when executing ARepair\n" + exceptionToString(e));
+        } catch (InterruptedException e) {
+            if (p != null)
+                Deadline.destroyProcessTree(p);
+            Thread.currentThread().interrupt();
+            aRepairResult = ARepairResult.error("ARepair was interrupted, the process was destroyed");
+        } catch (IOException e) {
+            aRepairResult = ARepairResult.error("An exception was caught when executing ARepair\n" + exceptionToString(e));
         }
         return aRepairResult;
     }
 
+    private static void deleteLogs(File... logs) {
+        for (File log : logs) {
+            if (log.exists() && !log.delete())
+                throw new IllegalStateException("An error occurred while trying to delete " + log);
+        }
+    }
+
+    private ARepairResult deadlineReached(long callBudget) {
+        if (deadline.reached())
+            return ARepairResult.error("ARepair was still running when the deadline was reached, the process was destroyed");
+        callTimeout.recordExceeded(callBudget);
+        return ARepairResult.timeout("ARepair exceeded its call budget (" + TimeUnit.NANOSECONDS.toSeconds(callBudget) + "s), the process was destroyed");
+    }
+
+    /**
+     * Runs ARepair in-process, ARepair writes its fix relative to the current directory, which is ICEBAR's working
+     * directory instead of this instance's, so the fix is moved to where {@link #checkFix()} expects it.
+     */
+    private InProcessTool.Result runInProcess(File outputLog, File errorLog, Deadline callDeadline) throws IOException, InterruptedException {
+        Path fix = workingDirectory.toAbsolutePath().resolve(FIX_FILE).normalize();
+        Path inProcessFix = Paths.get(FIX_FILE).toAbsolutePath().normalize();
+        if (fix.equals(inProcessFix))
+            return inProcess.run(patcherArguments(), outputLog, errorLog, callDeadline, null, null);
+        return inProcess.run(patcherArguments(), outputLog, errorLog, callDeadline,
+                () -> Files.deleteIfExists(inProcessFix),
+                () -> {
+                    if (Files.exists(inProcessFix)) {
+                        Files.createDirectories(fix.getParent());
+                        Files.move(inProcessFix, fix, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                });
+    }
+
     private ARepairResult checkFix() {
         File repair = Paths.get(workingDirectory.toAbsolutePath().toString(), FIX_FILE).toFile();
         ARepairResult result;
         if (!repair.exists()) {
-            result = ARepairResult.NOT_REPAIRED;
+            result = ARepairResult.notRepaired();
             result.message("No fix file found in " + repair);
             return result;
         }
@@ -212,42 +511,39 @@ public final class ARepair {
         Optional<String> fixFound;
         Optional<String> allTestsPass;
         try {
-            fixNotFound = findStringInFile(aRepairStdOut.toPath(), NO_FIX_FOUND);
-            fixFound = findStringInFile(aRepairStdOut.toPath(), FIX_FOUND);
-            allTestsPass = findStringInFile(aRepairStdOut.toPath(), ALL_TESTS_PASS);
+            fixNotFound = findStringInFile(aRepairStdOut().toPath(), NO_FIX_FOUND);
+            fixFound = findStringInFile(aRepairStdOut().toPath(), FIX_FOUND);
+            allTestsPass = findStringInFile(aRepairStdOut().toPath(), ALL_TESTS_PASS);
         } catch (IOException e) {
-            result = ARepairResult.ERROR;
-            result.message("Error while reading output log:\n" + exceptionToString(e));
-            return result;
+            return ARepairResult.error("Error while reading output log:\n" + exceptionToString(e));
         }
         if (fixNotFound.isPresent() && !treatPartialRepairsAsFixes) {
-            result = ARepairResult.NOT_REPAIRED;
+            result = ARepairResult.notRepaired();
             result.message("No fix found");
         } else if (fixFound.isPresent() || allTestsPass.isPresent()) {
             if (fixNotFound.isPresent()){
-                result = ARepairResult.PARTIAL_REPAIR;
+                result = ARepairResult.partialRepair();
                 result.message("Fix is only a partial fix");
             } else if (!fixFound.isPresent()) {
-                result = ARepairResult.REPAIRED;
+                result = ARepairResult.repaired();
                 result.message("All tests passed with no modifications required");
             } else {
-                result = ARepairResult.REPAIRED;
+                result = ARepairResult.repaired();
                 String repairFoundBy = fixFound.get().replace(FIX_FOUND, "");
                 result.message("Fix found (" + repairFoundBy + ") in " + repair);
             }
             result.repair(repair.toPath());
         } else if (fixNotFound.isPresent()) {
-            result = ARepairResult.NOT_REPAIRED;
+            result = ARepairResult.notRepaired();
             result.message("No fix found");
         } else {
-            result = ARepairResult.ERROR;
-            result.message("No 'fix found'/'fix not found' line found in ARepair's output log");
+            result = ARepairResult.error("No 'fix found'/'fix not found' line found in ARepair's output log");
         }
         return result;
     }
 
     private boolean readyToRun() {
-        if (!isValidPath(Paths.get(workingDirectory.toString(), satSolvers.toString()), Utils.PathCheck.DIR))
+        if (!isValidPath(workingDirectory.resolve(satSolvers), Utils.PathCheck.DIR))
             return false;
         if (!isValidPath(modelToRepair, Utils.PathCheck.ALS))
             return false;
@@ -275,27 +571,51 @@ public final class ARepair {
     }
 
     public String aRepairCommandToString() {
-        return String.join(" ", getARepairCommand());
+        return String.join(" ", getARepairCommand(jvmOptions()));
     }
 
-    private String[] getARepairCommand() {
+    private String[] getARepairCommand(List<String> jvmOptionsList) {
         String classpath = this.classpath.isEmpty()?".":this.classpath.stream().map(Path::toString).collect(Collectors.joining(":"));
-        String[] args = new String[23 + (enableCache?1:0)];
+        String[] jvmOptions = jvmOptionsList.toArray(new String[0]);
+        String[] patcherArguments = patcherArguments();
+        String[] args = new String[4 + jvmOptions.length + patcherArguments.length];
         args[0] = "java";
-        args[1] = "-Xms" + memory + "g"; args[2] = "-Xmx" + memory + "g";
-        args[3] = "-Djava.library.path=" + satSolvers.toString();
-        args[4] = "-cp"; args[5] = classpath;
-        args[6] = PATCHER_CLASS;
-        args[7] = "--model-path"; args[8] = "\"" + modelToRepair.toString() + "\"";
-        args[9] = "--test-path"; args[10] = "\"" + testsPath.toString() + "\"";
-        args[11] = "--scope"; args[12] = Integer.toString(scope);
-        args[13] = "--minimum-cost"; args[14] = Integer.toString(minimumCost);
-        args[15] = "--search-strategy"; args[16] = searchStrategy.getName();
-        args[17] = "--max-try-per-hole"; args[18] = Integer.toString(maxTryPerHole);
-        args[19] = "--partition-num"; args[20] = Integer.toString(partitionNum);
-        args[21] = "--max-try-per-depth"; args[22] = Integer.toString(maxTryPerDepth);
+        System.arraycopy(jvmOptions, 0, args, 1, jvmOptions.length);
+        args[1 + jvmOptions.length] = "-cp"; args[2 + jvmOptions.length] = classpath;
+        args[3 + jvmOptions.length] = PATCHER_CLASS;
+        System.arraycopy(patcherArguments, 0, args, 4 + jvmOptions.length, patcherArguments.length);
+        return args;
+    }
+
+    private List<String> jvmOptions() {
+        return jvmOptions(Arrays.asList("-Xms" + memory + "g", "-Xmx" + memory + "g"));
+    }
+
+    /**
+     * Workers run many calls, so they start with a small heap instead of committing the whole heap upfront.
+     */
+    private List<String> workerJvmOptions() {
+        return jvmOptions(heapSizing == null?Collections.singletonList("-Xmx" + memory + "g"):heapSizing.workerJvmOptions());
+    }
+
+    private List<String> jvmOptions(List<String> heapOptions) {
+        List<String> jvmOptions = new LinkedList<>(heapOptions);
+        jvmOptions.add("-Djava.library.path=" + satSolvers.toString());
+        return jvmOptions;
+    }
+
+    private String[] patcherArguments() {
+        String[] args = new String[16 + (enableCache?1:0)];
+        args[0] = "--model-path"; args[1] = "\"" + modelToRepair.toString() + "\"";
+        args[2] = "--test-path"; args[3] = "\"" + testsPath.toString() + "\"";
+        args[4] = "--scope"; args[5] = Integer.toString(scope);
+        args[6] = "--minimum-cost"; args[7] = Integer.toString(minimumCost);
+        args[8] = "--search-strategy"; args[9] = searchStrategy.getName();
+        args[10] = "--max-try-per-hole"; args[11] = Integer.toString(maxTryPerHole);
+        args[12] = "--partition-num"; args[13] = Integer.toString(partitionNum);
+        args[14] = "--max-try-per-depth"; args[15] = Integer.toString(maxTryPerDepth);
         if (enableCache) {
-            args[23] = "--enable-cache";
+            args[16] = "--enable-cache";
         }
         return args;
     }
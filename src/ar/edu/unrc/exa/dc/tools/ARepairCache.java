@@ -0,0 +1,150 @@
+package ar.edu.unrc.exa.dc.tools;
+
+import ar.edu.unrc.exa.dc.util.ModelHashes;
+import ar.edu.unrc.exa.dc.util.Utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A persistent cache of ARepair results, shared between ICEBAR runs.
+ * <p>
+ * Each entry is a folder named after its key (see {@link #key(Path, String, String)}) holding the result's status,
+ * message, and whether a NullPointerException was found, and a copy of the produced fix, if any. Entries are written to
+ * a temporary folder and then moved to their final location, so a partially written entry is never read. When the
+ * cache grows beyond its maximum size, the least recently used entries (those with the oldest last modified time in
+ * their result file, which is updated on every hit) are deleted.
+ */
+public final class ARepairCache {
+
+    private static final String RESULT_FILE = "result.properties";
+    private static final String FIX_FILE = "fix.als";
+    private static final String TEMPORARY_PREFIX = "tmp_";
+    private static final String TYPE = "type";
+    private static final String MESSAGE = "message";
+    private static final String NPE_FOUND = "npe";
+
+    private final Path directory;
+    private final long maxBytes;
+
+    public ARepairCache(Path directory, long maxBytes) throws IOException {
+        if (directory == null)
+            throw new IllegalArgumentException("null directory");
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("non positive max size (" + maxBytes + ")");
+        this.directory = directory.toAbsolutePath();
+        this.maxBytes = maxBytes;
+        Files.createDirectories(this.directory);
+    }
+
+    /**
+     * The key for an ARepair call on {@code model} (identified by its canonical hash, see {@link ModelHashes}), using a
+     * test suite with fingerprint {@code testsFingerprint}, and ARepair {@code parameters} (see
+     * {@link ARepair#parametersToString()}).
+     */
+    public static String key(Path model, String testsFingerprint, String parameters) throws IOException {
+        return ModelHashes.hash(ModelHashes.canonicalHash(model), testsFingerprint, parameters);
+    }
+
+    /**
+     * Looks for a cached result, copying its fix (if any) to {@code fixDestination}.
+     *
+     * @return the cached result, with {@code fixDestination} as repair if it has one, or empty if there is no result
+     * for {@code key}.
+     */
+    public synchronized Optional<ARepairResult> get(String key, Path fixDestination) throws IOException {
+        Path entry = directory.resolve(key);
+        Path resultFile = entry.resolve(RESULT_FILE);
+        if (!Files.exists(resultFile))
+            return Optional.empty();
+        Properties stored = new Properties();
+        try (Reader reader = Files.newBufferedReader(resultFile, StandardCharsets.UTF_8)) {
+            stored.load(reader);
+        }
+        ARepairResult result;
+        switch (ARepairResult.ResultType.valueOf(stored.getProperty(TYPE))) {
+            case REPAIRED: result = ARepairResult.repaired(); break;
+            case PARTIAL_REPAIR: result = ARepairResult.partialRepair(); break;
+            case NOT_REPAIRED: result = ARepairResult.notRepaired(); break;
+            case NO_TESTS: result = ARepairResult.noTests(); break;
+            default: return Optional.empty();
+        }
+        if (stored.containsKey(MESSAGE))
+            result.message(stored.getProperty(MESSAGE));
+        if (Boolean.parseBoolean(stored.getProperty(NPE_FOUND)))
+            result.npeFound();
+        Path fix = entry.resolve(FIX_FILE);
+        if (Files.exists(fix)) {
+            Files.createDirectories(fixDestination.toAbsolutePath().getParent());
+            Files.copy(fix, fixDestination, StandardCopyOption.REPLACE_EXISTING);
+            result.repair(fixDestination);
+        }
+        resultFile.toFile().setLastModified(System.currentTimeMillis());
+        return Optional.of(result);
+    }
+
+    public synchronized void put(String key, ARepairResult result) throws IOException {
+        if (result.resultType().equals(ARepairResult.ResultType.ERROR) || result.abandoned())
+            return;
+        Path entry = directory.resolve(key);
+        if (Files.exists(entry))
+            return;
+        Path temporaryEntry = Files.createTempDirectory(directory, TEMPORARY_PREFIX);
+        Properties stored = new Properties();
+        stored.setProperty(TYPE, result.resultType().name());
+        if (result.hasMessage())
+            stored.setProperty(MESSAGE, result.message());
+        stored.setProperty(NPE_FOUND, Boolean.toString(result.nullPointerExceptionFound()));
+        if (result.hasRepair())
+            Files.copy(result.repair(), temporaryEntry.resolve(FIX_FILE));
+        try (Writer writer = Files.newBufferedWriter(temporaryEntry.resolve(RESULT_FILE), StandardCharsets.UTF_8)) {
+            stored.store(writer, "ARepair result");
+        }
+        try {
+            Files.move(temporaryEntry, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            //another ICEBAR run stored the same key first
+            Utils.deleteFolderAndItsContent(temporaryEntry);
+            return;
+        }
+        evict();
+    }
+
+    private void evict() throws IOException {
+        List<Path> entries;
+        try (Stream<Path> files = Files.list(directory)) {
+            entries = files.filter(e -> !e.getFileName().toString().startsWith(TEMPORARY_PREFIX))
+                    .filter(e -> Files.exists(e.resolve(RESULT_FILE)))
+                    .collect(Collectors.toList());
+        }
+        Map<Path, Long> lastUsed = new HashMap<>();
+        Map<Path, Long> sizes = new HashMap<>();
+        long total = 0;
+        for (Path entry : entries) {
+            lastUsed.put(entry, entry.resolve(RESULT_FILE).toFile().lastModified());
+            long size = entry.resolve(RESULT_FILE).toFile().length() + entry.resolve(FIX_FILE).toFile().length();
+            sizes.put(entry, size);
+            total += size;
+        }
+        entries.sort(Comparator.comparingLong(lastUsed::get));
+        for (Iterator<Path> it = entries.iterator(); total > maxBytes && it.hasNext();) {
+            Path leastRecentlyUsed = it.next();
+            try {
+                Utils.deleteFolderAndItsContent(leastRecentlyUsed);
+            } catch (NoSuchFileException e) {
+                //already evicted by another ICEBAR run
+            }
+            total -= sizes.get(leastRecentlyUsed);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return directory + " (" + maxBytes + " bytes)";
+    }
+
+}
@@ -0,0 +1,117 @@
+package ar.edu.unrc.exa.dc.tools;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Runs several ARepair configurations on the same model and tests at the same time, returning the first result with a
+ * repair and destroying the processes of the remaining ones.
+ * <p>
+ * Each configuration works on its own directory, so each one has its own {@code .hidden} folder and external logs.
+ */
+public final class ARepairPortfolio {
+
+    private static final String CONFIGURATION_FOLDER_PREFIX = "configuration_";
+
+    private final List<ARepair> configurations;
+
+    /**
+     * Creates a portfolio from {@code aRepair}, one copy for each configuration (see
+     * {@link ARepair#applyConfiguration(String)}), using {@code directory/configuration_<i>} as working directory for
+     * the i-th configuration.
+     */
+    public static ARepairPortfolio fromConfigurations(ARepair aRepair, List<String> configurations, Path directory) throws IOException {
+        if (configurations == null || configurations.isEmpty())
+            throw new IllegalArgumentException("null or empty configurations");
+        List<ARepair> aRepairConfigurations = new LinkedList<>();
+        for (int c = 0; c < configurations.size(); c++) {
+            Path configurationDirectory = directory.resolve(CONFIGURATION_FOLDER_PREFIX + c);
+            Files.createDirectories(configurationDirectory);
+            ARepair configuration = aRepair.isolatedCopy(configurationDirectory);
+            configuration.applyConfiguration(configurations.get(c));
+            aRepairConfigurations.add(configuration);
+        }
+        return new ARepairPortfolio(aRepairConfigurations);
+    }
+
+    private ARepairPortfolio(List<ARepair> configurations) {
+        this.configurations = configurations;
+    }
+
+    public void testsPath(Path testsPath) {
+        configurations.forEach(c -> c.testsPath(testsPath));
+    }
+
+    public boolean cleanFixDirectories() {
+        boolean result = true;
+        for (ARepair configuration : configurations) {
+            result &= configuration.cleanFixDirectory();
+        }
+        return result;
+    }
+
+    public ARepairResult run() {
+        ExecutorService executor = Executors.newFixedThreadPool(configurations.size());
+        CompletionService<ARepairResult> race = new ExecutorCompletionService<>(executor);
+        List<Future<ARepairResult>> runs = new LinkedList<>();
+        try {
+            for (ARepair configuration : configurations) {
+                runs.add(race.submit(configuration::run));
+            }
+            ARepairResult notRepaired = null;
+            ARepairResult abandoned = null;
+            ARepairResult error = null;
+            for (int finished = 0; finished < configurations.size(); finished++) {
+                ARepairResult result;
+                try {
+                    result = race.take().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IllegalArgumentException)
+                        throw (IllegalArgumentException) cause;
+                    result = ARepairResult.error("An exception was caught when executing an ARepair configuration\n" + cause);
+                }
+                if (result.hasRepair())
+                    return result;
+                if (result.resultType().equals(ARepairResult.ResultType.ERROR)) {
+                    if (error == null)
+                        error = result;
+                } else if (result.abandoned()) {
+                    if (abandoned == null)
+                        abandoned = result;
+                } else if (notRepaired == null) {
+                    notRepaired = result;
+                }
+            }
+            return notRepaired != null?notRepaired:abandoned != null?abandoned:error;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ARepairResult.error("ARepair portfolio was interrupted, the processes were destroyed");
+        } finally {
+            runs.forEach(r -> r.cancel(true));
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The parameters of all configurations (see {@link ARepair#parametersToString()}), regardless of their order.
+     */
+    public String parametersToString() {
+        return configurations.stream().map(ARepair::parametersToString).sorted().collect(Collectors.joining(",", "portfolio[", "]"));
+    }
+
+    public String aRepairCommandsToString() {
+        return configurations.stream().map(ARepair::aRepairCommandToString).collect(Collectors.joining("\n"));
+    }
+
+    @Override
+    public String toString() {
+        return configurations.stream().map(ARepair::configurationToString).collect(Collectors.joining(", ", "[", "]"));
+    }
+
+}
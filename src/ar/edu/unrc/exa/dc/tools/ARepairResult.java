@@ -4,20 +4,86 @@ import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 
-public enum ARepairResult {
+public final class ARepairResult {
 
-    REPAIRED,
-    NOT_REPAIRED,
-    ERROR,
-    NO_TESTS,
-    PARTIAL_REPAIR;
+    public enum ResultType {REPAIRED, NOT_REPAIRED, ERROR, NO_TESTS, PARTIAL_REPAIR, TIMEOUT, STALLED}
 
+    private final ResultType resultType;
     private String message = null;
     private Path repair = null;
     private boolean npeFound = false;
 
     private List<BeAFixResult.BeAFixTest> usedTests = Collections.emptyList();
 
+    private ARepairResult(ResultType resultType) {
+        this.resultType = resultType;
+    }
+
+    public static ARepairResult repaired() {
+        return new ARepairResult(ResultType.REPAIRED);
+    }
+
+    public static ARepairResult notRepaired() {
+        return new ARepairResult(ResultType.NOT_REPAIRED);
+    }
+
+    public static ARepairResult partialRepair() {
+        return new ARepairResult(ResultType.PARTIAL_REPAIR);
+    }
+
+    public static ARepairResult noTests() {
+        return new ARepairResult(ResultType.NO_TESTS);
+    }
+
+    public static ARepairResult error(String message) {
+        ARepairResult aRepairResult = new ARepairResult(ResultType.ERROR);
+        aRepairResult.message(message);
+        return aRepairResult;
+    }
+
+    /**
+     * A call that was destroyed for exceeding its own time budget (see {@link ARepair#callTimeout}), unlike an
+     * {@link ResultType#ERROR} result it only says something about the call, not about ARepair.
+     */
+    public static ARepairResult timeout(String message) {
+        ARepairResult aRepairResult = new ARepairResult(ResultType.TIMEOUT);
+        aRepairResult.message(message);
+        return aRepairResult;
+    }
+
+    /**
+     * A call that was destroyed for making no progress, see {@link ar.edu.unrc.exa.dc.util.StallWatchdog}.
+     */
+    public static ARepairResult stalled(String message) {
+        ARepairResult aRepairResult = new ARepairResult(ResultType.STALLED);
+        aRepairResult.message(message);
+        return aRepairResult;
+    }
+
+    public ARepairResult copy() {
+        ARepairResult copy = new ARepairResult(resultType);
+        copy.message = message;
+        copy.repair = repair;
+        copy.npeFound = npeFound;
+        copy.usedTests = usedTests;
+        return copy;
+    }
+
+    public ResultType resultType() {
+        return resultType;
+    }
+
+    /**
+     * @return whether the call was destroyed before ending ({@link ResultType#TIMEOUT} or {@link ResultType#STALLED}).
+     */
+    public boolean abandoned() {
+        return resultType.equals(ResultType.TIMEOUT) || resultType.equals(ResultType.STALLED);
+    }
+
+    public String name() {
+        return resultType.name();
+    }
+
     public String message() {
         return message;
     }
@@ -61,7 +127,7 @@ public enum ARepairResult {
     @Override
     public String toString() {
         String rep = "{\n\t" + name();
-        if (!equals(NO_TESTS)) {
+        if (!resultType.equals(ResultType.NO_TESTS)) {
             if (hasMessage()) {
                 rep += "\n\tMessage: " + message;
             }
@@ -1,17 +1,34 @@
 package ar.edu.unrc.exa.dc.tools;
 
+import ar.edu.unrc.exa.dc.util.AdaptiveHeap;
+import ar.edu.unrc.exa.dc.util.AdaptiveTimeout;
+import ar.edu.unrc.exa.dc.util.Deadline;
+import ar.edu.unrc.exa.dc.util.InProcessTool;
+import ar.edu.unrc.exa.dc.util.SharedArchive;
+import ar.edu.unrc.exa.dc.util.StallWatchdog;
 import ar.edu.unrc.exa.dc.util.Utils;
+import ar.edu.unrc.exa.dc.util.WorkerPool;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 import java.util.stream.Stream;
 
 import static ar.edu.unrc.exa.dc.util.Utils.exceptionToString;
+import static ar.edu.unrc.exa.dc.util.Utils.findOutOfMemoryErrorInLog;
 import static ar.edu.unrc.exa.dc.util.Utils.isValidPath;
 
 public final class BeAFix {
@@ -26,6 +43,7 @@ public final class BeAFix {
     public static final boolean FACTS_RELAXATION_DEFAULT = false;
     public static final boolean FORCE_ASSERTION_TESTS_GENERATION_DEFAULT = false;
     public static final boolean BEAFIX_NO_INSTANCE_TEST_FOR_NEGATIVE_TEST_WHEN_NO_FACTS_DEFAULT = false;
+    public static final String BEAFIX_OUTPUT_DIR = "BeAFixOutput";
 
 
     private Path beAFixJar;
@@ -41,6 +59,16 @@ public final class BeAFix {
     private boolean factsRelaxationGeneration = FACTS_RELAXATION_DEFAULT;
     private boolean forceAssertionTestsGeneration = FORCE_ASSERTION_TESTS_GENERATION_DEFAULT;
     private boolean noInstanceTestForNegativeTestWhenNoFacts = BEAFIX_NO_INSTANCE_TEST_FOR_NEGATIVE_TEST_WHEN_NO_FACTS_DEFAULT;
+    private Path logsDirectory = null;
+    private Deadline deadline = Deadline.NONE;
+    private AdaptiveTimeout checkTimeout = AdaptiveTimeout.disabled();
+    private AdaptiveTimeout testGenerationTimeout = AdaptiveTimeout.disabled();
+    private StallWatchdog stallWatchdog = StallWatchdog.DISABLED;
+    private InProcessTool inProcess = null;
+    private WorkerPool workers = null;
+    private SharedArchive sharedArchive = null;
+    private AdaptiveHeap checkHeap = null;
+    private AdaptiveHeap testGenerationHeap = null;
 
     public BeAFixResult runTestGeneration() {
         if (invalidPaths())
@@ -116,6 +144,173 @@ public final class BeAFix {
         this.noInstanceTestForNegativeTestWhenNoFacts = noInstanceTestForNegativeTestWhenNoFacts;
     }
 
+    public void setLogsDirectory(Path logsDirectory) {
+        this.logsDirectory = logsDirectory;
+    }
+
+    /**
+     * BeAFix processes still running when {@code deadline} is reached are destroyed, ending in an error result.
+     */
+    public void deadline(Deadline deadline) {
+        if (deadline == null)
+            throw new IllegalArgumentException("null deadline");
+        this.deadline = deadline;
+    }
+
+    /**
+     * Sets the per-call time budgets for model checks and test generations (kept apart since their durations are not
+     * alike), shared by all copies of this instance. A call exceeding its budget is destroyed, ending in a
+     * {@link BeAFixResult.ResultType#TIMEOUT} result.
+     */
+    public void callTimeouts(AdaptiveTimeout checkTimeout, AdaptiveTimeout testGenerationTimeout) {
+        if (checkTimeout == null || testGenerationTimeout == null)
+            throw new IllegalArgumentException("null call timeout");
+        this.checkTimeout = checkTimeout;
+        this.testGenerationTimeout = testGenerationTimeout;
+    }
+
+    /**
+     * Sizes the heap of each BeAFix process from previous model checks and test generations (see {@link AdaptiveHeap},
+     * kept apart like call budgets), shared by all copies of this instance. {@code null} values leave the heap to the
+     * JVM's defaults.
+     */
+    public void heapSizing(AdaptiveHeap checkHeap, AdaptiveHeap testGenerationHeap) {
+        this.checkHeap = checkHeap;
+        this.testGenerationHeap = testGenerationHeap;
+    }
+
+    public void stallWatchdog(StallWatchdog stallWatchdog) {
+        if (stallWatchdog == null)
+            throw new IllegalArgumentException("null stall watchdog");
+        this.stallWatchdog = stallWatchdog;
+    }
+
+    /**
+     * Runs BeAFix inside ICEBAR's JVM (see {@link InProcessTool}), calling the main class declared in the manifest of
+     * the BeAFix jar from a new class loader for each call, since Alloy and BeAFix keep static state between calls.
+     * Shared by all copies of this instance, calls made while another in-process call is running are run as a separate
+     * process. In-process calls use ICEBAR's heap and are not watched for stalls. Must be called after setting the
+     * BeAFix jar.
+     *
+     * @param inProcess whether to run calls in-process, {@code false} always runs BeAFix as a separate process.
+     */
+    public void inProcess(boolean inProcess) {
+        this.inProcess = inProcess?new InProcessTool(Collections.singletonList(beAFixJar), mainClass(), 1):null;
+    }
+
+    /**
+     * Runs BeAFix on long-lived JVMs (see {@link WorkerPool}) calling the main class declared in the manifest of the
+     * BeAFix jar. Shared by all copies of this instance, used for calls that can't run in-process (see
+     * {@link #inProcess(boolean)}). Calls run by workers are not watched for stalls. Must be called after setting the
+     * BeAFix jar.
+     *
+     * @param jobsPerWorker     how many calls a worker runs before being replaced, {@code 0} runs BeAFix as a new
+     *                          process for each call.
+     * @param memoryThresholdMB resident memory, in MB, after which a worker is replaced, {@code 0} means no limit.
+     */
+    public void workers(int jobsPerWorker, int memoryThresholdMB) {
+        if (jobsPerWorker < 0)
+            throw new IllegalArgumentException("negative jobs per worker (" + jobsPerWorker + ")");
+        this.workers = jobsPerWorker == 0?null:new WorkerPool(Collections.singletonList(beAFixJar), mainClass(), jobsPerWorker, memoryThresholdMB);
+    }
+
+    /**
+     * Starts BeAFix processes with an AppCDS archive of the BeAFix jar (see {@link SharedArchive}) kept in
+     * {@code directory}, shared by all copies of this instance. Must be called after setting the BeAFix jar.
+     *
+     * @return {@code false} if archives are not available for the java command and BeAFix jar used.
+     */
+    public boolean sharedArchive(Path directory) throws IOException {
+        if (beAFixJar == null)
+            throw new IllegalArgumentException("BeAFix shared archives require a BeAFix jar");
+        SharedArchive sharedArchive = new SharedArchive(directory, "beafix", "java", Collections.singletonList(beAFixJar));
+        this.sharedArchive = sharedArchive.isAvailable()?sharedArchive:null;
+        return sharedArchive.isAvailable();
+    }
+
+    private String mainClass() {
+        if (!isValidPath(beAFixJar, Utils.PathCheck.JAR))
+            throw new IllegalArgumentException("A valid BeAFix jar is required to run BeAFix without a new process for each call (" + beAFixJar + ")");
+        String mainClass;
+        try (JarFile jar = new JarFile(beAFixJar.toFile())) {
+            Manifest manifest = jar.getManifest();
+            mainClass = manifest == null?null:manifest.getMainAttributes().getValue("Main-Class");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Couldn't read the manifest of the BeAFix jar (" + beAFixJar + ")", e);
+        }
+        if (mainClass == null)
+            throw new IllegalArgumentException("The BeAFix jar doesn't declare a main class (" + beAFixJar + ")");
+        return mainClass.trim();
+    }
+
+    public BeAFix copy() {
+        BeAFix copy = new BeAFix();
+        copy.beAFixJar = beAFixJar;
+        copy.pathToModel = pathToModel;
+        copy.outputDirectory = outputDirectory;
+        copy.createOutDirIfNonExistent = createOutDirIfNonExistent;
+        copy.testsToGenerate = testsToGenerate;
+        copy.baseTestsName = baseTestsName;
+        copy.testsStartingIndex = testsStartingIndex;
+        copy.modelOverrides = modelOverrides;
+        copy.modelOverridesFolder = modelOverridesFolder;
+        copy.instanceTests = instanceTests;
+        copy.factsRelaxationGeneration = factsRelaxationGeneration;
+        copy.forceAssertionTestsGeneration = forceAssertionTestsGeneration;
+        copy.noInstanceTestForNegativeTestWhenNoFacts = noInstanceTestForNegativeTestWhenNoFacts;
+        copy.logsDirectory = logsDirectory;
+        copy.deadline = deadline;
+        copy.checkTimeout = checkTimeout;
+        copy.testGenerationTimeout = testGenerationTimeout;
+        copy.stallWatchdog = stallWatchdog;
+        copy.inProcess = inProcess;
+        copy.workers = workers;
+        copy.sharedArchive = sharedArchive;
+        copy.checkHeap = checkHeap;
+        copy.testGenerationHeap = testGenerationHeap;
+        return copy;
+    }
+
+    /**
+     * Creates a copy of this BeAFix configuration whose output directory and external logs are located inside
+     * {@code directory}.
+     */
+    public BeAFix isolatedCopy(Path directory) {
+        BeAFix copy = copy();
+        copy.outputDirectory = directory.resolve(outputDirectory == null?BEAFIX_OUTPUT_DIR:outputDirectory.getFileName().toString());
+        copy.logsDirectory = directory;
+        return copy;
+    }
+
+    /**
+     * All the settings, besides the model and the tests starting index, that can change the tests generated by a run.
+     */
+    public String testGenerationParametersToString() {
+        return "tests=" + testsToGenerate + ";name=" + baseTestsName + ";modelOverrides=" + modelOverrides +
+                ";modelOverridesFolder=" + (modelOverridesFolder == null?"":modelOverridesFolder.toAbsolutePath()) +
+                ";instanceTests=" + instanceTests + ";relaxedFacts=" + factsRelaxationGeneration +
+                ";forceAssertionTests=" + forceAssertionTestsGeneration + ";noInstanceTestForNegativeTestWhenNoFacts=" + noInstanceTestForNegativeTestWhenNoFacts;
+    }
+
+    /**
+     * Writes the given tests files contents (a {@code null} content means no file) to where a test generation run
+     * would leave them, returning the same result such a run would.
+     */
+    public BeAFixResult testGenerationResults(String counterexampleTests, String trustedTests, String untrustedTests) throws IOException {
+        if (outputDirectory == null || pathToModel == null)
+            throw new IllegalStateException("Output directory or model not defined");
+        Files.createDirectories(outputDirectory);
+        writeTestsFile(CE_POSTFIX, counterexampleTests);
+        writeTestsFile(TRUSTED_POSTFIX, trustedTests);
+        writeTestsFile(UNTRUSTED_POSTFIX, untrustedTests);
+        return getResults();
+    }
+
+    private void writeTestsFile(String postfix, String tests) throws IOException {
+        if (tests != null)
+            Files.write(Paths.get(outputDirectory.toString(), pathToModel.getFileName().toString().replace(".als", postfix)), tests.getBytes(StandardCharsets.UTF_8));
+    }
+
     public boolean cleanOutputDir() throws IOException {
         if (outputDirectory == null)
             throw new IllegalStateException("Output directory not defined");
@@ -134,67 +329,148 @@ public final class BeAFix {
     //AUXILIARY METHODS
 
     private BeAFixResult executeBeAFix() {
-        BeAFixResult beAFixResult;
-        try {
-            ProcessBuilder pb = beafixProcessBuilder(BeAFixMode.TEST);
-            Process p = pb.start();
-            int exitCode = p.waitFor();
-            if (exitCode != 0) {
-                beAFixResult = BeAFixResult.error("BeAFix ended with exit code " + exitCode + " but no exception was caught");
-            } else {
-                beAFixResult = getResults();
-            }
-        } catch (IOException | InterruptedException  e) {
-            beAFixResult = BeAFixResult.error("An exception was caught when executing BeAFix\n" + exceptionToString(e));
-        }
-        return beAFixResult;
+        return execute(BeAFixMode.TEST, testGenerationTimeout, testGenerationHeap, this::getResults);
     }
 
     private BeAFixResult executeBeAFixCheck() {
+        return execute(BeAFixMode.CHECK, checkTimeout, checkHeap, () -> BeAFixResult.check(Paths.get(pathToModel.toAbsolutePath().toString().replace(".als", ".verification"))));
+    }
+
+    /**
+     * Runs BeAFix in {@code beafixMode}, in-process when possible or as a separate process otherwise (sized by
+     * {@code heapSizing}, if not {@code null}), within the budget given by {@code callTimeout}, returning
+     * {@code results} if BeAFix ends successfully.
+     */
+    private BeAFixResult execute(BeAFixMode beafixMode, AdaptiveTimeout callTimeout, AdaptiveHeap heapSizing, Supplier<BeAFixResult> results) {
         BeAFixResult beAFixResult;
+        Process p = null;
         try {
-            ProcessBuilder pb = beafixProcessBuilder(BeAFixMode.CHECK);
-            Process p = pb.start();
-            int exitCode = p.waitFor();
+            long callBudget = callTimeout.budgetNanos();
+            long start = System.nanoTime();
+            InProcessTool.Result hostedCall = inProcess == null?null:runInProcess(beafixMode, deadline.within(callBudget));
+            if (workers != null && (hostedCall == null || hostedCall.status().equals(InProcessTool.Status.UNAVAILABLE)))
+                hostedCall = workers.run(Paths.get("").toAbsolutePath(), heapSizing == null?Collections.emptyList():heapSizing.workerJvmOptions(), beafixArguments(beafixMode), getBeAFixOutputLog(), getBeAFixErrorLog(), deadline.within(callBudget));
+            int exitCode;
+            if (hostedCall != null && !hostedCall.status().equals(InProcessTool.Status.UNAVAILABLE)) {
+                if (hostedCall.status().equals(InProcessTool.Status.DEADLINE_REACHED))
+                    return destroyedResult(StallWatchdog.Outcome.DEADLINE_REACHED, callTimeout, callBudget);
+                exitCode = hostedCall.exitCode();
+            } else {
+                Deadline callDeadline = deadline.within(callBudget);
+                long inputBytes = pathToModel.toFile().length();
+                int heap = heapSizing == null?0:heapSizing.heapMB(inputBytes);
+                while (true) {
+                    List<String> jvmOptions = new LinkedList<>(heapSizing == null?Collections.emptyList():heapSizing.jvmOptions(heap));
+                    List<String> archiveOptions = sharedArchive == null?Collections.emptyList():sharedArchive.jvmOptions();
+                    jvmOptions.addAll(archiveOptions);
+                    AdaptiveHeap.Peak peak = null;
+                    try {
+                        ProcessBuilder pb = beafixProcessBuilder(beafixMode, jvmOptions);
+                        p = pb.start();
+                        if (heapSizing != null)
+                            peak = AdaptiveHeap.sample(p);
+                        StallWatchdog.Outcome outcome = stallWatchdog.waitFor(p, callDeadline, logFile(BEAFIX_STD_OUT), logFile(BEAFIX_STD_ERR));
+                        if (!outcome.equals(StallWatchdog.Outcome.ENDED))
+                            return destroyedResult(outcome, callTimeout, callBudget);
+                        exitCode = p.exitValue();
+                    } finally {
+                        if (peak != null)
+                            peak.stop();
+                        if (sharedArchive != null)
+                            sharedArchive.ended(archiveOptions, p);
+                    }
+                    if (heapSizing == null)
+                        break;
+                    if (exitCode == 0) {
+                        heapSizing.record(inputBytes, heap, peak.stop());
+                        break;
+                    }
+                    //the logs are deleted by the next process builder
+                    if (heap >= heapSizing.maximumMB() || !(findOutOfMemoryErrorInLog(logFile(BEAFIX_STD_ERR)) || findOutOfMemoryErrorInLog(logFile(BEAFIX_STD_OUT))))
+                        break;
+                    heap = heapSizing.retryHeapMB(heap);
+                }
+            }
+            callTimeout.record(System.nanoTime() - start);
             if (exitCode != 0) {
                 beAFixResult = BeAFixResult.error("BeAFix ended with exit code " + exitCode + " but no exception was caught");
             } else {
-                beAFixResult = BeAFixResult.check(Paths.get(pathToModel.toAbsolutePath().toString().replace(".als", ".verification")));
+                beAFixResult = results.get();
             }
-        } catch (IOException | InterruptedException  e) {
+        } catch (InterruptedException e) {
+            if (p != null)
+                Deadline.destroyProcessTree(p);
+            Thread.currentThread().interrupt();
+            beAFixResult = BeAFixResult.error("BeAFix was interrupted, the process was destroyed");
+        } catch (IOException e) {
             beAFixResult = BeAFixResult.error("An exception was caught when executing BeAFix\n" + exceptionToString(e));
         }
         return beAFixResult;
     }
 
+    /**
+     * Runs BeAFix in-process with the same arguments given to a separate process, leaving its results in the same files
+     * (both run in ICEBAR's working directory).
+     */
+    private InProcessTool.Result runInProcess(BeAFixMode beafixMode, Deadline callDeadline) throws IOException, InterruptedException {
+        return inProcess.run(beafixArguments(beafixMode), getBeAFixOutputLog(), getBeAFixErrorLog(), callDeadline, null, null);
+    }
+
+    /**
+     * The arguments given to BeAFix's main class in {@code beafixMode}.
+     */
+    private String[] beafixArguments(BeAFixMode beafixMode) {
+        String[] command = beafixMode.equals(BeAFixMode.TEST)?getBeAFixCommand():getBeAFixCheckCommand();
+        //drops java -jar <BeAFix jar>
+        return Arrays.copyOfRange(command, 3, command.length);
+    }
+
+    private BeAFixResult destroyedResult(StallWatchdog.Outcome outcome, AdaptiveTimeout callTimeout, long callBudget) {
+        if (outcome.equals(StallWatchdog.Outcome.STALLED))
+            return BeAFixResult.stalled("BeAFix made no progress (no output and no CPU time used) for " + stallWatchdog.windowSeconds() + "s, the process was destroyed");
+        if (deadline.reached())
+            return BeAFixResult.error("BeAFix was still running when the deadline was reached, the process was destroyed");
+        callTimeout.recordExceeded(callBudget);
+        return BeAFixResult.timeout("BeAFix exceeded its call budget (" + TimeUnit.NANOSECONDS.toSeconds(callBudget) + "s), the process was destroyed");
+    }
+
+    private static final String BEAFIX_STD_OUT = "beAFixExternalOutput.log";
+    private static final String BEAFIX_STD_ERR = "beAFixExternalError.log";
     private enum BeAFixMode {CHECK, TEST}
-    private ProcessBuilder beafixProcessBuilder(BeAFixMode beafixMode) {
-        ProcessBuilder pb;
+    private ProcessBuilder beafixProcessBuilder(BeAFixMode beafixMode, List<String> jvmOptions) {
+        List<String> command;
         switch (beafixMode) {
             case TEST: {
-                pb = new ProcessBuilder(getBeAFixCommand());
+                command = new LinkedList<>(Arrays.asList(getBeAFixCommand()));
                 break;
             }
             case CHECK: {
-                pb = new ProcessBuilder(getBeAFixCheckCommand());
+                command = new LinkedList<>(Arrays.asList(getBeAFixCheckCommand()));
                 break;
             }
             default: throw new IllegalArgumentException("Invalid or unsupported mode (" + beafixMode + ")");
         }
+        //right after java
+        command.addAll(1, jvmOptions);
+        ProcessBuilder pb = new ProcessBuilder(command);
         pb.redirectError(ProcessBuilder.Redirect.appendTo(getBeAFixErrorLog()));
         pb.redirectOutput(ProcessBuilder.Redirect.appendTo(getBeAFixOutputLog()));
         return pb;
     }
 
+    private Path logFile(String name) {
+        return logsDirectory == null?Paths.get(name):logsDirectory.resolve(name);
+    }
+
     private File getBeAFixErrorLog() {
-        File errorLog = new File("beAFixExternalError.log");
+        File errorLog = logFile(BEAFIX_STD_ERR).toFile();
         if (errorLog.exists() && !errorLog.delete())
             throw new IllegalStateException("An error occurred while trying to delete " + errorLog);
         return errorLog;
     }
 
     private File getBeAFixOutputLog() {
-        File outputLog = new File("beAFixExternalOutput.log");
+        File outputLog = logFile(BEAFIX_STD_OUT).toFile();
         if (outputLog.exists() && !outputLog.delete())
             throw new IllegalStateException("An error occurred while trying to delete " + outputLog);
         return outputLog;
@@ -4,7 +4,10 @@ import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest.TestType;
 import ar.edu.unrc.exa.dc.util.OneTypePair;
 import ar.edu.unrc.exa.dc.util.Utils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
@@ -19,7 +22,7 @@ public final class BeAFixResult {
 
     public static final String TEST_SEPARATOR = "===TEST===";
 
-    public enum ResultType {TESTS, CHECK, ERROR}
+    public enum ResultType {TESTS, CHECK, ERROR, TIMEOUT, STALLED}
 
     public static final class BeAFixTest {
 
@@ -186,6 +189,85 @@ public final class BeAFixResult {
             relatedBeAFixTest.relatedBeAFixTest = this;
         }
 
+        /**
+         * Writes this test, along with its related test and branches, to be read back by {@link #readFrom(DataInput)}.
+         */
+        public void writeTo(DataOutput out) throws IOException {
+            writeTo(out, true);
+        }
+
+        private void writeTo(DataOutput out, boolean withRelatedTest) throws IOException {
+            out.writeUTF(testType.name());
+            writeString(out, testSource == null?null:testSource.name());
+            out.writeUTF(branch.name());
+            writeString(out, command);
+            writeString(out, predicate);
+            out.writeInt(index);
+            out.writeInt(subIndex);
+            writeString(out, relatedTest);
+            out.writeInt(maxScope);
+            boolean writeRelatedTest = withRelatedTest && relatedBeAFixTest != null;
+            out.writeBoolean(writeRelatedTest);
+            if (writeRelatedTest)
+                relatedBeAFixTest.writeTo(out, false);
+            out.writeBoolean(negativeBranch != null);
+            if (negativeBranch != null)
+                negativeBranch.writeTo(out, true);
+            out.writeInt(branches == null?-1:branches.size());
+            if (branches != null) {
+                for (BeAFixTest branchTest : branches) {
+                    branchTest.writeTo(out, true);
+                }
+            }
+        }
+
+        public static BeAFixTest readFrom(DataInput in) throws IOException {
+            TestType testType = TestType.valueOf(in.readUTF());
+            String testSource = readString(in);
+            Branch branch = Branch.valueOf(in.readUTF());
+            String command = readString(in);
+            String predicate = readString(in);
+            int index = in.readInt();
+            int subIndex = in.readInt();
+            String relatedTest = readString(in);
+            int maxScope = in.readInt();
+            BeAFixTest relatedBeAFixTest = in.readBoolean()?readFrom(in):null;
+            BeAFixTest negativeBranch = in.readBoolean()?readFrom(in):null;
+            int branchesCount = in.readInt();
+            List<BeAFixTest> branches = null;
+            if (branchesCount >= 0) {
+                branches = new LinkedList<>();
+                for (int b = 0; b < branchesCount; b++) {
+                    branches.add(readFrom(in));
+                }
+            }
+            BeAFixTest test = new BeAFixTest(command, predicate, index, relatedTest, relatedBeAFixTest, maxScope, testType, testSource == null?null:TestSource.valueOf(testSource), branch, branches);
+            test.subIndex = subIndex;
+            test.negativeBranch = negativeBranch;
+            if (relatedBeAFixTest != null)
+                relatedBeAFixTest.relatedBeAFixTest = test;
+            return test;
+        }
+
+        private static void writeString(DataOutput out, String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static String readString(DataInput in) throws IOException {
+            int length = in.readInt();
+            if (length < 0)
+                return null;
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
         public static final String PREDICATE_START_DELIMITER = "--TEST START\n";
         public static final String PREDICATE_END_DELIMITER = "--TEST FINISH\n";
         private static final String COMMAND_NAME_SEPARATOR = "_";
@@ -389,6 +471,10 @@ public final class BeAFixResult {
         return passingProperties;
     }
 
+    public int totalProperties() {
+        return totalProperties;
+    }
+
     private BeAFixResult() {}
 
     public static BeAFixResult tests() {
@@ -404,6 +490,26 @@ public final class BeAFixResult {
         return beAFixResult;
     }
 
+    /**
+     * A call that was destroyed for exceeding its own time budget, this is neither an error nor a CHECK or TESTS result.
+     */
+    public static BeAFixResult timeout(String message) {
+        BeAFixResult beAFixResult = new BeAFixResult();
+        beAFixResult.resultType = ResultType.TIMEOUT;
+        beAFixResult.message(message);
+        return beAFixResult;
+    }
+
+    /**
+     * A call that was destroyed for making no progress, see {@link ar.edu.unrc.exa.dc.util.StallWatchdog}.
+     */
+    public static BeAFixResult stalled(String message) {
+        BeAFixResult beAFixResult = new BeAFixResult();
+        beAFixResult.resultType = ResultType.STALLED;
+        beAFixResult.message(message);
+        return beAFixResult;
+    }
+
     public static BeAFixResult check(Path checkFile) {
         if (checkFile == null)
             throw new IllegalArgumentException("checkFile is null");
@@ -412,6 +518,19 @@ public final class BeAFixResult {
         return parseCheckFile(checkFile);
     }
 
+    /**
+     * A CHECK result that was not read from a check file (e.g.: a result reused from a previous check).
+     */
+    public static BeAFixResult check(boolean valid, int passingProperties, int totalProperties, String message) {
+        BeAFixResult beAFixResult = new BeAFixResult();
+        beAFixResult.resultType = ResultType.CHECK;
+        beAFixResult.check = valid;
+        beAFixResult.passingProperties = passingProperties;
+        beAFixResult.totalProperties = totalProperties;
+        beAFixResult.message(message);
+        return beAFixResult;
+    }
+
     public boolean isCheck() { return this.resultType.equals(ResultType.CHECK); }
 
     public boolean checkResult() {
@@ -425,10 +544,29 @@ public final class BeAFixResult {
         return this.resultType.equals(ResultType.ERROR);
     }
 
+    public boolean timedOut() {
+        return this.resultType.equals(ResultType.TIMEOUT);
+    }
+
+    public boolean stalled() {
+        return this.resultType.equals(ResultType.STALLED);
+    }
+
+    /**
+     * @return whether the call was destroyed before ending (it timed out or stalled).
+     */
+    public boolean abandoned() {
+        return timedOut() || stalled();
+    }
+
     public void message(String message) {
         this.message = message;
     }
 
+    public String message() {
+        return message;
+    }
+
     public int getMaxIndex() {
         return maxIndex;
     }
@@ -458,6 +596,18 @@ public final class BeAFixResult {
         this.utFile = utFile;
     }
 
+    Path counterexampleTestsFile() {
+        return cetFile;
+    }
+
+    Path trustedTestsFile() {
+        return ttFile;
+    }
+
+    Path untrustedTestsFile() {
+        return utFile;
+    }
+
     private List<BeAFixTest> counterexampleTests = null;
     public List<BeAFixTest> getCounterexampleTests() {
         if (!testsParsed)
@@ -500,10 +650,14 @@ public final class BeAFixResult {
         return predicateTests;
     }
 
+    public boolean testsParsed() {
+        return testsParsed;
+    }
+
     public void parseAllTests() throws IOException {
         if (testsParsed)
             throw new IllegalStateException("Tests already parsed");
-        if (!isCheck() && !error()) {
+        if (!isCheck() && !error() && !abandoned()) {
             List<BeAFixTest> ceTests = parseCounterexampleTests();
             List<BeAFixTest> ttTests = parseTrustedTests();
             List<BeAFixTest> utTests = parseUntrustedTests();
@@ -760,6 +914,14 @@ public final class BeAFixResult {
                 rep += "An error occurred!\n\tMessage: " + message + "\n}";
                 break;
             }
+            case TIMEOUT: {
+                rep += "Call budget exceeded\n\tMessage: " + message + "\n}";
+                break;
+            }
+            case STALLED: {
+                rep += "Stalled\n\tMessage: " + message + "\n}";
+                break;
+            }
             case TESTS: {
                 String ceTests = testsToString(this.ceTests);
                 String ttTests = testsToString(this.ttTests);
@@ -0,0 +1,110 @@
+package ar.edu.unrc.exa.dc.tools;
+
+import ar.edu.unrc.exa.dc.util.ModelHashes;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A cache of BeAFix test generation results, keyed by the canonical hash (see {@link ModelHashes}) of the model with
+ * oracle used to generate tests and the BeAFix settings used (see {@link BeAFix#testGenerationParametersToString()}).
+ * <p>
+ * The contents of the tests files generated by BeAFix are stored along with the tests starting index used. When a
+ * result is reused, the index in each test name ({@code <name>_<(PRED|CE)>_<index>_...}) is shifted so tests start at
+ * the current starting index, the renumbered files are written where BeAFix would have left them, and they are parsed
+ * as a normal BeAFix result; so reused tests never collide with the indexes reserved for other test generations.
+ */
+public final class GeneratedTestsCache {
+
+    private static final Pattern TEST_INDEX = Pattern.compile("(_(?:CE|PRED)_)(\\d+)(?=_)", Pattern.CASE_INSENSITIVE);
+    private static final String STARTING_INDEX = "startingIndex";
+    private static final String COUNTEREXAMPLE_TESTS = "counterexampleTests";
+    private static final String TRUSTED_TESTS = "trustedTests";
+    private static final String UNTRUSTED_TESTS = "untrustedTests";
+
+    private final Path directory;
+    private final Map<String, Properties> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param directory the folder where results are stored to be reused between runs, or {@code null} to only keep
+     *                  them in memory.
+     */
+    public GeneratedTestsCache(Path directory) throws IOException {
+        this.directory = directory == null?null:directory.toAbsolutePath();
+        if (this.directory != null)
+            Files.createDirectories(this.directory);
+    }
+
+    public static String key(Path modelWithOracle, BeAFix beAFix) throws IOException {
+        return ModelHashes.hash(ModelHashes.canonicalHash(modelWithOracle), beAFix.testGenerationParametersToString());
+    }
+
+    /**
+     * Looks for a cached result, renumbering its tests to start at {@code beAFix}'s tests starting index and writing
+     * them to {@code beAFix}'s output directory.
+     */
+    public Optional<BeAFixResult> get(String key, BeAFix beAFix) throws IOException {
+        Properties entry = entries.get(key);
+        if (entry == null && directory != null && Files.exists(directory.resolve(key + ".properties"))) {
+            entry = new Properties();
+            try (Reader reader = Files.newBufferedReader(directory.resolve(key + ".properties"), StandardCharsets.UTF_8)) {
+                entry.load(reader);
+            }
+            entries.putIfAbsent(key, entry);
+        }
+        if (entry == null)
+            return Optional.empty();
+        int offset = beAFix.testsStartingIndex() - Integer.parseInt(entry.getProperty(STARTING_INDEX));
+        return Optional.of(beAFix.testGenerationResults(
+                renumber(entry.getProperty(COUNTEREXAMPLE_TESTS), offset),
+                renumber(entry.getProperty(TRUSTED_TESTS), offset),
+                renumber(entry.getProperty(UNTRUSTED_TESTS), offset)
+        ));
+    }
+
+    public void put(String key, int testsStartingIndex, BeAFixResult result) throws IOException {
+        if (result.error() || result.abandoned() || result.isCheck() || entries.containsKey(key))
+            return;
+        Properties entry = new Properties();
+        entry.setProperty(STARTING_INDEX, Integer.toString(testsStartingIndex));
+        storeFile(entry, COUNTEREXAMPLE_TESTS, result.counterexampleTestsFile());
+        storeFile(entry, TRUSTED_TESTS, result.trustedTestsFile());
+        storeFile(entry, UNTRUSTED_TESTS, result.untrustedTestsFile());
+        if (entries.putIfAbsent(key, entry) != null || directory == null)
+            return;
+        Path temporaryFile = Files.createTempFile(directory, "tmp_", ".properties");
+        try (Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+            entry.store(writer, "BeAFix generated tests");
+        }
+        Files.move(temporaryFile, directory.resolve(key + ".properties"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void storeFile(Properties entry, String property, Path file) throws IOException {
+        if (file != null && Files.exists(file))
+            entry.setProperty(property, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    static String renumber(String tests, int offset) {
+        if (tests == null || offset == 0)
+            return tests;
+        Matcher matcher = TEST_INDEX.matcher(tests);
+        StringBuffer renumbered = new StringBuffer();
+        while (matcher.find()) {
+            matcher.appendReplacement(renumbered, matcher.group(1) + (Integer.parseInt(matcher.group(2)) + offset));
+        }
+        matcher.appendTail(renumbered);
+        return renumbered.toString();
+    }
+
+}
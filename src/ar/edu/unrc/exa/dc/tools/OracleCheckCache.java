@@ -0,0 +1,210 @@
+package ar.edu.unrc.exa.dc.tools;
+
+import ar.edu.unrc.exa.dc.util.ModelHashes;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of BeAFix CHECK results, keyed by the canonical hashes (see {@link ModelHashes}) of the checked fix and the
+ * property-based oracle.
+ * <p>
+ * The verdict of each property ({@code check} command) is also recorded when it can be inferred from a result, so when
+ * the oracle changes only the properties without a recorded verdict are checked. Verdicts are inferred assuming that
+ * the checked fixes have no {@code check} commands of their own.
+ */
+public final class OracleCheckCache {
+
+    /**
+     * Merges a fix with an oracle file and runs BeAFix CHECK on the result.
+     */
+    @FunctionalInterface
+    public interface Checker {
+        BeAFixResult check(Path oracle);
+    }
+
+    private static final String ORACLE_PREFIX = "oracle.";
+    private static final String PROPERTY_PREFIX = "property.";
+    private static final String VALID = "VALID";
+    private static final String INVALID = "INVALID";
+
+    private final Path directory;
+    private final Map<String, Properties> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param directory the folder where results are stored to be reused between runs, or {@code null} to only keep
+     *                  them in memory.
+     */
+    public OracleCheckCache(Path directory) throws IOException {
+        this.directory = directory == null?null:directory.toAbsolutePath();
+        if (this.directory != null)
+            Files.createDirectories(this.directory);
+    }
+
+    public BeAFixResult check(Path fix, Path oracle, Checker checker) throws IOException {
+        String fixHash = ModelHashes.canonicalHash(fix);
+        String oracleContents = new String(Files.readAllBytes(oracle), StandardCharsets.UTF_8);
+        String oracleHash = ModelHashes.canonicalHash(oracleContents);
+        Properties entry = entry(fixHash);
+        String stored = entry.getProperty(ORACLE_PREFIX + oracleHash);
+        if (stored != null)
+            return fromStored(stored, fix);
+        OracleProperties properties = new OracleProperties(oracleContents);
+        List<Integer> unknown = new LinkedList<>();
+        for (int p = 0; p < properties.commands.size(); p++) {
+            if (!entry.containsKey(PROPERTY_PREFIX + properties.keys.get(p)))
+                unknown.add(p);
+        }
+        BeAFixResult result = null;
+        if (!properties.commands.isEmpty() && !unknown.isEmpty() && unknown.size() < properties.commands.size()) {
+            Path partialOracle = Files.createTempFile("icebar_oracle_", ".als");
+            try {
+                Files.write(partialOracle, properties.withoutCommands(known(properties, unknown)).getBytes(StandardCharsets.UTF_8));
+                BeAFixResult partialResult = checker.check(partialOracle);
+                if (partialResult.abandoned())
+                    return partialResult;
+                if (partialResult.isCheck() && recordVerdicts(fixHash, properties, unknown, partialResult))
+                    result = fromVerdicts(fixHash, properties, fix);
+            } finally {
+                Files.deleteIfExists(partialOracle);
+            }
+        } else if (!properties.commands.isEmpty() && unknown.isEmpty()) {
+            result = fromVerdicts(fixHash, properties, fix);
+        }
+        if (result == null) {
+            result = checker.check(oracle);
+            if (!result.isCheck())
+                return result;
+            List<Integer> all = new LinkedList<>();
+            for (int p = 0; p < properties.commands.size(); p++) {
+                all.add(p);
+            }
+            recordVerdicts(fixHash, properties, all, result);
+        }
+        store(fixHash, ORACLE_PREFIX + oracleHash, toStored(result));
+        return result;
+    }
+
+    private static List<Integer> known(OracleProperties properties, List<Integer> unknown) {
+        List<Integer> known = new LinkedList<>();
+        for (int p = 0; p < properties.commands.size(); p++) {
+            if (!unknown.contains(p))
+                known.add(p);
+        }
+        return known;
+    }
+
+    /**
+     * Records the verdicts of the {@code checked} properties if they can be inferred from {@code result}.
+     *
+     * @return whether the verdicts were recorded.
+     */
+    private boolean recordVerdicts(String fixHash, OracleProperties properties, List<Integer> checked, BeAFixResult result) throws IOException {
+        Boolean verdict = null;
+        if (result.checkResult())
+            verdict = true;
+        else if (result.passingProperties() == 0 || checked.size() == 1)
+            verdict = false;
+        if (verdict == null)
+            return false;
+        for (int p : checked) {
+            store(fixHash, PROPERTY_PREFIX + properties.keys.get(p), verdict.toString());
+        }
+        return true;
+    }
+
+    private BeAFixResult fromVerdicts(String fixHash, OracleProperties properties, Path fix) throws IOException {
+        Properties entry = entry(fixHash);
+        int passing = 0;
+        for (String key : properties.keys) {
+            if (Boolean.parseBoolean(entry.getProperty(PROPERTY_PREFIX + key)))
+                passing++;
+        }
+        int total = properties.keys.size();
+        return fromStored((passing == total?VALID:INVALID) + ":" + passing + "/" + total, fix);
+    }
+
+    private static String toStored(BeAFixResult result) {
+        return (result.checkResult()?VALID:INVALID) + ":" + result.passingProperties() + "/" + result.totalProperties();
+    }
+
+    private static BeAFixResult fromStored(String stored, Path fix) {
+        boolean valid = stored.startsWith(VALID);
+        String[] values = stored.substring(stored.indexOf(':') + 1).split("/");
+        int passing = Integer.parseInt(values[0]);
+        int total = Integer.parseInt(values[1]);
+        String message = valid?"Valid model (" + fix + ") (cached)":"Invalid model (" + fix + ") (cached) passing properties: " + passing + "/" + total;
+        return BeAFixResult.check(valid, passing, total, message);
+    }
+
+    private synchronized Properties entry(String fixHash) throws IOException {
+        Properties entry = entries.get(fixHash);
+        if (entry == null) {
+            entry = new Properties();
+            Path file = directory == null?null:directory.resolve(fixHash + ".properties");
+            if (file != null && Files.exists(file)) {
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    entry.load(reader);
+                }
+            }
+            entries.put(fixHash, entry);
+        }
+        return entry;
+    }
+
+    private synchronized void store(String fixHash, String key, String value) throws IOException {
+        Properties entry = entry(fixHash);
+        entry.setProperty(key, value);
+        if (directory == null)
+            return;
+        Path temporaryFile = Files.createTempFile(directory, "tmp_", ".properties");
+        try (Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+            entry.store(writer, "BeAFix CHECK results");
+        }
+        Files.move(temporaryFile, directory.resolve(fixHash + ".properties"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The {@code check} commands of an oracle and their keys.
+     */
+    private static final class OracleProperties {
+
+        private final String oracle;
+        private final List<ModelHashes.Paragraph> commands = new ArrayList<>();
+        private final List<String> keys = new ArrayList<>();
+
+        private OracleProperties(String oracle) {
+            this.oracle = oracle;
+            Map<String, String> assertions = new HashMap<>();
+            List<String> context = new ArrayList<>();
+            for (ModelHashes.Paragraph paragraph : ModelHashes.paragraphs(oracle)) {
+                if (paragraph.token(0).equals("assert") && !paragraph.token(1).equals("{"))
+                    assertions.put(paragraph.token(1), paragraph.toString());
+                else if (paragraph.token(0).equals("check"))
+                    commands.add(paragraph);
+                else
+                    context.add(paragraph.toString());
+            }
+            Collections.sort(context);
+            for (ModelHashes.Paragraph command : commands) {
+                String assertion = command.token(1).equals("{")?"":assertions.getOrDefault(command.token(1), "");
+                keys.add(ModelHashes.hash(String.join("\n", context), assertion, command.toString()));
+            }
+        }
+
+        private String withoutCommands(List<Integer> properties) {
+            StringBuilder result = new StringBuilder(oracle);
+            List<Integer> removed = new ArrayList<>(properties);
+            removed.sort(Comparator.reverseOrder());
+            for (int p : removed) {
+                result.delete(commands.get(p).start(), commands.get(p).end());
+            }
+            return result.toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,188 @@
+package ar.edu.unrc.exa.dc.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes the heap of the JVMs running an external tool (ARepair or BeAFix) from the peak resident memory of previous
+ * calls, instead of giving every call the largest heap any call could need.
+ * <p>
+ * The peak of a call is estimated as a fixed base (the JVM and the tool itself), taken from the smallest peak among the
+ * last {@value #WINDOW} successful calls, plus a per-byte slope for its input (model and tests) beyond the input of
+ * that call, taken as the 90th percentile of the slopes of the other calls. The heap for a call is that estimate plus a
+ * headroom, kept within a minimum and a maximum. Until a peak is recorded, calls start with the minimum (or with the
+ * heap of the last successful call), and a call running out of memory is retried with twice its heap, up to the
+ * maximum. Peaks of calls run with the maximum heap are not recorded, a JVM with more heap than it needs collects
+ * garbage lazily, so its peak doesn't show what it needs. The initial heap is never above the minimum, so the heap is
+ * only committed as it's used. Peaks are sampled from the {@code VmHWM} field of {@code /proc/<pid>/status} while the
+ * process runs; where it's not available no peaks are recorded.
+ */
+public final class AdaptiveHeap {
+
+    private static final long SAMPLE_MILLIS = 250;
+    private static final long UNKNOWN_PEAK = -1;
+    private static final long MB = 1024 * 1024;
+    private static final int WINDOW = 32;
+    private static final int SLOPE_PERCENTILE = 90;
+    private static final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread sampling = new Thread(r, "peak memory sampler");
+        sampling.setDaemon(true);
+        return sampling;
+    });
+
+    private final int minimumMB;
+    private final int maximumMB;
+    private final int headroomPercent;
+    //input and peak bytes of the last successful calls
+    private final Deque<long[]> recent = new ArrayDeque<>();
+    private int startMB;
+
+    /**
+     * @param headroomPercent how much larger than the estimated peak the heap is, as a percentage.
+     */
+    public AdaptiveHeap(int minimumMB, int maximumMB, int headroomPercent) {
+        if (minimumMB < 1)
+            throw new IllegalArgumentException("minimum heap must be at least 1MB (" + minimumMB + ")");
+        if (maximumMB < minimumMB)
+            throw new IllegalArgumentException("maximum heap (" + maximumMB + "MB) below the minimum (" + minimumMB + "MB)");
+        if (headroomPercent < 0)
+            throw new IllegalArgumentException("negative headroom (" + headroomPercent + ")");
+        this.minimumMB = minimumMB;
+        this.maximumMB = maximumMB;
+        this.headroomPercent = headroomPercent;
+        this.startMB = minimumMB;
+    }
+
+    public int maximumMB() {
+        return maximumMB;
+    }
+
+    /**
+     * @param inputBytes the size of the call's input.
+     * @return the maximum heap, in MB, for the next call.
+     */
+    public synchronized int heapMB(long inputBytes) {
+        if (recent.isEmpty())
+            return startMB;
+        double heap = Math.ceil(estimatedPeak(inputBytes) * (100 + headroomPercent) / 100 / MB);
+        return (int) Math.max(minimumMB, Math.min(maximumMB, heap));
+    }
+
+    /**
+     * @return the estimated peak, in bytes, of a call with {@code inputBytes} of input (base plus slope, see the class
+     * comment).
+     */
+    private double estimatedPeak(long inputBytes) {
+        long[] base = null;
+        for (long[] call : recent) {
+            if (base == null || call[1] < base[1])
+                base = call;
+        }
+        assert base != null;
+        List<Double> slopes = new ArrayList<>();
+        for (long[] call : recent) {
+            if (call[0] > base[0])
+                slopes.add((double) (call[1] - base[1]) / (call[0] - base[0]));
+        }
+        if (slopes.isEmpty())
+            return base[1];
+        Collections.sort(slopes);
+        int rank = (int) Math.ceil(SLOPE_PERCENTILE / 100.0 * slopes.size());
+        double slope = slopes.get(Math.max(0, rank - 1));
+        return base[1] + slope * Math.max(0, inputBytes - base[0]);
+    }
+
+    /**
+     * @return the maximum heap, in MB, to retry a call that ran out of memory with {@code heapMB}, or {@code heapMB}
+     * if it's already the maximum.
+     */
+    public int retryHeapMB(int heapMB) {
+        return (int) Math.min(maximumMB, 2L * heapMB);
+    }
+
+    /**
+     * @return the heap options for a JVM with a maximum heap of {@code heapMB}.
+     */
+    public List<String> jvmOptions(int heapMB) {
+        return Arrays.asList("-Xms" + Math.min(minimumMB, heapMB) + "m", "-Xmx" + heapMB + "m");
+    }
+
+    /**
+     * @return the heap options for a long-lived JVM running many calls (see {@link WorkerPool}), which can use up to the
+     * maximum heap but only commits it as it's used.
+     */
+    public List<String> workerJvmOptions() {
+        return Collections.singletonList("-Xmx" + maximumMB + "m");
+    }
+
+    /**
+     * Records the peak resident memory of a call that ended successfully with a maximum heap of {@code heapMB}.
+     */
+    public synchronized void record(long inputBytes, int heapMB, long peakBytes) {
+        if (recent.isEmpty())
+            startMB = heapMB;
+        if (peakBytes <= 0 || heapMB >= maximumMB)
+            return;
+        if (recent.size() == WINDOW)
+            recent.pollFirst();
+        recent.addLast(new long[]{inputBytes, peakBytes});
+    }
+
+    /**
+     * Starts sampling the peak resident memory of {@code process}.
+     */
+    public static Peak sample(Process process) {
+        return new Peak(StallWatchdog.pid(process));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return minimumMB + "MB to " + maximumMB + "MB (" + headroomPercent + "% headroom, " +
+                (recent.isEmpty()?"no peaks recorded":(recent.size() + " peaks recorded")) + ")";
+    }
+
+    public static final class Peak {
+
+        private final long pid;
+        private final ScheduledFuture<?> sampling;
+        private volatile long peak = UNKNOWN_PEAK;
+
+        private Peak(long pid) {
+            this.pid = pid;
+            this.sampling = pid < 0?null:sampler.scheduleAtFixedRate(this::sample, 0, SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Stops sampling, meant to be called once the process ended.
+         *
+         * @return the last peak resident memory sampled, in bytes, or a negative value if none could be sampled.
+         */
+        public long stop() {
+            if (sampling != null)
+                sampling.cancel(false);
+            return peak;
+        }
+
+        private void sample() {
+            try {
+                for (String line : Files.readAllLines(Paths.get("/proc", Long.toString(pid), "status"), StandardCharsets.UTF_8)) {
+                    if (line.startsWith("VmHWM:")) {
+                        peak = Math.max(peak, Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim()) * 1024);
+                        return;
+                    }
+                }
+            } catch (IOException | RuntimeException ignored) {
+                //the process already ended, or there is no /proc file system
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,99 @@
+package ar.edu.unrc.exa.dc.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A per-call time budget for an external tool (e.g.: ARepair, or BeAFix in a given mode), learned from the durations
+ * of the previous calls made during the current run.
+ * <p>
+ * Once {@code minimumSamples} calls were recorded, each call is given the largest of: {@code factor} times the median
+ * duration, the 95th percentile of the durations, and {@value #MINIMUM_BUDGET_SECONDS} seconds. Only the last
+ * {@value #WINDOW} calls are used. Calls exceeding their budget are recorded as taking exactly their budget (their
+ * duration is at least that), so the budget only grows when calls are killed often. A factor of {@code 0} disables
+ * the budget.
+ */
+public final class AdaptiveTimeout {
+
+    private static final long MINIMUM_BUDGET_SECONDS = 10;
+    private static final int WINDOW = 256;
+
+    private final double factor;
+    private final int minimumSamples;
+    private final List<Long> durations = new ArrayList<>(); //sorted
+    private final Deque<Long> recent = new ArrayDeque<>(); //in the order they were recorded
+
+    public AdaptiveTimeout(double factor, int minimumSamples) {
+        if (factor < 0)
+            throw new IllegalArgumentException("negative factor (" + factor + ")");
+        if (factor > 0 && factor < 1)
+            throw new IllegalArgumentException("factor must be 0 (disabled) or at least 1 (" + factor + ")");
+        if (minimumSamples < 1)
+            throw new IllegalArgumentException("minimum samples must be at least 1 (" + minimumSamples + ")");
+        this.factor = factor;
+        this.minimumSamples = minimumSamples;
+    }
+
+    public static AdaptiveTimeout disabled() {
+        return new AdaptiveTimeout(0, 1);
+    }
+
+    public boolean isEnabled() {
+        return factor > 0;
+    }
+
+    /**
+     * Records the duration of a call that ended within its budget.
+     */
+    public synchronized void record(long nanos) {
+        if (recent.size() == WINDOW)
+            durations.remove(Collections.binarySearch(durations, recent.pollFirst()));
+        recent.addLast(nanos);
+        int position = Collections.binarySearch(durations, nanos);
+        durations.add(position < 0?-(position + 1):position, nanos);
+    }
+
+    /**
+     * Records a call that was destroyed when it exceeded {@code budgetNanos}.
+     */
+    public synchronized void recordExceeded(long budgetNanos) {
+        if (budgetNanos != Long.MAX_VALUE)
+            record(budgetNanos);
+    }
+
+    /**
+     * @return the budget for the next call, in nanoseconds, or {@link Long#MAX_VALUE} if the budget is disabled or
+     * there are not enough recorded calls yet.
+     */
+    public synchronized long budgetNanos() {
+        if (!isEnabled() || durations.size() < minimumSamples)
+            return Long.MAX_VALUE;
+        long budget = (long) Math.min(Long.MAX_VALUE, factor * percentile(50));
+        budget = Math.max(budget, percentile(95));
+        return Math.max(budget, TimeUnit.SECONDS.toNanos(MINIMUM_BUDGET_SECONDS));
+    }
+
+    /**
+     * Nearest-rank percentile of the recorded durations, in nanoseconds.
+     */
+    private long percentile(int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * durations.size());
+        return durations.get(Math.max(0, rank - 1));
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (!isEnabled())
+            return "disabled";
+        if (durations.size() < minimumSamples)
+            return "learning (" + durations.size() + "/" + minimumSamples + " calls)";
+        return "median " + TimeUnit.NANOSECONDS.toMillis(percentile(50)) + "ms, p95 " +
+                TimeUnit.NANOSECONDS.toMillis(percentile(95)) + "ms, budget " +
+                TimeUnit.NANOSECONDS.toMillis(budgetNanos()) + "ms";
+    }
+
+}
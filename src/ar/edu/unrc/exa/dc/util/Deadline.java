@@ -0,0 +1,107 @@
+package ar.edu.unrc.exa.dc.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A wall-clock deadline shared by all the external processes (ARepair and BeAFix) run by ICEBAR, each process is given
+ * the time remaining until the deadline, and is destroyed, along with any process it started, when that time runs out.
+ */
+public final class Deadline {
+
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * @return a deadline {@code minutes} minutes from now, or {@link #NONE} if {@code minutes} is not positive.
+     */
+    public static Deadline afterMinutes(long minutes) {
+        return afterMinutes(minutes, 0);
+    }
+
+    /**
+     * @return a deadline {@code minutes} minutes after a run that has already taken {@code elapsedNanos} nanoseconds
+     * (e.g.: a resumed search), or {@link #NONE} if {@code minutes} is not positive.
+     */
+    public static Deadline afterMinutes(long minutes, long elapsedNanos) {
+        if (minutes <= 0)
+            return NONE;
+        return new Deadline(System.nanoTime() + TimeUnit.MINUTES.toNanos(minutes) - Math.max(0, elapsedNanos));
+    }
+
+    /**
+     * @return the earliest between this deadline and {@code nanos} nanoseconds from now ({@link Long#MAX_VALUE} meaning
+     * no limit).
+     */
+    public Deadline within(long nanos) {
+        if (nanos == Long.MAX_VALUE)
+            return this;
+        long callDeadline = System.nanoTime() + nanos;
+        if (isSet() && deadlineNanos - callDeadline <= 0)
+            return this;
+        return new Deadline(callDeadline);
+    }
+
+    public boolean isSet() {
+        return deadlineNanos != Long.MAX_VALUE;
+    }
+
+    public boolean reached() {
+        return isSet() && remainingNanos() <= 0;
+    }
+
+    public long remainingNanos() {
+        if (!isSet())
+            return Long.MAX_VALUE;
+        return deadlineNanos - System.nanoTime();
+    }
+
+    /**
+     * Waits for {@code process} to end, destroying it (and its descendants) if it is still running when the deadline is
+     * reached.
+     *
+     * @return {@code true} if the process ended before the deadline, {@code false} if it was destroyed.
+     */
+    public boolean waitFor(Process process) throws InterruptedException {
+        if (!isSet()) {
+            process.waitFor();
+            return true;
+        }
+        if (process.waitFor(Math.max(0, remainingNanos()), TimeUnit.NANOSECONDS))
+            return true;
+        destroyProcessTree(process);
+        return false;
+    }
+
+    /**
+     * Forcibly destroys {@code process} and, when running on Java 9 or newer, all its descendants.
+     */
+    public static void destroyProcessTree(Process process) {
+        try {
+            Method descendants = Process.class.getMethod("descendants");
+            Method destroyForcibly = Class.forName("java.lang.ProcessHandle").getMethod("destroyForcibly");
+            try (Stream<?> handles = (Stream<?>) descendants.invoke(process)) {
+                handles.forEach(handle -> {
+                    try {
+                        destroyForcibly.invoke(handle);
+                    } catch (ReflectiveOperationException ignored) {}
+                });
+            }
+        } catch (ReflectiveOperationException ignored) {
+            //Java 8, only the process itself can be destroyed
+        }
+        process.destroyForcibly();
+    }
+
+    @Override
+    public String toString() {
+        return isSet()?(TimeUnit.NANOSECONDS.toSeconds(Math.max(0, remainingNanos())) + "s remaining"):"no deadline";
+    }
+
+}
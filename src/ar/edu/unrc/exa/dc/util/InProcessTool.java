@@ -0,0 +1,511 @@
+package ar.edu.unrc.exa.dc.util;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.security.Permission;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the {@code main} method of an external tool (e.g.: ARepair) inside ICEBAR's JVM, avoiding the JVM startup and
+ * class loading paid by each call when running the tool as a separate process.
+ * <p>
+ * The tool's classpath is loaded by its own class loader, isolated from ICEBAR's classes, which is replaced after a
+ * given number of calls so static state kept by the tool doesn't leak between too many calls. The bytecode read from
+ * the classpath is kept for the tool's lifetime, so replacing the class loader only costs defining the classes again. Each call runs in its own
+ * thread, with {@code System.out} and {@code System.err} redirected (only for that thread and the threads it starts) to
+ * the given files, and with {@code System.exit} calls trapped and treated as the call's exit code. To do this, a
+ * security manager and redirecting {@code System.out} and {@code System.err} streams are installed when a call starts,
+ * and the previous ones are restored once no in-process call (of any tool) is running.
+ * <p>
+ * Only one call runs at a time, a call made while another one is running is not run ({@link Status#UNAVAILABLE}), and
+ * the caller is expected to run the tool as a separate process instead. The same happens when {@code System.exit}
+ * can't be trapped (i.e.: a security manager can't be installed, from Java 18 onwards unless the JVM is started with
+ * {@code -Djava.security.manager=allow}). A call still running when its deadline is reached is stopped when possible,
+ * otherwise it's abandoned, and later calls are unavailable until it ends.
+ */
+public final class InProcessTool {
+
+    public enum Status {ENDED, DEADLINE_REACHED, UNAVAILABLE}
+
+    public static final class Result {
+
+        static final Result UNAVAILABLE = new Result(Status.UNAVAILABLE, -1);
+        static final Result DEADLINE_REACHED = new Result(Status.DEADLINE_REACHED, -1);
+
+        private final Status status;
+        private final int exitCode;
+
+        private Result(Status status, int exitCode) {
+            this.status = status;
+            this.exitCode = exitCode;
+        }
+
+        static Result ended(int exitCode) {
+            return new Result(Status.ENDED, exitCode);
+        }
+
+        public Status status() {
+            return status;
+        }
+
+        /**
+         * @return {@code 0} if {@code main} returned, the value given to {@code System.exit} if it was called, or
+         * {@code 1} if {@code main} threw an exception (printed to the call's error file).
+         */
+        public int exitCode() {
+            return exitCode;
+        }
+
+    }
+
+    private static final long STOP_GRACE_MILLIS = 1000;
+    private static final InheritableThreadLocal<PrintStream[]> redirections = new InheritableThreadLocal<>();
+    private static boolean exitTrapUnsupported = false;
+    private static int activeCalls = 0;
+    @SuppressWarnings("removal")
+    private static SecurityManager previousSecurityManager = null;
+    private static PrintStream previousOut = null;
+    private static PrintStream previousErr = null;
+
+    private final URL[] classpath;
+    private final String mainClass;
+    private final int callsPerLoader;
+    private final Semaphore slot = new Semaphore(1);
+    private final Map<String, ClassBytes> bytecode = new ConcurrentHashMap<>();
+    private URLClassLoader classpathResources = null;
+    private ToolClassLoader loader = null;
+    private int loaderCalls = 0;
+
+    /**
+     * @param callsPerLoader how many calls share a class loader before it's replaced by a new one.
+     */
+    public InProcessTool(List<Path> classpath, String mainClass, int callsPerLoader) {
+        if (classpath == null || classpath.isEmpty())
+            throw new IllegalArgumentException("null or empty classpath");
+        if (mainClass == null || mainClass.trim().isEmpty())
+            throw new IllegalArgumentException("null or empty main class");
+        if (callsPerLoader < 1)
+            throw new IllegalArgumentException("calls per class loader must be at least 1 (" + callsPerLoader + ")");
+        this.classpath = new URL[classpath.size()];
+        for (int p = 0; p < classpath.size(); p++) {
+            try {
+                this.classpath[p] = classpath.get(p).toAbsolutePath().toUri().toURL();
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException("Invalid classpath entry (" + classpath.get(p) + ")", e);
+            }
+        }
+        this.mainClass = mainClass;
+        this.callsPerLoader = callsPerLoader;
+    }
+
+    /**
+     * Code run while holding the right to make a call, i.e.: no other call runs at the same time.
+     */
+    @FunctionalInterface
+    public interface CallHook {
+        void run() throws IOException;
+    }
+
+    /**
+     * Calls the tool's {@code main} with {@code args}, appending its standard output and error to {@code output} and
+     * {@code error}.
+     *
+     * @param beforeCall run (if not null) right before the call, e.g.: to clean files the tool writes to.
+     * @param afterCall  run (if not null) when the call ends before {@code deadline}, before another call can start,
+     *                   e.g.: to move files the tool wrote somewhere else.
+     */
+    public Result run(String[] args, File output, File error, Deadline deadline, CallHook beforeCall, CallHook afterCall) throws InterruptedException, IOException {
+        if (!slot.tryAcquire())
+            return Result.UNAVAILABLE;
+        if (!installExitTrap()) {
+            slot.release();
+            return Result.UNAVAILABLE;
+        }
+        AtomicBoolean released = new AtomicBoolean(false);
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                removeExitTrap();
+                slot.release();
+            }
+        };
+        ToolClassLoader callLoader = loader();
+        Method main;
+        PrintStream[] streams;
+        try {
+            main = callLoader.loadClass(mainClass).getMethod("main", String[].class);
+            if (beforeCall != null)
+                beforeCall.run();
+            streams = new PrintStream[]{new PrintStream(new FileOutputStream(output, true), true), new PrintStream(new FileOutputStream(error, true), true)};
+        } catch (ReflectiveOperationException | LinkageError e) {
+            release.run();
+            return Result.UNAVAILABLE;
+        } catch (IOException e) {
+            release.run();
+            throw e;
+        }
+        int[] exitCode = {0};
+        AtomicBoolean finished = new AtomicBoolean(false);
+        AtomicBoolean abandoned = new AtomicBoolean(false);
+        Thread call = new Thread(() -> {
+            redirections.set(streams);
+            try {
+                main.invoke(null, (Object) args);
+            } catch (InvocationTargetException e) {
+                ExitTrapped exit = exitTrapped(e.getCause());
+                if (exit != null) {
+                    exitCode[0] = exit.status;
+                } else {
+                    e.getCause().printStackTrace(streams[1]);
+                    exitCode[0] = 1;
+                }
+            } catch (IllegalAccessException e) {
+                e.printStackTrace(streams[1]);
+                exitCode[0] = 1;
+            } finally {
+                redirections.remove();
+                streams[0].close();
+                streams[1].close();
+                finished.set(true);
+                if (abandoned.get())
+                    release.run();
+            }
+        }, "in-process " + mainClass);
+        call.setDaemon(true);
+        call.setContextClassLoader(callLoader);
+        call.start();
+        try {
+            if (!join(call, deadline)) {
+                abandon(call, abandoned, finished, release);
+                return Result.DEADLINE_REACHED;
+            }
+        } catch (InterruptedException e) {
+            abandon(call, abandoned, finished, release);
+            throw e;
+        }
+        try {
+            if (afterCall != null)
+                afterCall.run();
+        } finally {
+            synchronized (this) {
+                if (callLoader == loader && ++loaderCalls >= callsPerLoader)
+                    discardLoader();
+            }
+            release.run();
+        }
+        return Result.ended(exitCode[0]);
+    }
+
+    /**
+     * Loads and initializes the tool's main class ahead of the first call, failures are left to be reported by it.
+     */
+    void warmUp() {
+        try {
+            Class.forName(mainClass, true, loader());
+        } catch (ReflectiveOperationException | LinkageError ignored) {
+            //the first call will be unavailable
+        }
+    }
+
+    /**
+     * Stops {@code call} (see {@link #stop(Thread)}), the right to make a call is given back now if it ended, or by the
+     * call itself when it ends otherwise.
+     */
+    private void abandon(Thread call, AtomicBoolean abandoned, AtomicBoolean finished, Runnable release) throws InterruptedException {
+        try {
+            stop(call);
+        } finally {
+            abandoned.set(true);
+            if (finished.get())
+                release.run();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return mainClass + " (in-process, " + callsPerLoader + " calls per class loader)";
+    }
+
+    private synchronized ToolClassLoader loader() {
+        if (loader == null) {
+            if (classpathResources == null)
+                classpathResources = new URLClassLoader(classpath, null);
+            loader = new ToolClassLoader(this);
+            loaderCalls = 0;
+        }
+        return loader;
+    }
+
+    private synchronized void discardLoader() {
+        loader = null;
+    }
+
+    /**
+     * @return the bytecode of {@code className} and where it comes from, or {@code null} if it's not in the classpath.
+     */
+    private ClassBytes classBytes(String className) throws IOException {
+        ClassBytes cached = bytecode.get(className);
+        if (cached != null)
+            return cached;
+        URL resource = classpathResources.findResource(className.replace('.', '/') + ".class");
+        if (resource == null)
+            return null;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = resource.openStream()) {
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) != -1;) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+        URL source = null;
+        for (URL entry : classpath) {
+            String location = resource.toString();
+            if (location.startsWith(entry.toString()) || location.startsWith("jar:" + entry + "!/"))
+                source = entry;
+        }
+        ClassBytes classBytes = new ClassBytes(bytes.toByteArray(), new CodeSource(source, (Certificate[]) null));
+        bytecode.put(className, classBytes);
+        return classBytes;
+    }
+
+    private static final class ClassBytes {
+
+        private final byte[] bytes;
+        private final CodeSource source;
+
+        private ClassBytes(byte[] bytes, CodeSource source) {
+            this.bytes = bytes;
+            this.source = source;
+        }
+
+    }
+
+    /**
+     * Defines the tool's classes from the bytecode kept by the tool, resources are read from the classpath.
+     */
+    private static final class ToolClassLoader extends ClassLoader {
+
+        private final InProcessTool tool;
+        private final Map<CodeSource, ProtectionDomain> domains = new ConcurrentHashMap<>();
+        private final Set<String> packages = ConcurrentHashMap.newKeySet();
+
+        private ToolClassLoader(InProcessTool tool) {
+            super(ClassLoader.getSystemClassLoader().getParent());
+            this.tool = tool;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            ClassBytes classBytes;
+            try {
+                classBytes = tool.classBytes(name);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+            if (classBytes == null)
+                throw new ClassNotFoundException(name);
+            int packageEnd = name.lastIndexOf('.');
+            if (packageEnd > 0 && packages.add(name.substring(0, packageEnd))) {
+                try {
+                    definePackage(name.substring(0, packageEnd), null, null, null, null, null, null, null);
+                } catch (IllegalArgumentException ignored) {
+                    //already defined
+                }
+            }
+            ProtectionDomain domain = domains.computeIfAbsent(classBytes.source, source -> new ProtectionDomain(source, null, this, null));
+            return defineClass(name, classBytes.bytes, 0, classBytes.bytes.length, domain);
+        }
+
+        @Override
+        protected URL findResource(String name) {
+            return tool.classpathResources.findResource(name);
+        }
+
+        @Override
+        protected Enumeration<URL> findResources(String name) throws IOException {
+            return tool.classpathResources.findResources(name);
+        }
+
+    }
+
+    private static boolean join(Thread call, Deadline deadline) throws InterruptedException {
+        if (!deadline.isSet()) {
+            call.join();
+            return true;
+        }
+        long remainingMillis;
+        while (call.isAlive() && (remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline.remainingNanos())) > 0) {
+            call.join(remainingMillis);
+        }
+        return !call.isAlive();
+    }
+
+    /**
+     * Interrupts {@code call} and, if it doesn't end, stops it when the running Java version still allows it. Either
+     * way its class loader is discarded, since the tool's static state may be left inconsistent.
+     */
+    @SuppressWarnings({"deprecation", "removal"})
+    private void stop(Thread call) throws InterruptedException {
+        discardLoader();
+        call.interrupt();
+        call.join(STOP_GRACE_MILLIS);
+        if (!call.isAlive())
+            return;
+        try {
+            call.stop();
+        } catch (UnsupportedOperationException ignored) {
+            //Java 20 onwards, the call is abandoned
+        }
+    }
+
+    private static ExitTrapped exitTrapped(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ExitTrapped)
+                return (ExitTrapped) cause;
+        }
+        return null;
+    }
+
+    /**
+     * Installs the exit trap and the redirections for a new call, unless they are already installed for another one.
+     *
+     * @return {@code false} if {@code System.exit} can't be trapped.
+     */
+    @SuppressWarnings("removal")
+    private static synchronized boolean installExitTrap() {
+        if (exitTrapUnsupported)
+            return false;
+        if (activeCalls == 0) {
+            SecurityManager current = System.getSecurityManager();
+            if (!(current instanceof ExitTrap)) {
+                try {
+                    System.setSecurityManager(new ExitTrap(current));
+                    previousSecurityManager = current;
+                } catch (UnsupportedOperationException | SecurityException e) {
+                    exitTrapUnsupported = true;
+                    return false;
+                }
+            }
+            previousOut = System.out;
+            previousErr = System.err;
+            System.setOut(new RedirectedStream(previousOut, 0));
+            System.setErr(new RedirectedStream(previousErr, 1));
+        }
+        activeCalls++;
+        return true;
+    }
+
+    /**
+     * Restores the previous security manager and standard streams once no call is running.
+     */
+    @SuppressWarnings("removal")
+    private static synchronized void removeExitTrap() {
+        if (--activeCalls > 0)
+            return;
+        System.setOut(previousOut);
+        System.setErr(previousErr);
+        try {
+            System.setSecurityManager(previousSecurityManager);
+        } catch (SecurityException ignored) {
+            //the previous security manager doesn't allow it, the trap is kept and reused by the next call
+        }
+    }
+
+    private static final class ExitTrapped extends SecurityException {
+
+        private static final long serialVersionUID = 1L;
+        private final int status;
+
+        private ExitTrapped(int status) {
+            super("System.exit(" + status + ") called by an in-process tool");
+            this.status = status;
+        }
+
+    }
+
+    /**
+     * Turns {@code System.exit} calls made by in-process tools into {@link ExitTrapped} exceptions, every other check
+     * is delegated to the previously installed security manager, if any.
+     */
+    @SuppressWarnings("removal")
+    private static final class ExitTrap extends SecurityManager {
+
+        private final SecurityManager delegate;
+
+        private ExitTrap(SecurityManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void checkExit(int status) {
+            if (redirections.get() != null)
+                throw new ExitTrapped(status);
+            if (delegate != null)
+                delegate.checkExit(status);
+        }
+
+        @Override
+        public void checkPermission(Permission permission) {
+            if (delegate != null)
+                delegate.checkPermission(permission);
+        }
+
+        @Override
+        public void checkPermission(Permission permission, Object context) {
+            if (delegate != null)
+                delegate.checkPermission(permission, context);
+        }
+
+    }
+
+    /**
+     * Writes to the redirection of the current thread, if it has one, or to the original stream otherwise.
+     */
+    private static final class RedirectedStream extends PrintStream {
+
+        private final PrintStream original;
+        private final int index;
+
+        private RedirectedStream(PrintStream original, int index) {
+            super(original, true);
+            this.original = original;
+            this.index = index;
+        }
+
+        private PrintStream target() {
+            PrintStream[] streams = redirections.get();
+            return streams == null?original:streams[index];
+        }
+
+        @Override
+        public void write(int b) {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) {
+            target().write(buf, off, len);
+        }
+
+        @Override
+        public void flush() {
+            target().flush();
+        }
+
+    }
+
+}
@@ -0,0 +1,184 @@
+package ar.edu.unrc.exa.dc.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Canonical hashing of Alloy models, two models that only differ in comments, whitespace, or the order of their
+ * paragraphs (signatures, facts, predicates, functions, assertions, commands, etc.) have the same hash.
+ * <p>
+ * The canonical form of a model is obtained by splitting it into tokens (identifiers and numbers, and each remaining
+ * character by itself), dropping comments and whitespace, splitting the tokens into top level paragraphs, and sorting
+ * those paragraphs. The hash is the MD5 digest (128 bits) of the canonical form.
+ */
+public final class ModelHashes {
+
+    private static final Set<String> PARAGRAPH_KEYWORDS = new HashSet<>(Arrays.asList(
+            "module", "open", "sig", "enum", "fact", "pred", "fun", "assert", "check", "run", "let"
+    ));
+    private static final Set<String> MODIFIERS = new HashSet<>(Arrays.asList(
+            "abstract", "one", "lone", "some", "private", "var"
+    ));
+
+    private ModelHashes() {}
+
+    public static String canonicalHash(Path model) throws IOException {
+        return canonicalHash(new String(Files.readAllBytes(model), StandardCharsets.UTF_8));
+    }
+
+    public static String canonicalHash(String model) {
+        return hash(canonicalForm(model));
+    }
+
+    /**
+     * The MD5 digest (128 bits) of {@code parts}, as they are (i.e.: not in canonical form), used to build keys from
+     * model hashes and other values.
+     */
+    public static String hash(String... parts) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+            for (String part : parts) {
+                messageDigest.update(part.getBytes(StandardCharsets.UTF_8));
+                messageDigest.update((byte) 0);
+            }
+            StringBuilder hash = new StringBuilder();
+            for (byte b : messageDigest.digest()) {
+                hash.append(String.format("%02x", b));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("This should not be happening!", e);
+        }
+    }
+
+    /**
+     * @return the model's paragraphs, sorted, one per line, with their tokens separated by a single space.
+     */
+    public static String canonicalForm(String model) {
+        List<String> paragraphs = new ArrayList<>();
+        for (Paragraph paragraph : paragraphs(model)) {
+            paragraphs.add(paragraph.toString());
+        }
+        Collections.sort(paragraphs);
+        return String.join("\n", paragraphs);
+    }
+
+    /**
+     * A top level paragraph of a model, its tokens and where it starts and ends in the model.
+     */
+    public static final class Paragraph {
+
+        private final List<String> tokens;
+        private final int start;
+        private final int end;
+
+        private Paragraph(List<String> tokens, int start, int end) {
+            this.tokens = Collections.unmodifiableList(tokens);
+            this.start = start;
+            this.end = end;
+        }
+
+        public List<String> tokens() {
+            return tokens;
+        }
+
+        public String token(int index) {
+            return index < tokens.size()?tokens.get(index):"";
+        }
+
+        public int start() {
+            return start;
+        }
+
+        public int end() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return String.join(" ", tokens);
+        }
+
+    }
+
+    /**
+     * @return the model's top level paragraphs, in the order they appear.
+     */
+    public static List<Paragraph> paragraphs(String model) {
+        List<String> tokens = new ArrayList<>();
+        List<int[]> positions = new ArrayList<>();
+        tokenize(model, tokens, positions);
+        List<Paragraph> paragraphs = new ArrayList<>();
+        int paragraphStart = 0;
+        int depth = 0;
+        for (int t = 0; t < tokens.size(); t++) {
+            String token = tokens.get(t);
+            if (depth == 0 && t > paragraphStart && startsParagraph(tokens, t)) {
+                paragraphs.add(paragraph(tokens, positions, paragraphStart, t));
+                paragraphStart = t;
+            }
+            if (token.equals("{"))
+                depth++;
+            else if (token.equals("}"))
+                depth = Math.max(0, depth - 1);
+        }
+        if (paragraphStart < tokens.size())
+            paragraphs.add(paragraph(tokens, positions, paragraphStart, tokens.size()));
+        return paragraphs;
+    }
+
+    private static Paragraph paragraph(List<String> tokens, List<int[]> positions, int from, int to) {
+        return new Paragraph(new ArrayList<>(tokens.subList(from, to)), positions.get(from)[0], positions.get(to - 1)[1]);
+    }
+
+    /**
+     * A paragraph starts with a paragraph keyword not preceded by a modifier, or with modifiers followed by a paragraph
+     * keyword (e.g.: {@code abstract sig}, {@code one sig}), other uses of modifiers (e.g.: {@code f: one A}) are not
+     * paragraph starts.
+     */
+    private static boolean startsParagraph(List<String> tokens, int t) {
+        if (t > 0 && MODIFIERS.contains(tokens.get(t - 1)))
+            return false;
+        int next = t;
+        while (next < tokens.size() && MODIFIERS.contains(tokens.get(next)))
+            next++;
+        return next < tokens.size() && PARAGRAPH_KEYWORDS.contains(tokens.get(next));
+    }
+
+    private static void tokenize(String model, List<String> tokens, List<int[]> positions) {
+        int length = model.length();
+        int i = 0;
+        while (i < length) {
+            char c = model.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if ((c == '-' || c == '/') && i + 1 < length && model.charAt(i + 1) == c) {
+                while (i < length && model.charAt(i) != '\n')
+                    i++;
+            } else if (c == '/' && i + 1 < length && model.charAt(i + 1) == '*') {
+                int end = model.indexOf("*/", i + 2);
+                i = end < 0?length:end + 2;
+            } else if (isIdentifierChar(c)) {
+                int start = i;
+                while (i < length && isIdentifierChar(model.charAt(i)))
+                    i++;
+                tokens.add(model.substring(start, i));
+                positions.add(new int[]{start, i});
+            } else {
+                tokens.add(String.valueOf(c));
+                positions.add(new int[]{i, i + 1});
+                i++;
+            }
+        }
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '\'' || c == '"' || c == '$';
+    }
+
+}
@@ -0,0 +1,169 @@
+package ar.edu.unrc.exa.dc.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * An AppCDS (Class Data Sharing) archive for the JVMs started to run a given classpath (e.g.: ARepair's), sparing each
+ * of them the loading, parsing, and verification of the classes it needs (Alloy, Kodkod, and the tool's own).
+ * <p>
+ * The archive is created by the first JVM started while it doesn't exist, which dumps the classes it loaded when it
+ * ends ({@code -XX:ArchiveClassesAtExit}) to a temporary file, moved to the archive's location if that JVM ended
+ * normally; JVMs started meanwhile run without an archive. The archive's name includes a hash of the java version and
+ * of the classpath (paths and contents), so a changed jar, or a different JVM, leads to a new archive. Archives are
+ * only available when the java command is Java {@value #DYNAMIC_ARCHIVE_VERSION} or newer, and the classpath only has
+ * jar files.
+ */
+public final class SharedArchive {
+
+    private static final int DYNAMIC_ARCHIVE_VERSION = 13;
+    private static final String ARCHIVE_EXTENSION = ".jsa";
+    private static final String USE_ARCHIVE = "-XX:SharedArchiveFile=";
+    private static final String CREATE_ARCHIVE = "-XX:ArchiveClassesAtExit=";
+    private static final Pattern VERSION = Pattern.compile("version \"([^\"]+)\"");
+    private static final Map<String, String> javaVersions = new ConcurrentHashMap<>();
+
+    private final Path archive;
+    private final AtomicBoolean creating = new AtomicBoolean(false);
+
+    /**
+     * @param directory where archives are kept, created if it doesn't exist.
+     * @param name      prefix of the archive's file name, identifying the tool.
+     * @param java      the java command used to start the JVMs.
+     */
+    public SharedArchive(Path directory, String name, String java, List<Path> classpath) throws IOException {
+        if (directory == null)
+            throw new IllegalArgumentException("null directory");
+        if (name == null || name.trim().isEmpty())
+            throw new IllegalArgumentException("null or empty name");
+        if (classpath == null || classpath.isEmpty())
+            throw new IllegalArgumentException("null or empty classpath");
+        String javaVersion = javaVersion(java);
+        if (majorVersion(javaVersion) < DYNAMIC_ARCHIVE_VERSION || !classpath.stream().allMatch(SharedArchive::isValidJar)) {
+            this.archive = null;
+            return;
+        }
+        List<String> parts = new LinkedList<>();
+        parts.add(javaVersion);
+        for (Path entry : classpath) {
+            parts.add(entry.toAbsolutePath().toString());
+            parts.add(contentHash(entry));
+        }
+        Files.createDirectories(directory);
+        this.archive = directory.toAbsolutePath().resolve(name + "-" + ModelHashes.hash(parts.toArray(new String[0])) + ARCHIVE_EXTENSION);
+    }
+
+    public boolean isAvailable() {
+        return archive != null;
+    }
+
+    /**
+     * The options for a new JVM: using the archive if it exists, creating it if it doesn't and no other JVM is already
+     * doing so, or none otherwise. Options creating the archive must be given back to {@link #ended(List, Process)}.
+     */
+    public List<String> jvmOptions() throws IOException {
+        if (archive == null)
+            return Collections.emptyList();
+        if (Files.isRegularFile(archive))
+            return Collections.singletonList(USE_ARCHIVE + archive);
+        if (!creating.compareAndSet(false, true))
+            return Collections.emptyList();
+        Path temporaryArchive = Files.createTempFile(archive.getParent(), archive.getFileName() + ".", ".tmp");
+        return Collections.singletonList(CREATE_ARCHIVE + temporaryArchive);
+    }
+
+    /**
+     * To be called once a JVM started with {@code jvmOptions} ended (or couldn't be started, with a {@code null}
+     * {@code process}), the archive it created is kept only if it ended normally.
+     */
+    public void ended(List<String> jvmOptions, Process process) {
+        Optional<Path> temporaryArchive = jvmOptions.stream().filter(option -> option.startsWith(CREATE_ARCHIVE))
+                .map(option -> archive.getParent().resolve(option.substring(CREATE_ARCHIVE.length()))).findFirst();
+        if (!temporaryArchive.isPresent())
+            return;
+        try {
+            if (process != null && !process.isAlive() && process.exitValue() == 0 && temporaryArchive.get().toFile().length() > 0)
+                Files.move(temporaryArchive.get(), archive, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            //another ICEBAR run created the archive first, or it will be created by a later JVM
+        } finally {
+            temporaryArchive.get().toFile().delete();
+            creating.set(false);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return archive == null?"unavailable":archive.toString();
+    }
+
+    private static boolean isValidJar(Path entry) {
+        return Files.isRegularFile(entry) && entry.getFileName().toString().endsWith(".jar");
+    }
+
+    /**
+     * The version of {@code java}, as reported by {@code java -version}, or an empty string if it couldn't be run.
+     */
+    private static String javaVersion(String java) {
+        return javaVersions.computeIfAbsent(java, command -> {
+            try {
+                Process process = new ProcessBuilder(command, "-version").redirectErrorStream(true).start();
+                String output;
+                try (BufferedReader versionOutput = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                    output = versionOutput.lines().collect(Collectors.joining("\n"));
+                }
+                process.waitFor();
+                Matcher version = VERSION.matcher(output);
+                return version.find()?version.group(1):"";
+            } catch (IOException e) {
+                return "";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "";
+            }
+        });
+    }
+
+    /**
+     * @return the major version from a version string (e.g.: {@code 8} for {@code 1.8.0_392}, {@code 17} for
+     * {@code 17.0.9}), or {@code 0} if it can't be parsed.
+     */
+    private static int majorVersion(String version) {
+        Matcher major = Pattern.compile("^(?:1\\.)?(\\d+)").matcher(version);
+        return major.find()?Integer.parseInt(major.group(1)):0;
+    }
+
+    private static String contentHash(Path file) throws IOException {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+            try (InputStream contents = new DigestInputStream(Files.newInputStream(file), messageDigest)) {
+                byte[] buffer = new byte[8192];
+                //noinspection StatementWithEmptyBody
+                while (contents.read(buffer) != -1);
+            }
+            StringBuilder hash = new StringBuilder();
+            for (byte b : messageDigest.digest()) {
+                hash.append(String.format("%02x", b));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("This should not be happening!", e);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package ar.edu.unrc.exa.dc.util;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watches an external process (ARepair or BeAFix) for progress, a process is considered stalled when, for a whole
+ * window of time, neither its redirected output grew nor its CPU time (read from {@code /proc/<pid>/stat}) increased.
+ * <p>
+ * A process that keeps using CPU is never considered stalled, even if it produces no output; those are left to the
+ * per-call and global timeouts. When the CPU time of a process can't be read (e.g.: no {@code /proc} file system, or
+ * its pid is not available) it is never considered stalled either.
+ */
+public final class StallWatchdog {
+
+    public enum Outcome {ENDED, DEADLINE_REACHED, STALLED}
+
+    public static final StallWatchdog DISABLED = new StallWatchdog(0);
+
+    private static final long MINIMUM_POLL_MILLIS = 100;
+    private static final long MAXIMUM_POLL_MILLIS = 1000;
+    private static final long UNKNOWN_CPU_TIME = -1;
+
+    private final long windowNanos;
+
+    /**
+     * @param windowSeconds how long a process can go without progress before being destroyed, {@code 0} disables the
+     *                      watchdog.
+     */
+    public StallWatchdog(long windowSeconds) {
+        if (windowSeconds < 0)
+            throw new IllegalArgumentException("negative stall window (" + windowSeconds + ")");
+        this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+    }
+
+    public boolean isEnabled() {
+        return windowNanos > 0;
+    }
+
+    public long windowSeconds() {
+        return TimeUnit.NANOSECONDS.toSeconds(windowNanos);
+    }
+
+    /**
+     * Waits for {@code process} to end, destroying it (and its descendants) if {@code deadline} is reached or if it
+     * stalls.
+     *
+     * @param logs the files where the output of {@code process} is redirected.
+     */
+    public Outcome waitFor(Process process, Deadline deadline, Path... logs) throws InterruptedException {
+        if (!isEnabled())
+            return deadline.waitFor(process)?Outcome.ENDED:Outcome.DEADLINE_REACHED;
+        long pollNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(MINIMUM_POLL_MILLIS), Math.min(TimeUnit.MILLISECONDS.toNanos(MAXIMUM_POLL_MILLIS), windowNanos / 10));
+        long lastCpuTime = cpuTime(process);
+        long[] lastSizes = sizes(logs);
+        long lastProgress = System.nanoTime();
+        while (true) {
+            if (process.waitFor(Math.max(0, Math.min(pollNanos, deadline.remainingNanos())), TimeUnit.NANOSECONDS))
+                return Outcome.ENDED;
+            if (deadline.reached()) {
+                Deadline.destroyProcessTree(process);
+                return Outcome.DEADLINE_REACHED;
+            }
+            long cpuTime = cpuTime(process);
+            long[] sizes = sizes(logs);
+            long now = System.nanoTime();
+            if (cpuTime == UNKNOWN_CPU_TIME || cpuTime != lastCpuTime || !Arrays.equals(sizes, lastSizes)) {
+                lastCpuTime = cpuTime;
+                lastSizes = sizes;
+                lastProgress = now;
+            } else if (now - lastProgress >= windowNanos) {
+                Deadline.destroyProcessTree(process);
+                return Outcome.STALLED;
+            }
+        }
+    }
+
+    private static long[] sizes(Path[] logs) {
+        long[] sizes = new long[logs.length];
+        for (int l = 0; l < logs.length; l++) {
+            sizes[l] = logs[l].toFile().length();
+        }
+        return sizes;
+    }
+
+    /**
+     * The CPU time used by {@code process} and, when running on Java 9 or newer, by its descendants.
+     */
+    private static long cpuTime(Process process) {
+        long cpuTime = cpuTime(pid(process));
+        if (cpuTime == UNKNOWN_CPU_TIME)
+            return UNKNOWN_CPU_TIME;
+        try {
+            Method descendants = Process.class.getMethod("descendants");
+            Method pid = Class.forName("java.lang.ProcessHandle").getMethod("pid");
+            try (Stream<?> handles = (Stream<?>) descendants.invoke(process)) {
+                Iterator<?> it = handles.iterator();
+                while (it.hasNext()) {
+                    long descendantCpuTime = cpuTime((long) pid.invoke(it.next()));
+                    if (descendantCpuTime != UNKNOWN_CPU_TIME)
+                        cpuTime += descendantCpuTime;
+                }
+            }
+        } catch (ReflectiveOperationException ignored) {
+            //Java 8, only the process itself is considered
+        }
+        return cpuTime;
+    }
+
+    /**
+     * The CPU time used by process {@code pid} and its waited for children, in clock ticks (fields {@code utime},
+     * {@code stime}, {@code cutime}, and {@code cstime} of {@code /proc/<pid>/stat}).
+     */
+    private static long cpuTime(long pid) {
+        if (pid < 0)
+            return UNKNOWN_CPU_TIME;
+        try {
+            String stat = new String(Files.readAllBytes(Paths.get("/proc", Long.toString(pid), "stat")), StandardCharsets.UTF_8);
+            //the second field is the executable name between parentheses, which may contain spaces
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).trim().split("\\s+");
+            //fields[0] is the third field (state), utime is the 14th field
+            return Long.parseLong(fields[11]) + Long.parseLong(fields[12]) + Long.parseLong(fields[13]) + Long.parseLong(fields[14]);
+        } catch (IOException | RuntimeException e) {
+            return UNKNOWN_CPU_TIME;
+        }
+    }
+
+    /**
+     * @return the pid of {@code process} (using {@code Process#pid} on Java 9 or newer, or the {@code pid} field of
+     * Java 8 Unix processes), or {@code -1} if it is not available.
+     */
+    static long pid(Process process) {
+        try {
+            return (long) Process.class.getMethod("pid").invoke(process);
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+            //Java 8
+        }
+        try {
+            Field pid = process.getClass().getDeclaredField("pid");
+            pid.setAccessible(true);
+            return pid.getInt(process);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+}
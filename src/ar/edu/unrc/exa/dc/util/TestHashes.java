@@ -2,8 +2,14 @@ package ar.edu.unrc.exa.dc.util;
 
 import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.TreeSet;
 
 public final class TestHashes {
 
@@ -14,6 +20,10 @@ public final class TestHashes {
         hashes.add(hash);
     }
 
+    public void addHash(int hash) {
+        hashes.add(hash);
+    }
+
     public boolean contains(BeAFixTest test) {
         int hash = test.currentTestHashCode();
         return hashes.contains(hash);
@@ -23,4 +33,31 @@ public final class TestHashes {
         return hashes.size();
     }
 
+    public Set<Integer> hashes() {
+        return Collections.unmodifiableSet(hashes);
+    }
+
+    /**
+     * An order insensitive fingerprint for a test suite, two suites with the same tests (as defined by
+     * {@link BeAFixTest#currentTestHashCode()}), regardless of their order or repetitions, have the same fingerprint.
+     */
+    public static String fingerprint(Collection<BeAFixTest> tests) {
+        Set<Integer> sortedHashes = new TreeSet<>();
+        for (BeAFixTest test : tests) {
+            sortedHashes.add(test.currentTestHashCode());
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * sortedHashes.size());
+        sortedHashes.forEach(buffer::putInt);
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(buffer.array());
+            StringBuilder fingerprint = new StringBuilder();
+            for (byte b : digest) {
+                fingerprint.append(String.format("%02x", b));
+            }
+            return fingerprint.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("This should not be happening!", e);
+        }
+    }
+
 }
@@ -8,14 +8,14 @@ public class TimeCounter {
     private long time = 0;
     private long totalTime = 0;
 
-    public void clockStart() {
+    public synchronized void clockStart() {
         if (running)
             throw new IllegalStateException("Time counter already running");
         this.time = System.nanoTime();
         this.running = true;
     }
 
-    public void updateTotalTime() {
+    public synchronized void updateTotalTime() {
         if (!running)
             throw new IllegalStateException("Time counter is not running");
         long currentTime = System.nanoTime();
@@ -23,17 +23,29 @@ public class TimeCounter {
         this.time = currentTime;
     }
 
-    public void clockEnd() {
+    public synchronized void clockEnd() {
         if (!running)
             throw new IllegalStateException("Time counter is not running");
         this.totalTime += System.nanoTime() - this.time;
         this.running = false;
     }
 
-    public long toMilliSeconds() {
+    public synchronized void add(TimeCounter other) {
+        this.totalTime += other.totalNanoSeconds();
+    }
+
+    public synchronized void add(long nanoSeconds) {
+        this.totalTime += nanoSeconds;
+    }
+
+    public synchronized long totalNanoSeconds() {
+        return totalTime;
+    }
+
+    public synchronized long toMilliSeconds() {
         return TimeUnit.NANOSECONDS.toMillis(totalTime);
     }
 
-    public long toMinutes() { return TimeUnit.NANOSECONDS.toMinutes(totalTime); }
+    public synchronized long toMinutes() { return TimeUnit.NANOSECONDS.toMinutes(totalTime); }
 
 }
@@ -0,0 +1,78 @@
+package ar.edu.unrc.exa.dc.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Main class of the JVMs kept by a {@link WorkerPool}, calls a tool's {@code main} inside its own JVM (through
+ * {@link InProcessTool}) for each request read from its standard input, answering through its standard output.
+ * <p>
+ * Arguments are the tool's main class, how many calls share a class loader, and the tool's classpath. A request is the
+ * number of arguments for the call, each argument, and the paths of the output and error files; a response is the
+ * call's status ({@link #ENDED} or {@link #UNAVAILABLE}), its exit code, and the worker's resident memory in bytes. The
+ * worker ends when its standard input is closed.
+ */
+public final class ToolWorker {
+
+    static final int ENDED = 0;
+    static final int UNAVAILABLE = 1;
+
+    private ToolWorker() {}
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3)
+            throw new IllegalArgumentException("Expected a main class, calls per class loader, and a classpath");
+        DataInputStream requests = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        DataOutputStream responses = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        //anything else written to the standard output would be taken as part of a response
+        System.setOut(System.err);
+        List<Path> classpath = new LinkedList<>();
+        for (int a = 2; a < args.length; a++) {
+            classpath.add(Paths.get(args[a]));
+        }
+        InProcessTool tool = new InProcessTool(classpath, args[0], Integer.parseInt(args[1]));
+        tool.warmUp();
+        while (true) {
+            int argumentsCount;
+            try {
+                argumentsCount = requests.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+            String[] arguments = new String[argumentsCount];
+            for (int a = 0; a < argumentsCount; a++) {
+                arguments[a] = requests.readUTF();
+            }
+            File output = new File(requests.readUTF());
+            File error = new File(requests.readUTF());
+            InProcessTool.Result result = tool.run(arguments, output, error, Deadline.NONE, null, null);
+            responses.writeInt(result.status().equals(InProcessTool.Status.UNAVAILABLE)?UNAVAILABLE:ENDED);
+            responses.writeInt(result.exitCode());
+            responses.writeLong(residentMemory());
+            responses.flush();
+        }
+        //threads left running by the tool would keep the worker alive
+        System.exit(0);
+    }
+
+    /**
+     * The resident memory of this JVM (from {@code /proc/self/status}), or its used heap when not available.
+     */
+    private static long residentMemory() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.UTF_8)) {
+                if (line.startsWith("VmRSS:"))
+                    return Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim()) * 1024;
+            }
+        } catch (IOException | RuntimeException ignored) {
+            //no /proc file system
+        }
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+
+}
@@ -92,7 +92,7 @@ public final class Utils {
     }
 
     private static int testSuiteCount = 0;
-    public static void saveFailingTestSuite(Collection<BeAFixTest> tests, String modelName, boolean noFix) throws IOException {
+    public static synchronized void saveFailingTestSuite(Collection<BeAFixTest> tests, String modelName, boolean noFix) throws IOException {
         if (ICEBARProperties.getInstance().saveAllTestSuites()) {
             Path testsPath = Paths.get(
                     ICEBARExperiment.getInstance().failedTestSuitesFolderPath().toString(),
@@ -333,6 +333,12 @@ public final class Utils {
         return false;
     }
 
+    public static boolean findOutOfMemoryErrorInLog(Path log) throws IOException {
+        if (!isValidPath(log, PathCheck.FILE))
+            throw new IllegalArgumentException("Invalid log file " + (log==null?"NULL":log.toString()));
+        return findStringInFile(log, "java.lang.OutOfMemoryError").isPresent();
+    }
+
     public static Optional<String> findStringInFile(Path f, String target) throws IOException {
         if (!isValidPath(f, PathCheck.FILE))
             throw new IllegalArgumentException("Invalid file " + (f==null?"NULL":f.toString()));
@@ -0,0 +1,210 @@
+package ar.edu.unrc.exa.dc.util;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A pool of long-lived JVMs running an external tool (e.g.: ARepair) through {@link ToolWorker}, keeping the crash
+ * isolation of running each call as a separate process while sparing JVM startup, class loading, and JIT warm-up.
+ * <p>
+ * Workers are kept per working directory and JVM options, each running one call at a time. A worker is replaced by a
+ * new one (which warms up while idle) after a given number of calls, or when its resident memory exceeds a threshold.
+ * A worker that dies during a call (e.g.: a JVM crash) ends the call with its exit code, and a call still running when
+ * its deadline is reached is ended by destroying its worker; either way the next call starts a new worker. When
+ * workers can't trap the tool's {@code System.exit} calls every call is {@link InProcessTool.Status#UNAVAILABLE}, and
+ * the caller is expected to run the tool as a separate process instead.
+ */
+public final class WorkerPool {
+
+    private static final String WORKER_LOG = "toolWorker.log";
+    private static final long EXIT_GRACE_MILLIS = 1000;
+    //-Djava.security.manager=allow is accepted from Java 12 onwards, and required from Java 18 onwards
+    private static final int SECURITY_MANAGER_ALLOW_VERSION = 12;
+
+    private final List<Path> classpath;
+    private final String mainClass;
+    private final int jobsPerWorker;
+    private final long memoryThresholdBytes;
+    private final Map<String, Deque<Worker>> idle = new HashMap<>();
+    private final ExecutorService readers = Executors.newCachedThreadPool(r -> {
+        Thread reader = new Thread(r, "worker pool reader");
+        reader.setDaemon(true);
+        return reader;
+    });
+    private volatile boolean available = true;
+
+    /**
+     * @param jobsPerWorker        how many calls a worker runs before being replaced, its tool's classes are loaded once
+     *                             for all of them.
+     * @param memoryThresholdMB    resident memory, in MB, after which a worker is replaced, {@code 0} means no limit.
+     */
+    public WorkerPool(List<Path> classpath, String mainClass, int jobsPerWorker, long memoryThresholdMB) {
+        if (classpath == null || classpath.isEmpty())
+            throw new IllegalArgumentException("null or empty classpath");
+        if (mainClass == null || mainClass.trim().isEmpty())
+            throw new IllegalArgumentException("null or empty main class");
+        if (jobsPerWorker < 1)
+            throw new IllegalArgumentException("jobs per worker must be at least 1 (" + jobsPerWorker + ")");
+        if (memoryThresholdMB < 0)
+            throw new IllegalArgumentException("negative memory threshold (" + memoryThresholdMB + ")");
+        this.classpath = new LinkedList<>(classpath);
+        this.mainClass = mainClass;
+        this.jobsPerWorker = jobsPerWorker;
+        this.memoryThresholdBytes = memoryThresholdMB * 1024 * 1024;
+    }
+
+    /**
+     * Calls the tool's {@code main} with {@code args} on a worker running in {@code directory} with {@code jvmOptions}
+     * (e.g.: heap size), appending its standard output and error to {@code output} and {@code error}.
+     */
+    public InProcessTool.Result run(Path directory, List<String> jvmOptions, String[] args, File output, File error, Deadline deadline) throws IOException, InterruptedException {
+        if (!available)
+            return InProcessTool.Result.UNAVAILABLE;
+        String key = directory.toAbsolutePath().normalize() + "\n" + String.join("\n", jvmOptions);
+        Worker worker = take(key);
+        if (worker == null) {
+            worker = new Worker(directory, jvmOptions);
+        }
+        try {
+            worker.send(args, output, error);
+        } catch (IOException e) {
+            //the worker died while idle
+            worker.destroy();
+            worker = new Worker(directory, jvmOptions);
+            worker.send(args, output, error);
+        }
+        Future<long[]> response = readers.submit(worker::receive);
+        long[] received;
+        try {
+            received = deadline.isSet()?response.get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS):response.get();
+        } catch (TimeoutException e) {
+            worker.destroy();
+            return InProcessTool.Result.DEADLINE_REACHED;
+        } catch (InterruptedException e) {
+            worker.destroy();
+            throw e;
+        } catch (ExecutionException e) {
+            return InProcessTool.Result.ended(worker.crashed());
+        }
+        if (received[0] == ToolWorker.UNAVAILABLE) {
+            available = false;
+            worker.retire();
+            return InProcessTool.Result.UNAVAILABLE;
+        }
+        worker.jobs++;
+        if (worker.jobs >= jobsPerWorker || (memoryThresholdBytes > 0 && received[2] >= memoryThresholdBytes)) {
+            worker.retire();
+            worker = new Worker(directory, jvmOptions);
+        }
+        give(key, worker);
+        return InProcessTool.Result.ended((int) received[1]);
+    }
+
+    @Override
+    public String toString() {
+        return mainClass + " (worker pool, " + jobsPerWorker + " jobs per worker" +
+                (memoryThresholdBytes > 0?(", " + memoryThresholdBytes / (1024 * 1024) + "MB per worker"):"") + ")";
+    }
+
+    private synchronized Worker take(String key) {
+        Deque<Worker> workers = idle.get(key);
+        while (workers != null && !workers.isEmpty()) {
+            Worker worker = workers.pop();
+            if (worker.process.isAlive())
+                return worker;
+        }
+        return null;
+    }
+
+    private synchronized void give(String key, Worker worker) {
+        idle.computeIfAbsent(key, k -> new LinkedList<>()).push(worker);
+    }
+
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version");
+        try {
+            return Integer.parseInt(version.startsWith("1.")?version.substring(2):version);
+        } catch (NumberFormatException e) {
+            return 8;
+        }
+    }
+
+    private final class Worker {
+
+        private final Process process;
+        private final DataOutputStream requests;
+        private final DataInputStream responses;
+        private int jobs = 0;
+
+        private Worker(Path directory, List<String> jvmOptions) throws IOException {
+            List<String> command = new LinkedList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(jvmOptions);
+            if (javaVersion() >= SECURITY_MANAGER_ALLOW_VERSION)
+                command.add("-Djava.security.manager=allow");
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(ToolWorker.class.getName());
+            command.add(mainClass);
+            command.add(Integer.toString(jobsPerWorker));
+            for (Path entry : classpath) {
+                command.add(entry.toAbsolutePath().toString());
+            }
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.directory(directory.toFile());
+            pb.redirectError(ProcessBuilder.Redirect.appendTo(directory.resolve(WORKER_LOG).toFile()));
+            process = pb.start();
+            requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            responses = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        private void send(String[] args, File output, File error) throws IOException {
+            requests.writeInt(args.length);
+            for (String arg : args) {
+                requests.writeUTF(arg);
+            }
+            requests.writeUTF(output.getAbsolutePath());
+            requests.writeUTF(error.getAbsolutePath());
+            requests.flush();
+        }
+
+        /**
+         * @return the call's status, exit code, and the worker's resident memory.
+         */
+        private long[] receive() throws IOException {
+            return new long[]{responses.readInt(), responses.readInt(), responses.readLong()};
+        }
+
+        /**
+         * Waits for a worker that died during a call to end, destroying it if it doesn't.
+         *
+         * @return the worker's exit code, or {@code 1} if it's not available or {@code 0}.
+         */
+        private int crashed() throws InterruptedException {
+            if (!process.waitFor(EXIT_GRACE_MILLIS, TimeUnit.MILLISECONDS))
+                destroy();
+            int exitCode = process.isAlive()?1:process.exitValue();
+            return exitCode == 0?1:exitCode;
+        }
+
+        /**
+         * Closes the worker's standard input, letting it end once it's done.
+         */
+        private void retire() {
+            try {
+                requests.close();
+            } catch (IOException e) {
+                destroy();
+            }
+        }
+
+        private void destroy() {
+            Deadline.destroyProcessTree(process);
+        }
+
+    }
+
+}
@@ -0,0 +1,155 @@
+package ar.edu.unrc.exa.dc.search;
+
+import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Checks that {@link CandidateSpace} pops candidates in the same order as the map of stacks/queues it replaced (see
+ * {@link BaselineSpace}), for every search mode, with and without a spill file.
+ * <p>
+ * Run with {@code java ar.edu.unrc.exa.dc.search.CandidateSpaceTest}, a failure ends with an {@link AssertionError}.
+ */
+public class CandidateSpaceTest {
+
+    private static final int OPERATIONS = 4000;
+    //a few priorities, so most candidates tie with others
+    private static final int PRIORITIES = 4;
+    private static final int TESTS = 30;
+
+    public static void main(String[] args) throws IOException {
+        Path model = Files.createTempFile("icebar_test_", ".als");
+        Path spillFile = Files.createTempFile("icebar_test_", ".spill");
+        try {
+            for (boolean usePriority : new boolean[]{false, true}) {
+                for (boolean useQueue : new boolean[]{false, true}) {
+                    samePopOrder(model, usePriority, useQueue, null);
+                    samePopOrder(model, usePriority, useQueue, spillFile);
+                }
+            }
+            emptyPop();
+        } finally {
+            Files.deleteIfExists(model);
+            Files.deleteIfExists(spillFile);
+        }
+        System.out.println("CandidateSpaceTest: OK");
+    }
+
+    private static void samePopOrder(Path model, boolean usePriority, boolean useQueue, Path spillFile) throws IOException {
+        String mode = (usePriority?"priority ":"normal ") + (useQueue?"queue":"stack") + (spillFile == null?"":" (spilling)");
+        CandidateSpace space = usePriority?(useQueue?CandidateSpace.priorityQueue():CandidateSpace.priorityStack()):
+                (useQueue?CandidateSpace.normalQueue():CandidateSpace.normalStack());
+        BaselineSpace baseline = new BaselineSpace(usePriority, useQueue);
+        if (spillFile != null)
+            space.spillTo(spillFile, 4096);
+        Random random = new Random(usePriority ? (useQueue?1:2) : (useQueue?3:4));
+        FixCandidate root = FixCandidate.initialCandidate(model);
+        int pops = 0;
+        for (int o = 0; o < OPERATIONS; o++) {
+            if (!baseline.isEmpty() && random.nextInt(5) < 2) {
+                samePop(mode, space.pop(), baseline.pop(), pops++);
+            } else {
+                List<BeAFixTest> tests = new LinkedList<>();
+                for (int t = random.nextInt(3); t > 0; t--) {
+                    tests.add(test(random.nextInt(TESTS)));
+                }
+                FixCandidate candidate = FixCandidate.descendant(model, tests, root);
+                candidate.repairedProperties(random.nextInt(PRIORITIES));
+                space.push(candidate);
+                baseline.push(candidate);
+            }
+            check(space.size() == baseline.size(), mode + ": expected " + baseline.size() + " candidates, got " + space.size());
+        }
+        if (spillFile != null)
+            check(space.spilledCandidates() > 0, mode + ": no candidate was spilled");
+        while (!baseline.isEmpty()) {
+            samePop(mode, space.pop(), baseline.pop(), pops++);
+        }
+        check(space.isEmpty(), mode + ": candidates left after popping all the expected ones");
+        space.deleteSpillFile();
+    }
+
+    private static void samePop(String mode, FixCandidate popped, FixCandidate expected, int pop) {
+        check(popped.id().equals(expected.id()), mode + ": pop " + pop + " expected " + expected.id() + " but got " + popped.id());
+        check(popped.repairedProperties() == expected.repairedProperties(), mode + ": pop " + pop + " has different repaired properties");
+        check(Objects.equals(popped.parentId(), expected.parentId()), mode + ": pop " + pop + " has a different parent");
+        check(hashes(popped.untrustedTests()).equals(hashes(expected.untrustedTests())), mode + ": pop " + pop + " has different tests");
+    }
+
+    private static void emptyPop() {
+        try {
+            CandidateSpace.normalQueue().pop();
+        } catch (IllegalStateException expected) {
+            return;
+        }
+        throw new AssertionError("popping an empty space should fail");
+    }
+
+    private static List<Integer> hashes(Collection<BeAFixTest> tests) {
+        List<Integer> hashes = new LinkedList<>();
+        tests.forEach(test -> hashes.add(test.currentTestHashCode()));
+        return hashes;
+    }
+
+    private static BeAFixTest test(int index) {
+        return new BeAFixTest("--TEST START\npred test" + index + "() { some A }\n--TEST FINISH\n" +
+                "run test_CE_" + index + "_0 expect 0\n", BeAFixTest.TestType.UNTRUSTED);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    /**
+     * The frontier used before {@link CandidateSpace} was backed by a single ordered set: a stack or queue for each
+     * priority, popping from the highest priority with candidates.
+     */
+    private static final class BaselineSpace {
+
+        private final boolean usePriority;
+        private final boolean useQueue;
+        private final Map<Integer, Stack<FixCandidate>> priorityStack = new HashMap<>();
+        private final Map<Integer, Queue<FixCandidate>> priorityQueue = new HashMap<>();
+        private int size = 0;
+
+        private BaselineSpace(boolean usePriority, boolean useQueue) {
+            this.usePriority = usePriority;
+            this.useQueue = useQueue;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private void push(FixCandidate candidate) {
+            int priority = usePriority?candidate.repairedProperties():0;
+            if (useQueue)
+                priorityQueue.computeIfAbsent(priority, p -> new LinkedList<>()).add(candidate);
+            else
+                priorityStack.computeIfAbsent(priority, p -> new Stack<>()).push(candidate);
+            size++;
+        }
+
+        private FixCandidate pop() {
+            size--;
+            if (useQueue)
+                return priorityQueue.get(highestPriority(priorityQueue)).poll();
+            return priorityStack.get(highestPriority(priorityStack)).pop();
+        }
+
+        private static int highestPriority(Map<Integer, ? extends Collection<FixCandidate>> candidates) {
+            return candidates.entrySet().stream().filter(e -> !e.getValue().isEmpty()).map(Map.Entry::getKey)
+                    .max(Comparator.comparingInt(p -> p)).orElseThrow(() -> new IllegalStateException("Empty space"));
+        }
+
+    }
+
+}
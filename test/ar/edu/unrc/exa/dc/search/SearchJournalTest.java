@@ -0,0 +1,128 @@
+package ar.edu.unrc.exa.dc.search;
+
+import ar.edu.unrc.exa.dc.tools.BeAFixResult.BeAFixTest;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Checks that a {@link SearchJournal} read back rebuilds the search state it recorded, that an incomplete record at its
+ * end (a run that died while writing it) is ignored, and that a resumed journal continues after the last complete
+ * record.
+ * <p>
+ * Run with {@code java ar.edu.unrc.exa.dc.search.SearchJournalTest}, a failure ends with an {@link AssertionError}.
+ */
+public class SearchJournalTest {
+
+    private static final String SEARCH = "search";
+
+    public static void main(String[] args) throws IOException {
+        Path model = Files.createTempFile("icebar_test_", ".als");
+        Path file = Files.createTempFile("icebar_test_", ".journal");
+        try {
+            roundTrip(model, file);
+            differentSearch(file);
+        } finally {
+            Files.deleteIfExists(model);
+            Files.deleteIfExists(file);
+        }
+        System.out.println("SearchJournalTest: OK");
+    }
+
+    private static void roundTrip(Path model, Path file) throws IOException {
+        BeAFixTest t1 = test(1, BeAFixTest.TestType.UNTRUSTED);
+        BeAFixTest t2 = test(2, BeAFixTest.TestType.UNTRUSTED);
+        BeAFixTest t3 = test(3, BeAFixTest.TestType.TRUSTED);
+        FixCandidate root = FixCandidate.initialCandidate(model);
+        FixCandidate c1 = FixCandidate.descendant(model, Arrays.asList(t1, t2), root);
+        c1.repairedProperties(2);
+        c1.totalProperties(5);
+        FixCandidate c2 = FixCandidate.descendant(model, Collections.singletonList(t2), Collections.singletonList(t3), c1);
+        FixCandidate c3 = FixCandidate.descendant(model, Collections.singletonList(t1), c1);
+        try (SearchJournal journal = SearchJournal.create(file, SEARCH)) {
+            journal.pushed(0, root, "");
+            journal.evaluated(root, counters(1, 10));
+            journal.pushed(1, c1, "suite1");
+            journal.trustedTestsAdded(Collections.singletonList(t3));
+            journal.testHashesAdded(SearchJournal.TRUSTED_HASHES, Collections.singletonList(t3));
+            journal.testHashesAdded(SearchJournal.UNTRUSTED_HASHES, Arrays.asList(t1, t2));
+            journal.evaluated(c1, counters(2, 20));
+            journal.pushed(0, c2, "suite2");
+            journal.pushed(1, c3, "suite3");
+            journal.evaluated(c2, counters(3, 30));
+        }
+        //the run died while writing the last record
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        SearchJournal.State state = SearchJournal.read(file, SEARCH);
+        check(state.counters != null && state.counters.evaluatedCandidates == 2, "the counters of the incomplete record were read");
+        check(state.counters.totalNanoSeconds == 20, "expected the time totals of the last complete record");
+        List<FixCandidate> pending = new ArrayList<>(state.pending.keySet());
+        check(pending.size() == 2, "expected 2 pending candidates, got " + pending.size());
+        FixCandidate restoredC2 = pending.get(0);
+        FixCandidate restoredC3 = pending.get(1);
+        check(restoredC2.id().equals(c2.id()) && restoredC3.id().equals(c3.id()), "pending candidates are not in push order");
+        check(state.pending.get(restoredC2) == 0 && state.pending.get(restoredC3) == 1, "pending candidates lost their workers");
+        check(c1.id().equals(restoredC2.parentId()), "restored candidate lost its parent");
+        check(restoredC2.depth() == c2.depth(), "restored candidate lost its depth");
+        check(hashes(restoredC2.untrustedTests()).equals(hashes(c2.untrustedTests())), "restored candidate lost its untrusted tests");
+        check(hashes(restoredC2.trustedTests()).equals(hashes(c2.trustedTests())), "restored candidate lost its trusted tests");
+        check(state.pushedSuites.equals(new HashSet<>(Arrays.asList("suite1", "suite2", "suite3"))), "pushed suites not restored");
+        check(state.trustedTests.size() == 1 && state.trustedTests.iterator().next().currentTestHashCode() == t3.currentTestHashCode(), "trusted tests not restored");
+        check(state.trustedHashes.equals(Collections.singletonList(t3.currentTestHashCode())), "trusted hashes not restored");
+        check(state.untrustedHashes.equals(Arrays.asList(t1.currentTestHashCode(), t2.currentTestHashCode())), "untrusted hashes not restored");
+
+        //the resumed journal drops the incomplete record, and refers to tests written before resuming
+        BeAFixTest t4 = test(4, BeAFixTest.TestType.UNTRUSTED);
+        List<BeAFixTest> c4Tests = new LinkedList<>(restoredC3.untrustedTests());
+        c4Tests.add(t4);
+        FixCandidate c4 = FixCandidate.descendant(model, c4Tests, restoredC3);
+        try (SearchJournal journal = SearchJournal.resume(file, state)) {
+            journal.evaluated(restoredC2, counters(3, 35));
+            journal.pushed(0, c4, "suite4");
+            journal.evaluated(restoredC3, counters(4, 40));
+        }
+        state = SearchJournal.read(file, SEARCH);
+        check(state.counters.evaluatedCandidates == 4 && state.counters.totalNanoSeconds == 40, "records written after resuming were not read");
+        check(state.pending.size() == 1, "expected only the last pushed candidate to be pending, got " + state.pending.size());
+        FixCandidate restoredC4 = state.pending.keySet().iterator().next();
+        check(restoredC4.id().equals(c4.id()) && c3.id().equals(restoredC4.parentId()), "candidate pushed after resuming not restored");
+        check(hashes(restoredC4.untrustedTests()).equals(hashes(c4.untrustedTests())), "tests written before and after resuming not restored");
+    }
+
+    private static void differentSearch(Path file) throws IOException {
+        try {
+            SearchJournal.read(file, "another " + SEARCH);
+        } catch (IllegalArgumentException expected) {
+            return;
+        }
+        throw new AssertionError("a journal for another search should be rejected");
+    }
+
+    private static SearchJournal.Counters counters(int evaluatedCandidates, long totalNanoSeconds) {
+        return new SearchJournal.Counters(evaluatedCandidates * 2, evaluatedCandidates, evaluatedCandidates, 0, 0,
+                evaluatedCandidates, 1000 * evaluatedCandidates, totalNanoSeconds / 2, totalNanoSeconds / 4, totalNanoSeconds);
+    }
+
+    private static List<Integer> hashes(Collection<BeAFixTest> tests) {
+        List<Integer> hashes = new LinkedList<>();
+        tests.forEach(test -> hashes.add(test.currentTestHashCode()));
+        return hashes;
+    }
+
+    private static BeAFixTest test(int index, BeAFixTest.TestType testType) {
+        return new BeAFixTest("--TEST START\npred test" + index + "() { some A }\n--TEST FINISH\n" +
+                "run test_CE_" + index + "_0 expect 0\n", testType);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+}
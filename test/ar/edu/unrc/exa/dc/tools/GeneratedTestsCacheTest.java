@@ -0,0 +1,51 @@
+package ar.edu.unrc.exa.dc.tools;
+
+/**
+ * Checks that {@link GeneratedTestsCache} shifts the index of every cached test name, and nothing else, when reusing
+ * tests generated from a different starting index.
+ * <p>
+ * Run with {@code java ar.edu.unrc.exa.dc.tools.GeneratedTestsCacheTest}, a failure ends with an {@link AssertionError}.
+ */
+public class GeneratedTestsCacheTest {
+
+    private static final String TESTS = "--TEST START\n" +
+            "pred test_CE_3_0[] { some A and #A = 2 }\n" +
+            "--TEST FINISH\n" +
+            "run test_CE_3_0 expect 0\n" +
+            "--TEST START\n" +
+            "pred test_pred_12_1[] { no A }\n" +
+            "--TEST FINISH\n" +
+            "run test_pred_12_1 for 3 expect 1\n";
+
+    public static void main(String[] args) {
+        shiftsIndexes();
+        keepsTestsWithoutOffset();
+        keepsOtherNumbers();
+        System.out.println("GeneratedTestsCacheTest: OK");
+    }
+
+    private static void shiftsIndexes() {
+        String expected = TESTS.replace("_CE_3_", "_CE_13_").replace("_pred_12_", "_pred_22_");
+        String renumbered = GeneratedTestsCache.renumber(TESTS, 10);
+        check(renumbered.equals(expected), "unexpected renumbered tests:\n" + renumbered);
+        check(GeneratedTestsCache.renumber(renumbered, -10).equals(TESTS), "a negative offset didn't restore the original indexes");
+    }
+
+    private static void keepsTestsWithoutOffset() {
+        check(GeneratedTestsCache.renumber(TESTS, 0).equals(TESTS), "tests changed with a 0 offset");
+        check(GeneratedTestsCache.renumber(null, 5) == null, "missing tests should stay missing");
+    }
+
+    private static void keepsOtherNumbers() {
+        String tests = "pred test_CE_4[] { #A = 4 }\n" +
+                "pred other_7_1[] { some A_CE }\n" +
+                "run test_CE_4 for 4 but 7 Int\n";
+        check(GeneratedTestsCache.renumber(tests, 3).equals(tests), "numbers outside test indexes were changed");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+}
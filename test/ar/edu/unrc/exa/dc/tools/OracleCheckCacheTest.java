@@ -0,0 +1,156 @@
+package ar.edu.unrc.exa.dc.tools;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Checks which property verdicts {@link OracleCheckCache} infers from a CHECK result, and that a changed oracle only
+ * checks the properties without a verdict.
+ * <p>
+ * Run with {@code java ar.edu.unrc.exa.dc.tools.OracleCheckCacheTest}, a failure ends with an {@link AssertionError}.
+ */
+public class OracleCheckCacheTest {
+
+    private static final String ORACLE = "assert P1 { some A }\n" +
+            "assert P2 { no B }\n" +
+            "check P1\n  for 3\n" +
+            "check P2 for 3\n" +
+            "check { lone A } for 2\n";
+    //only the assertion checked by the second property changes
+    private static final String CHANGED_ORACLE = ORACLE.replace("no B", "lone B");
+
+    public static void main(String[] args) throws IOException {
+        Path fix = Files.createTempFile("icebar_test_", ".als");
+        Path oracle = Files.createTempFile("icebar_test_", ".als");
+        Path changedOracle = Files.createTempFile("icebar_test_", ".als");
+        Path directory = Files.createTempDirectory("icebar_test_");
+        try {
+            Files.write(fix, "sig A {}\nsig B {}\n".getBytes(StandardCharsets.UTF_8));
+            Files.write(oracle, ORACLE.getBytes(StandardCharsets.UTF_8));
+            Files.write(changedOracle, CHANGED_ORACLE.getBytes(StandardCharsets.UTF_8));
+            validVerdicts(fix, oracle, changedOracle);
+            invalidVerdicts(fix, oracle, changedOracle);
+            noVerdicts(fix, oracle, changedOracle);
+            abandonedPartialCheck(fix, oracle, changedOracle);
+            storedResults(fix, oracle, directory);
+        } finally {
+            Files.deleteIfExists(fix);
+            Files.deleteIfExists(oracle);
+            Files.deleteIfExists(changedOracle);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+        System.out.println("OracleCheckCacheTest: OK");
+    }
+
+    /**
+     * A valid result makes every property pass, and a single failing property fails.
+     */
+    private static void validVerdicts(Path fix, Path oracle, Path changedOracle) throws IOException {
+        OracleCheckCache cache = new OracleCheckCache(null);
+        FakeChecker checker = new FakeChecker(BeAFixResult.check(true, 3, 3, "Valid"), BeAFixResult.check(false, 0, 1, "Invalid"));
+        sameResult(cache.check(fix, oracle, checker), true, 3, 3);
+        check(checker.oracles.get(0).equals(ORACLE), "the first check should use the whole oracle");
+        sameResult(cache.check(fix, oracle, checker), true, 3, 3);
+        check(checker.oracles.size() == 1, "checking the same oracle again called BeAFix");
+        BeAFixResult result = cache.check(fix, changedOracle, checker);
+        check(checker.oracles.size() == 2, "a changed property was not checked");
+        onlyChecks(checker.oracles.get(1), "check P2 for 3");
+        sameResult(result, false, 2, 3);
+        check(result.message().contains("(cached)"), "a result built from verdicts should say it was cached");
+    }
+
+    /**
+     * An invalid result with no passing properties makes every property fail.
+     */
+    private static void invalidVerdicts(Path fix, Path oracle, Path changedOracle) throws IOException {
+        OracleCheckCache cache = new OracleCheckCache(null);
+        FakeChecker checker = new FakeChecker(BeAFixResult.check(false, 0, 3, "Invalid"), BeAFixResult.check(true, 1, 1, "Valid"));
+        sameResult(cache.check(fix, oracle, checker), false, 0, 3);
+        BeAFixResult result = cache.check(fix, changedOracle, checker);
+        onlyChecks(checker.oracles.get(1), "check P2 for 3");
+        sameResult(result, false, 1, 3);
+    }
+
+    /**
+     * An invalid result with some passing properties doesn't tell which ones passed, so the next oracle is checked whole.
+     */
+    private static void noVerdicts(Path fix, Path oracle, Path changedOracle) throws IOException {
+        OracleCheckCache cache = new OracleCheckCache(null);
+        FakeChecker checker = new FakeChecker(BeAFixResult.check(false, 2, 3, "Invalid"), BeAFixResult.check(false, 1, 3, "Invalid"));
+        sameResult(cache.check(fix, oracle, checker), false, 2, 3);
+        sameResult(cache.check(fix, changedOracle, checker), false, 1, 3);
+        check(checker.oracles.get(1).equals(CHANGED_ORACLE), "expected the whole changed oracle to be checked");
+    }
+
+    private static void abandonedPartialCheck(Path fix, Path oracle, Path changedOracle) throws IOException {
+        OracleCheckCache cache = new OracleCheckCache(null);
+        FakeChecker checker = new FakeChecker(BeAFixResult.check(true, 3, 3, "Valid"), BeAFixResult.timeout("Timeout"),
+                BeAFixResult.check(true, 1, 1, "Valid"));
+        cache.check(fix, oracle, checker);
+        check(cache.check(fix, changedOracle, checker).timedOut(), "an abandoned partial check should be returned as is");
+        sameResult(cache.check(fix, changedOracle, checker), true, 3, 3);
+        check(checker.oracles.size() == 3, "an abandoned partial check was cached");
+    }
+
+    private static void storedResults(Path fix, Path oracle, Path directory) throws IOException {
+        FakeChecker checker = new FakeChecker(BeAFixResult.check(false, 0, 3, "Invalid"));
+        new OracleCheckCache(directory).check(fix, oracle, checker);
+        sameResult(new OracleCheckCache(directory).check(fix, oracle, checker), false, 0, 3);
+        check(checker.oracles.size() == 1, "a stored result was not reused by another cache");
+    }
+
+    private static void onlyChecks(String oracle, String command) {
+        check(oracle.contains(command), "expected the partial oracle to check " + command + ":\n" + oracle);
+        int commands = oracle.split("(?m)^check").length - 1;
+        check(commands == 1, "expected the partial oracle to have only one check command:\n" + oracle);
+        check(oracle.contains("assert P1") && oracle.contains("assert P2"), "the partial oracle lost its assertions:\n" + oracle);
+    }
+
+    private static void sameResult(BeAFixResult result, boolean valid, int passing, int total) {
+        check(result.isCheck(), "expected a CHECK result, got " + result);
+        check(result.checkResult() == valid && result.passingProperties() == passing && result.totalProperties() == total,
+                "expected " + (valid?"valid ":"invalid ") + passing + "/" + total + ", got " + result.message());
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    /**
+     * Returns the given results in order, keeping the contents of every oracle it was asked to check.
+     */
+    private static final class FakeChecker implements OracleCheckCache.Checker {
+
+        private final Queue<BeAFixResult> results;
+        private final List<String> oracles = new ArrayList<>();
+
+        private FakeChecker(BeAFixResult... results) {
+            this.results = new LinkedList<>(Arrays.asList(results));
+        }
+
+        @Override
+        public BeAFixResult check(Path oracle) {
+            try {
+                oracles.add(new String(Files.readAllBytes(oracle), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (results.isEmpty())
+                throw new AssertionError("unexpected check of:\n" + oracles.get(oracles.size() - 1));
+            return results.poll();
+        }
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package ar.edu.unrc.exa.dc.util;
+
+/**
+ * Checks that {@link AdaptiveHeap} sizes heaps from a fixed base plus a per-byte slope, that it forgets old peaks, and
+ * that peaks of calls run with the maximum heap are not recorded.
+ * <p>
+ * Run with {@code java ar.edu.unrc.exa.dc.util.AdaptiveHeapTest}, a failure ends with an {@link AssertionError}.
+ */
+public class AdaptiveHeapTest {
+
+    private static final long MB = 1024 * 1024;
+    private static final int MINIMUM_MB = 256;
+    private static final int MAXIMUM_MB = 16 * 1024;
+    private static final long BASE = 300 * MB;
+    private static final long BYTES_PER_INPUT_BYTE = 1000;
+
+    public static void main(String[] args) {
+        startsFromMinimum();
+        growingSuitesDontReachMaximum();
+        shrinksAfterLargeCalls();
+        maximumHeapPeaksAreNotRecorded();
+        System.out.println("AdaptiveHeapTest: OK");
+    }
+
+    private static void startsFromMinimum() {
+        AdaptiveHeap heap = new AdaptiveHeap(MINIMUM_MB, MAXIMUM_MB, 50);
+        check(heap.heapMB(1000) == MINIMUM_MB, "expected the minimum heap before any call");
+        check(heap.retryHeapMB(MINIMUM_MB) == 2 * MINIMUM_MB, "expected twice the heap when retrying");
+        heap.record(1000, MAXIMUM_MB, -1);
+        check(heap.heapMB(1000) == MAXIMUM_MB, "expected the heap of the last successful call while no peak is known");
+    }
+
+    /**
+     * Small early calls used to give a large peak per input byte, which made the heap of later (larger) calls grow to
+     * the maximum.
+     */
+    private static void growingSuitesDontReachMaximum() {
+        AdaptiveHeap heap = new AdaptiveHeap(MINIMUM_MB, MAXIMUM_MB, 50);
+        for (long input = 10_000; input <= 200_000; input += 10_000) {
+            int heapMB = heap.heapMB(input);
+            check(heapMB < MAXIMUM_MB, "heap reached the maximum for a " + input + " bytes input");
+            heap.record(input, heapMB, peak(input));
+        }
+        long input = 400_000;
+        int expectedMB = (int) Math.ceil(peak(input) * 1.5 / MB);
+        check(Math.abs(heap.heapMB(input) - expectedMB) <= 1, "expected a heap of about " + expectedMB + "MB but got " + heap.heapMB(input) + "MB");
+    }
+
+    private static void shrinksAfterLargeCalls() {
+        AdaptiveHeap heap = new AdaptiveHeap(MINIMUM_MB, MAXIMUM_MB, 50);
+        heap.record(10_000, 4096, 3 * 1024 * MB);
+        int afterOutlier = heap.heapMB(10_000);
+        for (int call = 0; call < 40; call++) {
+            heap.record(10_000, heap.heapMB(10_000), peak(10_000));
+        }
+        check(heap.heapMB(10_000) < afterOutlier, "heap didn't shrink once the large call left the window");
+        check(heap.heapMB(10_000) == (int) Math.ceil(peak(10_000) * 1.5 / MB), "unexpected heap for calls with the same input");
+    }
+
+    private static void maximumHeapPeaksAreNotRecorded() {
+        AdaptiveHeap heap = new AdaptiveHeap(MINIMUM_MB, MAXIMUM_MB, 50);
+        heap.record(10_000, 1024, peak(10_000));
+        int before = heap.heapMB(20_000);
+        heap.record(20_000, MAXIMUM_MB, 12 * 1024 * MB);
+        check(heap.heapMB(20_000) == before, "a peak of a call run with the maximum heap was recorded");
+    }
+
+    private static long peak(long inputBytes) {
+        return BASE + BYTES_PER_INPUT_BYTE * inputBytes;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+}
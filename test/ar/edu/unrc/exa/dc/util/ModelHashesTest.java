@@ -0,0 +1,120 @@
+package ar.edu.unrc.exa.dc.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that {@link ModelHashes} only tells models apart when they differ in something other than comments,
+ * whitespace, or the order of their paragraphs, and that paragraphs are split where Alloy's are.
+ * <p>
+ * Run with {@code java ar.edu.unrc.exa.dc.util.ModelHashesTest}, a failure ends with an {@link AssertionError}.
+ */
+public class ModelHashesTest {
+
+    private static final String MODEL = "module m\n" +
+            "abstract sig A { f: one B }\n" +
+            "one sig B {}\n" +
+            "fact { all a: A | some a.f }\n" +
+            "pred p[a: A] { a.f = B }\n" +
+            "assert Ok { all a: A | p[a] }\n" +
+            "check Ok for 3\n";
+
+    public static void main(String[] args) {
+        commentsAndWhitespace();
+        paragraphOrder();
+        differentModels();
+        modifiers();
+        commands();
+        positions();
+        System.out.println("ModelHashesTest: OK");
+    }
+
+    private static void commentsAndWhitespace() {
+        String commented = "module m // the module\n" +
+                "/* a signature\n with a field */ abstract   sig A {\n\tf : one B\n}\n" +
+                "-- a singleton\none sig B {}\n" +
+                "fact {all a:A|some a.f}\n" +
+                "pred p[a: A] {\n  a.f = B // always B\n}\n" +
+                "assert Ok {\n  all a: A | p[a]\n}\n\n\n" +
+                "check Ok\n  for 3";
+        sameHash(MODEL, commented, "comments and whitespace");
+    }
+
+    private static void paragraphOrder() {
+        String reordered = "check Ok for 3\n" +
+                "assert Ok { all a: A | p[a] }\n" +
+                "one sig B {}\n" +
+                "pred p[a: A] { a.f = B }\n" +
+                "fact { all a: A | some a.f }\n" +
+                "abstract sig A { f: one B }\n" +
+                "module m\n";
+        sameHash(MODEL, reordered, "paragraph order");
+    }
+
+    private static void differentModels() {
+        differentHash(MODEL, MODEL.replace("check Ok for 3", "check Ok for 4"), "command scope");
+        differentHash(MODEL, MODEL.replace("a.f = B", "a.f != B"), "predicate body");
+        differentHash(MODEL, MODEL.replace("f: one B", "f: lone B"), "field multiplicity");
+        differentHash(MODEL, MODEL.replace("a.f = B", "a.f=B'"), "primed identifier");
+    }
+
+    /**
+     * {@code one sig} and {@code abstract sig} start paragraphs, {@code one} in {@code f: one B} doesn't.
+     */
+    private static void modifiers() {
+        List<String> paragraphs = texts(ModelHashes.paragraphs("abstract sig A { f: one B }\none sig B {}\nlone sig C {}\nsome sig D {}\n"));
+        check(paragraphs.equals(Arrays.asList("abstract sig A { f : one B }", "one sig B { }", "lone sig C { }", "some sig D { }")),
+                "modifiers were not kept with their signatures: " + paragraphs);
+        paragraphs = texts(ModelHashes.paragraphs("sig A { f: one B, g: lone A }\nsig B {}\n"));
+        check(paragraphs.size() == 2, "a field multiplicity started a paragraph: " + paragraphs);
+        paragraphs = texts(ModelHashes.paragraphs("private one sig A {}\nfact { some A }\n"));
+        check(paragraphs.equals(Arrays.asList("private one sig A { }", "fact { some A }")), "several modifiers were split: " + paragraphs);
+    }
+
+    private static void commands() {
+        String oracle = "assert Ok {\n  some A\n}\n" +
+                "check Ok\n  for 3 but\n  4 Int\n" +
+                "check {\n  no A\n} for 2\n" +
+                "check { lone A } expect 0\n" +
+                "run { some A }\n";
+        List<String> paragraphs = texts(ModelHashes.paragraphs(oracle));
+        check(paragraphs.equals(Arrays.asList("assert Ok { some A }", "check Ok for 3 but 4 Int", "check { no A } for 2",
+                "check { lone A } expect 0", "run { some A }")), "commands were not split as expected: " + paragraphs);
+        differentHash(oracle, oracle.replace("check {\n  no A\n} for 2", "check {\n  no A\n} for 3"), "anonymous check scope");
+        sameHash(oracle, oracle.replace("check Ok\n  for 3 but\n  4 Int", "check Ok for 3 but 4 Int"), "multi-line check");
+    }
+
+    /**
+     * Paragraph positions cover their text, without the comments and whitespace around them.
+     */
+    private static void positions() {
+        String model = "// header\nsig A {}\n\n  check {\n some A } for 2 // trailing\nfact {}";
+        List<ModelHashes.Paragraph> paragraphs = ModelHashes.paragraphs(model);
+        check(paragraphs.size() == 3, "expected 3 paragraphs, got " + texts(paragraphs));
+        check(model.substring(paragraphs.get(0).start(), paragraphs.get(0).end()).equals("sig A {}"), "wrong position for sig A");
+        check(model.substring(paragraphs.get(1).start(), paragraphs.get(1).end()).equals("check {\n some A } for 2"), "wrong position for check");
+        check(model.substring(paragraphs.get(2).start(), paragraphs.get(2).end()).equals("fact {}"), "wrong position for fact");
+        check(ModelHashes.paragraphs("// only a comment\n").isEmpty(), "a comment alone is not a paragraph");
+    }
+
+    private static List<String> texts(List<ModelHashes.Paragraph> paragraphs) {
+        List<String> texts = new ArrayList<>();
+        paragraphs.forEach(paragraph -> texts.add(paragraph.toString()));
+        return texts;
+    }
+
+    private static void sameHash(String model, String other, String what) {
+        check(ModelHashes.canonicalHash(model).equals(ModelHashes.canonicalHash(other)), "models differing in " + what + " have different hashes");
+    }
+
+    private static void differentHash(String model, String other, String what) {
+        check(!ModelHashes.canonicalHash(model).equals(ModelHashes.canonicalHash(other)), "models differing in " + what + " have the same hash");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+}